@@ -0,0 +1,111 @@
+package io.github.mcengine.api.artificialintelligence.database.sqlite;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Writing rows one statement at a time against writing them as one batch in a single transaction,
+ * on a file-backed {@link MCEngineArtificialIntelligenceApiDBSQLite}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MCEngineArtificialIntelligenceApiDBSQLiteBenchmark {
+
+    /** Upsert of one player token. */
+    private static final String UPSERT = "INSERT INTO artificialintelligence_token (player_uuid, platform, token) "
+            + "VALUES (?, ?, ?) ON CONFLICT (player_uuid, platform) DO UPDATE SET token = excluded.token";
+
+    /** Rows written per invocation. */
+    @Param({"10", "100"})
+    public int rows;
+
+    /** Folder holding the database file. */
+    private File folder;
+
+    /** The database. */
+    private MCEngineArtificialIntelligenceApiDBSQLite db;
+
+    /** Parameter sets of the rows. */
+    private List<Object[]> paramSets;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("mcengine-ai-bench").toFile();
+        YamlConfiguration config = new YamlConfiguration();
+        Logger logger = Logger.getLogger("MCEngineArtificialIntelligenceApiDBSQLiteBenchmark");
+        Plugin plugin = (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[]{Plugin.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getConfig":
+                            return config;
+                        case "getLogger":
+                            return logger;
+                        case "getDataFolder":
+                            return folder;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+        db = new MCEngineArtificialIntelligenceApiDBSQLite(plugin);
+        db.open();
+
+        paramSets = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            paramSets.add(new Object[]{"00000000-0000-0000-0000-" + String.format("%012d", i), "openai", "token-" + i});
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        db.close();
+        try (Stream<File> files = Files.walk(folder.toPath()).map(Path::toFile)) {
+            files.sorted(Comparator.reverseOrder()).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public int singleInserts() {
+        int written = 0;
+        for (Object[] params : paramSets) {
+            written += db.execute(UPSERT, params);
+        }
+        return written;
+    }
+
+    @Benchmark
+    public int[] batchedInserts() {
+        return db.executeBatch(UPSERT, paramSets);
+    }
+}
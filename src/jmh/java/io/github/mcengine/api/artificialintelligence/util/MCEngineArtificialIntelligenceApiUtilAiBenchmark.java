@@ -0,0 +1,134 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import com.google.gson.JsonObject;
+import io.github.mcengine.api.artificialintelligence.model.IMCEngineArtificialIntelligenceApiModel;
+import io.github.mcengine.api.artificialintelligence.model.IMCEngineArtificialIntelligenceApiModelProvider;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Model registry lookups under contention: {@link MCEngineArtificialIntelligenceApiUtilAi#getAi} against a
+ * registry guarded by one monitor, as {@code getAi} was before the lookups became lock-free.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class MCEngineArtificialIntelligenceApiUtilAiBenchmark {
+
+    /** Platform the benchmark registers its models under. */
+    private static final String PLATFORM = "benchmark";
+
+    /** Number of registered models the lookups spread over. */
+    @Param({"4", "64"})
+    public int models;
+
+    /** Names of the registered models. */
+    private String[] names;
+
+    /** The same models behind a single monitor. */
+    private final Map<String, Map<String, IMCEngineArtificialIntelligenceApiModel>> lockedCache = new HashMap<>();
+
+    @Setup
+    public void setUp() {
+        YamlConfiguration config = new YamlConfiguration();
+        Logger logger = Logger.getLogger("MCEngineArtificialIntelligenceApiUtilAiBenchmark");
+        logger.setLevel(Level.WARNING);
+        Plugin plugin = (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[]{Plugin.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getConfig":
+                            return config;
+                        case "getLogger":
+                            return logger;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+
+        MCEngineArtificialIntelligenceApiUtilProvider.register(
+                IMCEngineArtificialIntelligenceApiModelProvider.of(PLATFORM, (owner, model) -> new StubModel()));
+        names = new String[models];
+        for (int i = 0; i < models; i++) {
+            names[i] = "model-" + i;
+            MCEngineArtificialIntelligenceApiUtilAi.registerModel(plugin, PLATFORM, names[i]);
+            lockedCache.computeIfAbsent(PLATFORM, key -> new HashMap<>()).put(names[i], new StubModel());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        MCEngineArtificialIntelligenceApiUtilProvider.unregister(PLATFORM);
+    }
+
+    @Benchmark
+    public IMCEngineArtificialIntelligenceApiModel lockFreeLookup(Cursor cursor) {
+        return MCEngineArtificialIntelligenceApiUtilAi.getAi(PLATFORM, names[cursor.next(models)]);
+    }
+
+    @Benchmark
+    public IMCEngineArtificialIntelligenceApiModel synchronizedLookup(Cursor cursor) {
+        String model = names[cursor.next(models)];
+        synchronized (lockedCache) {
+            Map<String, IMCEngineArtificialIntelligenceApiModel> platformMap = lockedCache.get(PLATFORM);
+            return platformMap != null ? platformMap.get(model) : null;
+        }
+    }
+
+    /**
+     * Per-thread position in the model list, so threads spread over all models.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int position;
+
+        int next(int bound) {
+            position = position + 1 == bound ? 0 : position + 1;
+            return position;
+        }
+    }
+
+    /**
+     * Model that is only looked up, never called.
+     */
+    private static class StubModel implements IMCEngineArtificialIntelligenceApiModel {
+
+        @Override
+        public JsonObject getResponse(String systemPrompt, String message) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public JsonObject getResponse(String token, String systemPrompt, String message) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
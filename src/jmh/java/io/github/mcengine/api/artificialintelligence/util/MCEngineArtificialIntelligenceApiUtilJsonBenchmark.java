@@ -0,0 +1,80 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import com.google.gson.JsonParser;
+import io.github.mcengine.api.artificialintelligence.response.MCEngineArtificialIntelligenceApiResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing a chat completion body into a string and a JSON tree, as responses were read before,
+ * with the streaming parse of {@link MCEngineArtificialIntelligenceApiUtilJson}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MCEngineArtificialIntelligenceApiUtilJsonBenchmark {
+
+    /** Number of generated tokens in the reply; each gets a logprobs entry when {@link #logprobs} is set. */
+    @Param({"50", "500"})
+    public int tokens;
+
+    /** Whether the body carries per-token logprobs, which the streaming parse skips. */
+    @Param({"false", "true"})
+    public boolean logprobs;
+
+    /** The response body as received. */
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        StringBuilder content = new StringBuilder();
+        StringBuilder entries = new StringBuilder();
+        for (int i = 0; i < tokens; i++) {
+            content.append("word").append(i).append(' ');
+            if (i > 0) {
+                entries.append(',');
+            }
+            entries.append("{\"token\":\"word").append(i).append(" \",\"logprob\":-0.").append(1000 + i)
+                    .append(",\"bytes\":[119,111,114,100],\"top_logprobs\":[]}");
+        }
+        String json = "{\"id\":\"chatcmpl-123\",\"object\":\"chat.completion\",\"created\":1700000000,"
+                + "\"model\":\"gpt-4o-mini\",\"system_fingerprint\":\"fp_1\",\"choices\":[{\"index\":0,"
+                + "\"message\":{\"role\":\"assistant\",\"content\":\"" + content + "\",\"refusal\":null},"
+                + (logprobs ? "\"logprobs\":{\"content\":[" + entries + "]}," : "\"logprobs\":null,")
+                + "\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":120,\"completion_tokens\":" + tokens
+                + ",\"total_tokens\":" + (120 + tokens) + ",\"prompt_tokens_details\":{\"cached_tokens\":64}}}";
+        body = json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public MCEngineArtificialIntelligenceApiResponse treeParse() {
+        String text = new String(body, StandardCharsets.UTF_8);
+        return MCEngineArtificialIntelligenceApiResponse.fromJson(JsonParser.parseString(text).getAsJsonObject());
+    }
+
+    @Benchmark
+    public MCEngineArtificialIntelligenceApiResponse streamingParse() throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8)) {
+            return MCEngineArtificialIntelligenceApiUtilJson.parse(reader);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The player-token crypto hot path: a fresh {@link Cipher} and key per call, as the token util worked
+ * before, against the reused per-thread ciphers and the decrypted-token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MCEngineArtificialIntelligenceApiUtilTokenBenchmark {
+
+    /** The 16-character AES-128 key. */
+    private static final String SECRET_KEY = "0123456789abcdef";
+
+    /** A provider token of typical length. */
+    private static final String TOKEN = "sk-proj-" + "x".repeat(156);
+
+    /** Number of distinct ciphertexts the uncached decryptions cycle through; the cache holds one. */
+    private static final int DISTINCT = 1024;
+
+    /** Ciphertext format written by {@code encryptToken}. */
+    @Param({"cbc", "gcm"})
+    public String cipher;
+
+    /** Ciphertexts of {@link #TOKEN}, all different because each has its own IV. */
+    private String[] ciphertexts;
+
+    /** A CBC ciphertext for the pre-cache decryption path. */
+    private String cbcCiphertext;
+
+    /** Position in {@link #ciphertexts}. */
+    private int position;
+
+    @Setup
+    public void setUp() throws Exception {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("token.secretKey", SECRET_KEY);
+        config.set("token.cipher", cipher);
+        config.set("token.cache.max-entries", 1);
+        Logger logger = Logger.getLogger("MCEngineArtificialIntelligenceApiUtilTokenBenchmark");
+        Plugin plugin = (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[]{Plugin.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getConfig":
+                            return config;
+                        case "getLogger":
+                            return logger;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+        MCEngineArtificialIntelligenceApiUtilToken.initialize(plugin);
+
+        ciphertexts = new String[DISTINCT];
+        for (int i = 0; i < DISTINCT; i++) {
+            ciphertexts[i] = MCEngineArtificialIntelligenceApiUtilToken.encryptToken(TOKEN);
+        }
+        cbcCiphertext = encryptWithNewCipher();
+    }
+
+    @TearDown
+    public void tearDown() {
+        MCEngineArtificialIntelligenceApiUtilToken.clearCache();
+    }
+
+    /**
+     * Decryption as it ran before: Base64 decode, a new key and a {@code Cipher.getInstance} per call.
+     */
+    @Benchmark
+    public String decryptWithNewCipher() throws Exception {
+        byte[] combined = Base64.getDecoder().decode(cbcCiphertext);
+        SecretKeySpec key = new SecretKeySpec(SECRET_KEY.getBytes(StandardCharsets.UTF_8), "AES");
+        Cipher instance = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        instance.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(combined, 0, 16));
+        return new String(instance.doFinal(combined, 16, combined.length - 16), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decryption that misses the cache and runs the reused per-thread cipher.
+     */
+    @Benchmark
+    public String decryptUncached() {
+        position = position + 1 == DISTINCT ? 0 : position + 1;
+        return MCEngineArtificialIntelligenceApiUtilToken.decryptToken(ciphertexts[position]);
+    }
+
+    /**
+     * Decryption answered from the cache.
+     */
+    @Benchmark
+    public String decryptCached() {
+        return MCEngineArtificialIntelligenceApiUtilToken.decryptToken(ciphertexts[0]);
+    }
+
+    /**
+     * Encryption as it ran before: a new {@link SecureRandom}, key and cipher per call.
+     */
+    @Benchmark
+    public String encryptWithNewCipher() throws Exception {
+        byte[] iv = new byte[16];
+        new SecureRandom().nextBytes(iv);
+        SecretKeySpec key = new SecretKeySpec(SECRET_KEY.getBytes(StandardCharsets.UTF_8), "AES");
+        Cipher instance = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        instance.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(iv));
+        byte[] encrypted = instance.doFinal(TOKEN.getBytes(StandardCharsets.UTF_8));
+        byte[] combined = new byte[iv.length + encrypted.length];
+        System.arraycopy(iv, 0, combined, 0, iv.length);
+        System.arraycopy(encrypted, 0, combined, iv.length, encrypted.length);
+        return Base64.getEncoder().encodeToString(combined);
+    }
+
+    /**
+     * Encryption with the shared random source and the reused per-thread cipher.
+     */
+    @Benchmark
+    public String encrypt() {
+        return MCEngineArtificialIntelligenceApiUtilToken.encryptToken(TOKEN);
+    }
+}
@@ -4,14 +4,42 @@ import com.google.gson.JsonObject;
 import io.github.mcengine.api.artificialintelligence.database.IMCEngineArtificialIntelligenceDB;
 import io.github.mcengine.api.artificialintelligence.function.calling.FunctionCallingLoader;
 import io.github.mcengine.api.artificialintelligence.model.IMCEngineArtificialIntelligenceApiModel;
+import io.github.mcengine.api.artificialintelligence.model.IMCEngineArtificialIntelligenceApiModelProvider;
+import io.github.mcengine.api.artificialintelligence.response.MCEngineArtificialIntelligenceApiResponse;
 import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilAi;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilBalancer;
 import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilBotManager;
 import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilBotTask;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilCache;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilCircuitBreaker;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilCompactor;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilConversation;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilDelivery;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilHedge;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilHttp;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilIdleEvictor;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilLimiter;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilProvider;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilRetry;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilScheduler;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilSession;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilSessionListener;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilSessionStore;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilShutdown;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilSingleFlight;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilStream;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilToken;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilTokenCache;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilTokenizer;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilUsage;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
@@ -73,6 +101,36 @@ public class MCEngineArtificialIntelligenceApi {
         MCEngineArtificialIntelligenceApiUtilAi.registerModel(plugin, platform, model);
     }
 
+    /**
+     * Registers a provider for an AI platform so its models can be registered with
+     * {@link #registerModel(Plugin, String, String)}. Replaces any provider of the same platform.
+     *
+     * @param provider The platform provider.
+     * @return The replaced provider, or {@code null} if the platform was new.
+     */
+    public IMCEngineArtificialIntelligenceApiModelProvider registerProvider(IMCEngineArtificialIntelligenceApiModelProvider provider) {
+        return MCEngineArtificialIntelligenceApiUtilProvider.register(provider);
+    }
+
+    /**
+     * Removes the provider of an AI platform. Models it already created stay registered.
+     *
+     * @param platform The platform name.
+     * @return The removed provider, or {@code null} if none was registered.
+     */
+    public IMCEngineArtificialIntelligenceApiModelProvider unregisterProvider(String platform) {
+        return MCEngineArtificialIntelligenceApiUtilProvider.unregister(platform);
+    }
+
+    /**
+     * Returns the names of all platforms that models can be registered for.
+     *
+     * @return Sorted platform names.
+     */
+    public Set<String> getPlatforms() {
+        return MCEngineArtificialIntelligenceApiUtilProvider.getPlatforms();
+    }
+
     /**
      * Retrieves an AI model instance by platform and model name.
      *
@@ -97,6 +155,7 @@ public class MCEngineArtificialIntelligenceApi {
 
     /**
      * Sends a prompt to the specified model and receives a raw JSON response.
+     * If a hedge policy is configured for the model, a slow or failed reply is backed up by its secondary model.
      *
      * @param platform     The AI platform name.
      * @param model        The model name.
@@ -105,7 +164,7 @@ public class MCEngineArtificialIntelligenceApi {
      * @return A {@link JsonObject} representing the full JSON response.
      */
     public JsonObject getResponse(String platform, String model, String systemPrompt, String message) {
-        return getAi(platform, model).getResponse(systemPrompt, message);
+        return getResponseAsync(platform, model, systemPrompt, message).join();
     }
 
     /**
@@ -122,8 +181,292 @@ public class MCEngineArtificialIntelligenceApi {
         return getAi(platform, model).getResponse(token, systemPrompt, message);
     }
 
+    /**
+     * Sends a prompt to the specified model without blocking the calling thread.
+     * If a hedge policy is configured for the model, a slow or failed reply is backed up by its secondary model.
+     *
+     * @param platform     The AI platform name.
+     * @param model        The model name.
+     * @param systemPrompt The system prompt providing context or behavior instructions.
+     * @param message      The message to send.
+     * @return A future completed with the full JSON response.
+     */
+    public CompletableFuture<JsonObject> getResponseAsync(String platform, String model, String systemPrompt, String message) {
+        return getChatResponseAsync(platform, model, systemPrompt, message).thenApply(MCEngineArtificialIntelligenceApiResponse::toJson);
+    }
+
+    /**
+     * Sends a prompt to the specified model using a custom token without blocking the calling thread.
+     *
+     * @param platform     The AI platform name.
+     * @param model        The model name.
+     * @param token        The token to authorize the request.
+     * @param systemPrompt The system prompt providing context or behavior instructions.
+     * @param message      The prompt to send to the AI.
+     * @return A future completed with the full JSON response.
+     */
+    public CompletableFuture<JsonObject> getResponseAsync(String platform, String model, String token, String systemPrompt, String message) {
+        return getAi(platform, model).getResponseAsync(token, systemPrompt, message);
+    }
+
+    /**
+     * Sends a prompt to the specified model without blocking the calling thread and returns the typed response,
+     * which is parsed straight from the HTTP body.
+     * If a hedge policy is configured for the model, a slow or failed reply is backed up by its secondary model.
+     *
+     * @param platform     The AI platform name.
+     * @param model        The model name.
+     * @param systemPrompt The system prompt providing context or behavior instructions.
+     * @param message      The message to send.
+     * @return A future completed with the typed response.
+     */
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(String platform, String model, String systemPrompt, String message) {
+        return MCEngineArtificialIntelligenceApiUtilHedge.getChatResponseAsync(platform, model, systemPrompt, message);
+    }
+
+    /**
+     * Sends a prompt to the specified model using a custom token without blocking the calling thread
+     * and returns the typed response.
+     *
+     * @param platform     The AI platform name.
+     * @param model        The model name.
+     * @param token        The token to authorize the request.
+     * @param systemPrompt The system prompt providing context or behavior instructions.
+     * @param message      The prompt to send to the AI.
+     * @return A future completed with the typed response.
+     */
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(String platform, String model, String token, String systemPrompt, String message) {
+        return getAi(platform, model).getChatResponseAsync(token, systemPrompt, message);
+    }
+
+    /**
+     * Streams a reply from the specified model, passing partial text to {@code onChunk} in sentence-sized
+     * pieces as it is generated. The consumer runs off the main thread.
+     *
+     * @param platform     The AI platform name.
+     * @param model        The model name.
+     * @param systemPrompt The system prompt providing context or behavior instructions.
+     * @param message      The message to send.
+     * @param onChunk      Receives partial reply text.
+     * @return A future completed with the full JSON response once the stream ends.
+     */
+    public CompletableFuture<JsonObject> getResponseStream(String platform, String model, String systemPrompt, String message, Consumer<String> onChunk) {
+        return getAi(platform, model).getResponseStream(systemPrompt, message, onChunk);
+    }
+
+    /**
+     * Streams a reply from the specified model using a custom token, passing partial text to {@code onChunk}
+     * in sentence-sized pieces as it is generated. The consumer runs off the main thread.
+     *
+     * @param platform     The AI platform name.
+     * @param model        The model name.
+     * @param token        The token to authorize the request.
+     * @param systemPrompt The system prompt providing context or behavior instructions.
+     * @param message      The prompt to send to the AI.
+     * @param onChunk      Receives partial reply text.
+     * @return A future completed with the full JSON response once the stream ends.
+     */
+    public CompletableFuture<JsonObject> getResponseStream(String platform, String model, String token, String systemPrompt, String message, Consumer<String> onChunk) {
+        return getAi(platform, model).getResponseStream(token, systemPrompt, message, onChunk);
+    }
+
+    /**
+     * Streams a reply from the specified model like {@link #getResponseStream(String, String, String, String, Consumer)}
+     * and returns the typed response once the stream ends.
+     *
+     * @param platform     The AI platform name.
+     * @param model        The model name.
+     * @param systemPrompt The system prompt providing context or behavior instructions.
+     * @param message      The message to send.
+     * @param onChunk      Receives partial reply text.
+     * @return A future completed with the typed response once the stream ends.
+     */
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(String platform, String model, String systemPrompt, String message, Consumer<String> onChunk) {
+        return getAi(platform, model).getChatResponseStream(systemPrompt, message, onChunk);
+    }
+
+    /**
+     * Streams a reply from the specified model using a custom token like
+     * {@link #getResponseStream(String, String, String, String, String, Consumer)} and returns the typed response
+     * once the stream ends.
+     *
+     * @param platform     The AI platform name.
+     * @param model        The model name.
+     * @param token        The token to authorize the request.
+     * @param systemPrompt The system prompt providing context or behavior instructions.
+     * @param message      The prompt to send to the AI.
+     * @param onChunk      Receives partial reply text.
+     * @return A future completed with the typed response once the stream ends.
+     */
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(String platform, String model, String token, String systemPrompt, String message, Consumer<String> onChunk) {
+        return getAi(platform, model).getChatResponseStream(token, systemPrompt, message, onChunk);
+    }
+
+    /**
+     * Sends a conversation to the specified model using the server token without blocking the calling thread.
+     * The system prompt, the earlier turns and the new message are sent as separate role-tagged messages, so
+     * requests of a growing conversation share a stable prefix that providers can serve from their prompt
+     * cache (see {@link MCEngineArtificialIntelligenceApiResponse#getCachedTokens()}).
+     *
+     * @param platform     The AI platform name.
+     * @param model        The model name.
+     * @param systemPrompt The system prompt; should not change between turns.
+     * @param history      Earlier turns of the conversation, oldest first.
+     * @param message      The prompt to send to the AI.
+     * @return A future completed with the typed response.
+     */
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(String platform, String model, String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message) {
+        return MCEngineArtificialIntelligenceApiUtilHedge.getChatResponseAsync(platform, model, systemPrompt, history, message);
+    }
+
+    /**
+     * Sends a conversation to the specified model using a custom token without blocking the calling thread.
+     *
+     * @param platform     The AI platform name.
+     * @param model        The model name.
+     * @param token        The token to authorize the request.
+     * @param systemPrompt The system prompt; should not change between turns.
+     * @param history      Earlier turns of the conversation, oldest first.
+     * @param message      The prompt to send to the AI.
+     * @return A future completed with the typed response.
+     */
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(String platform, String model, String token, String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message) {
+        return getAi(platform, model).getChatResponseAsync(token, systemPrompt, history, message);
+    }
+
+    /**
+     * Streams the reply to a conversation from the specified model using the server token.
+     * The consumer runs off the main thread.
+     *
+     * @param platform     The AI platform name.
+     * @param model        The model name.
+     * @param systemPrompt The system prompt; should not change between turns.
+     * @param history      Earlier turns of the conversation, oldest first.
+     * @param message      The prompt to send to the AI.
+     * @param onChunk      Receives partial reply text.
+     * @return A future completed with the typed response once the stream ends.
+     */
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(String platform, String model, String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message, Consumer<String> onChunk) {
+        return getAi(platform, model).getChatResponseStream(systemPrompt, history, message, onChunk);
+    }
+
+    /**
+     * Streams the reply to a conversation from the specified model using a custom token.
+     * The consumer runs off the main thread.
+     *
+     * @param platform     The AI platform name.
+     * @param model        The model name.
+     * @param token        The token to authorize the request.
+     * @param systemPrompt The system prompt; should not change between turns.
+     * @param history      Earlier turns of the conversation, oldest first.
+     * @param message      The prompt to send to the AI.
+     * @param onChunk      Receives partial reply text.
+     * @return A future completed with the typed response once the stream ends.
+     */
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(String platform, String model, String token, String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message, Consumer<String> onChunk) {
+        return getAi(platform, model).getChatResponseStream(token, systemPrompt, history, message, onChunk);
+    }
+
+    /**
+     * Returns time-to-first-token statistics of streamed replies.
+     *
+     * @return A map of platform key → counter name ({@code count}, {@code lastMillis}, {@code avgMillis},
+     *         {@code maxMillis}) → value.
+     */
+    public Map<String, Map<String, Long>> getTimeToFirstTokenStats() {
+        return MCEngineArtificialIntelligenceApiUtilStream.getTimeToFirstTokenStats();
+    }
+
+    /**
+     * Returns statistics of the decrypted player token cache.
+     *
+     * @return Map with {@code hits}, {@code misses} and {@code size}.
+     */
+    public Map<String, Long> getTokenCacheStats() {
+        return MCEngineArtificialIntelligenceApiUtilToken.getStats();
+    }
+
+    /**
+     * Returns statistics of the exact-match response cache.
+     *
+     * @return A map with {@code hits}, {@code misses}, {@code evictions}, {@code expirations} and {@code size}.
+     */
+    public Map<String, Long> getCacheStats() {
+        return MCEngineArtificialIntelligenceApiUtilCache.getStats();
+    }
+
+    /**
+     * Returns how many requests were served by joining an identical in-flight request
+     * instead of making their own upstream call.
+     *
+     * @return The number of coalesced requests.
+     */
+    public long getCoalescedRequestCount() {
+        return MCEngineArtificialIntelligenceApiUtilSingleFlight.getCoalescedCount();
+    }
+
+    /**
+     * Returns the state of the per platform/model rate and concurrency limiters.
+     *
+     * @return A map of {@code platform:model} → counter name ({@code limit}, {@code inFlight}, {@code waiting},
+     *         {@code queued}, {@code rejected}, {@code throttled}) → value.
+     */
+    public Map<String, Map<String, Long>> getLimiterStats() {
+        return MCEngineArtificialIntelligenceApiUtilLimiter.getStats();
+    }
+
+    /**
+     * Returns the state and counters of the per-endpoint circuit breakers.
+     *
+     * @return A map of endpoint URL → {@code state} ({@code CLOSED}, {@code OPEN}, {@code HALF_OPEN}) and counters.
+     */
+    public Map<String, Map<String, Object>> getCircuitBreakerStats() {
+        return MCEngineArtificialIntelligenceApiUtilCircuitBreaker.getStats();
+    }
+
+    /**
+     * Returns retry counters of AI calls.
+     *
+     * @return A map with {@code retries}, {@code recovered}, {@code exhausted} and {@code shortCircuited}.
+     */
+    public Map<String, Long> getRetryStats() {
+        return MCEngineArtificialIntelligenceApiUtilRetry.getStats();
+    }
+
+    /**
+     * Returns the state of every backend of platforms that balance across several backends.
+     *
+     * @return A map of platform key → backend URL → counter name ({@code weight}, {@code outstanding},
+     *         {@code requests}, {@code failures}, {@code ejections}, {@code ejected}) → value.
+     */
+    public Map<String, Map<String, Map<String, Long>>> getBackendStats() {
+        return MCEngineArtificialIntelligenceApiUtilBalancer.getStats();
+    }
+
+    /**
+     * Returns hedging statistics per model.
+     *
+     * @return A map of {@code platform:model} → counter name ({@code requests}, {@code hedged}, {@code wins},
+     *         {@code p50Millis}, {@code p95Millis}) → value.
+     */
+    public Map<String, Map<String, Long>> getHedgeStats() {
+        return MCEngineArtificialIntelligenceApiUtilHedge.getStats();
+    }
+
+    /**
+     * Returns connection statistics of the shared HTTP pools used by all model providers.
+     *
+     * @return A map of platform key → counter name ({@code inFlight}, {@code poolSize}, {@code queued}) → value.
+     */
+    public Map<String, Map<String, Long>> getHttpStats() {
+        return MCEngineArtificialIntelligenceApiUtilHttp.getStats();
+    }
+
     /**
      * Executes an AI bot task asynchronously with the given input.
+     * The task runs on the dedicated AI scheduler rather than the shared Bukkit async pool, queued fairly
+     * behind other players' tasks when the scheduler is at its concurrency cap; when the scheduler is
+     * saturated the player is told to try again. See {@link MCEngineArtificialIntelligenceApiUtilScheduler}.
      *
      * @param plugin    The Bukkit plugin instance.
      * @param db        The database interface used to store AI data.
@@ -134,8 +477,164 @@ public class MCEngineArtificialIntelligenceApi {
      * @param message   The prompt to send to the AI.
      */
     public void runBotTask(Plugin plugin, IMCEngineArtificialIntelligenceDB db, Player player, String tokenType, String platform, String model, String message) {
+        if (!MCEngineArtificialIntelligenceApiUtilScheduler.isInitialized()) {
+            MCEngineArtificialIntelligenceApiUtilScheduler.initialize(plugin);
+        }
         new MCEngineArtificialIntelligenceApiUtilBotTask(plugin, this, db, tokenType, player, platform, model, message)
-                .runTaskAsynchronously(plugin);
+                .submit();
+    }
+
+    /**
+     * Returns AI scheduler statistics.
+     *
+     * @return Map with {@code running}, {@code queued}, {@code queued.<lane>} per priority lane, {@code maxQueued},
+     *         {@code submitted}, {@code completed}, {@code shed} and {@code avgWaitMillis}.
+     */
+    public Map<String, Long> getSchedulerStats() {
+        return MCEngineArtificialIntelligenceApiUtilScheduler.getStats();
+    }
+
+    /**
+     * Returns statistics of the main-thread delivery of AI replies.
+     *
+     * @return Map with {@code pending}, {@code delivered}, {@code failures}, {@code ticks}, {@code deferredTicks}
+     *         and the per-tick drain time as {@code lastDrainMicros}, {@code avgDrainMicros} and {@code maxDrainMicros}.
+     */
+    public Map<String, Long> getDeliveryStats() {
+        return MCEngineArtificialIntelligenceApiUtilDelivery.getStats();
+    }
+
+    /**
+     * Looks up a player's encrypted token through the token cache, loading it from the database on first use.
+     *
+     * @param db       The database containing player tokens.
+     * @param player   The player.
+     * @param platform The platform name.
+     * @return A future completed with the encrypted token, or with {@code null} if the player has none.
+     */
+    public CompletableFuture<String> getPlayerTokenAsync(IMCEngineArtificialIntelligenceDB db, Player player, String platform) {
+        return MCEngineArtificialIntelligenceApiUtilTokenCache.get(db, player.getUniqueId().toString(), platform);
+    }
+
+    /**
+     * Stores a player's encrypted token in the token cache and writes it through to the database.
+     *
+     * @param db       The database containing player tokens.
+     * @param player   The player.
+     * @param platform The platform name.
+     * @param token    The encrypted token.
+     * @return A future completed once the token has been persisted.
+     */
+    public CompletableFuture<Void> setPlayerTokenAsync(IMCEngineArtificialIntelligenceDB db, Player player, String platform, String token) {
+        return MCEngineArtificialIntelligenceApiUtilTokenCache.set(db, player.getUniqueId().toString(), platform, token);
+    }
+
+    /**
+     * Loads a player's tokens for all registered platforms in the background.
+     * Call this when the player joins so their first message is answered from memory.
+     *
+     * @param db     The database containing player tokens.
+     * @param player The player.
+     */
+    public void preloadPlayerTokens(IMCEngineArtificialIntelligenceDB db, Player player) {
+        MCEngineArtificialIntelligenceApiUtilTokenCache.preload(db, player.getUniqueId().toString());
+    }
+
+    /**
+     * Drops a player's cached tokens, both stored and decrypted. Call this when the player quits.
+     *
+     * @param player The player.
+     */
+    public void evictPlayerTokens(Player player) {
+        MCEngineArtificialIntelligenceApiUtilTokenCache.evict(player.getUniqueId().toString());
+        MCEngineArtificialIntelligenceApiUtilToken.evict(player.getUniqueId());
+    }
+
+    /**
+     * Returns statistics of the player token cache and the database loads behind it.
+     *
+     * @return Map with {@code hits}, {@code misses}, {@code loadFailures}, {@code writes},
+     *         {@code avgLoadMillis}, {@code maxLoadMillis} and {@code players}.
+     */
+    public Map<String, Long> getTokenDatabaseStats() {
+        return MCEngineArtificialIntelligenceApiUtilTokenCache.getStats();
+    }
+
+    /**
+     * Returns the tokens a player has used today, as recorded by the usage ledger.
+     *
+     * @param player The player.
+     * @return Prompt plus completion tokens used today.
+     */
+    public long getTokensUsedToday(Player player) {
+        return MCEngineArtificialIntelligenceApiUtilUsage.getUsedToday(player.getUniqueId().toString());
+    }
+
+    /**
+     * Returns statistics of the token usage ledger.
+     *
+     * @return Map with {@code pending}, {@code flushed}, {@code flushFailures} and {@code refused}.
+     */
+    public Map<String, Long> getUsageStats() {
+        return MCEngineArtificialIntelligenceApiUtilUsage.getStats();
+    }
+
+    /**
+     * Writes outstanding token usage to the database and stops the periodic flush.
+     * Call this when the plugin is disabled, before closing the database.
+     */
+    public void stopUsageLedger() {
+        MCEngineArtificialIntelligenceApiUtilUsage.stop();
+    }
+
+    /**
+     * Estimates the token count of a text without calling a provider.
+     *
+     * @param text The text.
+     * @return Estimated tokens.
+     */
+    public int estimateTokens(String text) {
+        return MCEngineArtificialIntelligenceApiUtilTokenizer.estimate(text);
+    }
+
+    /**
+     * Returns prompt estimation and context trimming statistics.
+     *
+     * @return A map of {@code platform:model} → counter name ({@code samples}, {@code ratioPermille},
+     *         {@code avgErrorPercent}, {@code trimmed}, {@code droppedTurns}, {@code rejected}) → value.
+     */
+    public Map<String, Map<String, Long>> getTokenEstimatorStats() {
+        return MCEngineArtificialIntelligenceApiUtilTokenizer.getStats();
+    }
+
+    /**
+     * Returns a player's bounded conversation history, starting one if needed.
+     *
+     * @param player The player.
+     * @return The conversation.
+     */
+    public MCEngineArtificialIntelligenceApiUtilConversation getConversation(Player player) {
+        return MCEngineArtificialIntelligenceApiUtilBotManager.getConversation(player);
+    }
+
+    /**
+     * Returns the estimated prompt tokens that background compaction has saved in a player's session.
+     *
+     * @param player The player.
+     * @return Estimated tokens saved per request, summed over all compactions of the session.
+     */
+    public long getTokensSavedByCompaction(Player player) {
+        return MCEngineArtificialIntelligenceApiUtilCompactor.getTokensSaved(player.getUniqueId());
+    }
+
+    /**
+     * Returns conversation compaction statistics.
+     *
+     * @return Map with {@code compactions}, {@code discarded}, {@code failures}, {@code running},
+     *         {@code tokensSaved} and {@code summaryTokens}.
+     */
+    public Map<String, Long> getCompactionStats() {
+        return MCEngineArtificialIntelligenceApiUtilCompactor.getStats();
     }
 
     /**
@@ -158,6 +657,56 @@ public class MCEngineArtificialIntelligenceApi {
         return MCEngineArtificialIntelligenceApiUtilBotManager.isWaiting(player);
     }
 
+    /**
+     * Returns a player's session, creating it if needed.
+     *
+     * @param player The player.
+     * @return The session holding the player's conversation, request state, platform and model.
+     */
+    public MCEngineArtificialIntelligenceApiUtilSession getSession(Player player) {
+        return MCEngineArtificialIntelligenceApiUtilBotManager.getSession(player);
+    }
+
+    /**
+     * Returns idle session eviction statistics.
+     *
+     * @return Map with {@code tracked}, {@code evicted} and {@code rescheduled}.
+     */
+    public Map<String, Long> getIdleEvictionStats() {
+        return MCEngineArtificialIntelligenceApiUtilIdleEvictor.getStats();
+    }
+
+    /**
+     * Returns statistics of conversations spilled to and restored from disk.
+     *
+     * @return Map with {@code spilled}, {@code restored}, {@code expired} and {@code failures}.
+     */
+    public Map<String, Long> getSessionStoreStats() {
+        return MCEngineArtificialIntelligenceApiUtilSessionStore.getStats();
+    }
+
+    /**
+     * Registers a listener that creates player sessions on join and drops them on quit, and that calls
+     * {@link #shutdown()} when the plugin is disabled.
+     * Call this once when the plugin is enabled.
+     *
+     * @param plugin The Bukkit plugin instance.
+     * @param db     Token database to preload player tokens from on join, or {@code null} for none.
+     */
+    public void registerSessionListener(Plugin plugin, IMCEngineArtificialIntelligenceDB db) {
+        plugin.getServer().getPluginManager().registerEvents(new MCEngineArtificialIntelligenceApiUtilSessionListener(plugin, db), plugin);
+    }
+
+    /**
+     * Stops all background work of the API: ends every session, writes out spilled sessions and token usage,
+     * stops every background thread and drops the pooled HTTP clients. Everything starts again on next use.
+     * Runs automatically on disable when {@link #registerSessionListener} was used; otherwise call it from
+     * the plugin's {@code onDisable}, before closing the token database.
+     */
+    public void shutdown() {
+        MCEngineArtificialIntelligenceApiUtilShutdown.shutdown();
+    }
+
     /**
      * Extracts the response content from a full JSON object returned by the AI API.
      *
@@ -177,4 +726,14 @@ public class MCEngineArtificialIntelligenceApi {
     public int getTotalTokenUsage(JsonObject responseJson) {
         return MCEngineArtificialIntelligenceApiUtilAi.getTotalTokenUsage(responseJson);
     }
+
+    /**
+     * Extracts the response content from a typed response.
+     *
+     * @param response The typed response.
+     * @return The message content as plain text, or fallback string if there is none.
+     */
+    public String getCompletionContent(MCEngineArtificialIntelligenceApiResponse response) {
+        return MCEngineArtificialIntelligenceApiUtilAi.getCompletionContent(response);
+    }
 }
@@ -1,12 +1,43 @@
 package io.github.mcengine.api.artificialintelligence.database;
 
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilTokenCache;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilUsage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
 /**
  * Interface for AI API database operations related to storing and retrieving user tokens.
  * <p>
  * Implementations may be SQL (e.g., MySQL, PostgreSQL, SQLite) or NoSQL; the contract
  * therefore includes generic query helpers in addition to typed token operations.
+ * <p>
+ * Besides the raw-string helpers, backends may support parameterized statements, where values are bound
+ * to {@code ?} placeholders instead of being concatenated into the query, batches of such statements and
+ * multi-row results. These are default methods so existing implementations keep compiling and loading;
+ * a backend implementing them advertises it through {@link #supportsParameterizedStatements()}, and the
+ * defaults throw {@link UnsupportedOperationException}.
+ * {@link io.github.mcengine.api.artificialintelligence.database.sqlite.MCEngineArtificialIntelligenceApiDBSQLite}
+ * is a reference implementation.
  */
-public interface IMCEngineArtificialIntelligenceDB {
+public interface IMCEngineArtificialIntelligenceDB extends AutoCloseable {
+
+    /**
+     * Opens the backend's connections (for SQL backends typically a connection pool) and prepares the schema.
+     * Called once before first use, e.g. from the plugin's {@code onEnable}. The default does nothing.
+     */
+    default void open() {
+    }
+
+    /**
+     * Releases the backend's connections. Called when the plugin is disabled; the backend must not be used
+     * afterwards. The default does nothing.
+     */
+    @Override
+    default void close() {
+    }
 
     /**
      * Executes a backend-specific non-returning command (DDL/DML).
@@ -30,6 +61,81 @@ public interface IMCEngineArtificialIntelligenceDB {
      */
     <T> T getValue(String query, Class<T> type);
 
+    /**
+     * Tells whether the backend implements {@link #execute(String, Object...)},
+     * {@link #getValue(String, Class, Object...)} and {@link #query(String, Function, Object...)}.
+     * Callers check it before using them. The default is {@code false}.
+     *
+     * @return {@code true} if parameterized statements and multi-row queries are supported
+     */
+    default boolean supportsParameterizedStatements() {
+        return false;
+    }
+
+    /**
+     * Executes a non-returning command with values bound to its placeholders.
+     *
+     * @param query  command with {@code ?} placeholders
+     * @param params values bound to the placeholders in order
+     * @return number of affected rows, or {@code -1} if the backend does not report it
+     * @throws UnsupportedOperationException if {@link #supportsParameterizedStatements()} is {@code false}
+     */
+    default int execute(String query, Object... params) {
+        throw new UnsupportedOperationException("Parameterized statements are not supported by " + getClass().getName());
+    }
+
+    /**
+     * Executes one command once per parameter set, in a single round trip where the backend allows it.
+     * <p>
+     * The default implementation calls {@link #execute(String, Object...)} for each set.
+     *
+     * @param query     command with {@code ?} placeholders
+     * @param paramSets values for each execution
+     * @return number of affected rows per execution
+     * @throws UnsupportedOperationException if {@link #supportsParameterizedStatements()} is {@code false}
+     */
+    default int[] executeBatch(String query, List<Object[]> paramSets) {
+        int[] counts = new int[paramSets.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = execute(query, paramSets.get(i));
+        }
+        return counts;
+    }
+
+    /**
+     * Executes a query with bound values that returns a single scalar value (one row, one column).
+     *
+     * @param query  query with {@code ?} placeholders
+     * @param type   expected Java type of the single result
+     * @param params values bound to the placeholders in order
+     * @param <T>    generic result type
+     * @return value if present; otherwise {@code null}
+     * @throws IllegalArgumentException      if {@code type} is unsupported by the implementation
+     * @throws UnsupportedOperationException if parameters are given and
+     *                                       {@link #supportsParameterizedStatements()} is {@code false}
+     */
+    default <T> T getValue(String query, Class<T> type, Object... params) {
+        if (params.length == 0) {
+            return getValue(query, type);
+        }
+        throw new UnsupportedOperationException("Parameterized statements are not supported by " + getClass().getName());
+    }
+
+    /**
+     * Executes a query with bound values and maps every returned row.
+     * Each row is passed to {@code mapper} as a map of column label to value, in column order.
+     *
+     * @param query  query with {@code ?} placeholders
+     * @param mapper converts one row
+     * @param params values bound to the placeholders in order
+     * @param <T>    mapped row type
+     * @return mapped rows in result order; empty if there are none
+     * @throws UnsupportedOperationException if {@link #supportsParameterizedStatements()} is {@code false}
+     */
+    default <T> List<T> query(String query, Function<Map<String, Object>, T> mapper, Object... params) {
+        throw new UnsupportedOperationException("Multi-row queries are not supported by " + getClass().getName());
+    }
+
     /**
      * Sets or updates the token for a given player UUID.
      *
@@ -47,4 +153,71 @@ public interface IMCEngineArtificialIntelligenceDB {
      * @return The token for the player, or {@code null} if not found.
      */
     String getPlayerToken(String playerUuid, String platform);
+
+    /**
+     * Retrieves a player's token without blocking the caller.
+     * <p>
+     * The default implementation runs {@link #getPlayerToken(String, String)} on the shared database
+     * executor; implementations with a native asynchronous driver may override it.
+     *
+     * @param playerUuid The UUID of the player.
+     * @param platform   The platform name.
+     * @return A future completed with the token, or with {@code null} if not found.
+     */
+    default CompletableFuture<String> getPlayerTokenAsync(String playerUuid, String platform) {
+        return CompletableFuture.supplyAsync(() -> getPlayerToken(playerUuid, platform),
+                MCEngineArtificialIntelligenceApiUtilTokenCache.getExecutor());
+    }
+
+    /**
+     * Sets or updates a player's token without blocking the caller.
+     * <p>
+     * The default implementation runs {@link #setPlayerToken(String, String, String)} on the shared
+     * database executor; implementations with a native asynchronous driver may override it.
+     *
+     * @param playerUuid The UUID of the player.
+     * @param platform   The platform name.
+     * @param token      The token to associate with the player.
+     * @return A future completed once the token is stored.
+     */
+    default CompletableFuture<Void> setPlayerTokenAsync(String playerUuid, String platform, String token) {
+        return CompletableFuture.runAsync(() -> setPlayerToken(playerUuid, platform, token),
+                MCEngineArtificialIntelligenceApiUtilTokenCache.getExecutor());
+    }
+
+    /**
+     * Tells whether the backend stores token usage, i.e. implements {@link #saveTokenUsage(List)} and
+     * {@link #getTokenUsage(String, String)}. The usage ledger never calls them when this is {@code false}.
+     * The default is {@code false}.
+     *
+     * @return {@code true} if token usage is stored
+     */
+    default boolean supportsTokenUsage() {
+        return false;
+    }
+
+    /**
+     * Adds a batch of token usage to the stored ledger. Each record holds increments for one day, subject
+     * (player UUID or {@code group:<name>}), platform and model, to be added to any existing totals.
+     * Only called when {@link #supportsTokenUsage()} is {@code true}.
+     *
+     * @param records usage increments to add
+     * @throws UnsupportedOperationException if the backend does not store token usage
+     */
+    default void saveTokenUsage(List<MCEngineArtificialIntelligenceApiUtilUsage.Record> records) {
+        throw new UnsupportedOperationException("Token usage is not stored by " + getClass().getName());
+    }
+
+    /**
+     * Returns the prompt plus completion tokens stored for a subject on a day, across all platforms and models.
+     * Only called when {@link #supportsTokenUsage()} is {@code true}.
+     *
+     * @param subject player UUID or {@code group:<name>}
+     * @param day     ISO date ({@code yyyy-MM-dd})
+     * @return stored tokens, {@code 0} if none
+     * @throws UnsupportedOperationException if the backend does not store token usage
+     */
+    default long getTokenUsage(String subject, String day) {
+        throw new UnsupportedOperationException("Token usage is not stored by " + getClass().getName());
+    }
 }
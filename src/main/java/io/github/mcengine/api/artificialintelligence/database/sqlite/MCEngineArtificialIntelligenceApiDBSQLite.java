@@ -0,0 +1,361 @@
+package io.github.mcengine.api.artificialintelligence.database.sqlite;
+
+import io.github.mcengine.api.artificialintelligence.database.IMCEngineArtificialIntelligenceDB;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilUsage;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * File-backed SQLite implementation of {@link IMCEngineArtificialIntelligenceDB}.
+ * <p>
+ * Uses the SQLite JDBC driver bundled with Spigot-based servers, so no extra dependency is shaded.
+ * Connections are kept in a small fixed pool and the database runs in WAL mode, letting token reads
+ * proceed while a write is in progress. Writers wait for each other up to the busy timeout.
+ * <p>
+ * Configuration:
+ * <ul>
+ *     <li>{@code database.sqlite.path} – database file, relative to the plugin's data folder,
+ *         default {@code artificialintelligence.db}</li>
+ *     <li>{@code database.sqlite.pool-size} – pooled connections, default {@code 4}</li>
+ *     <li>{@code database.sqlite.busy-timeout-ms} – how long a statement waits for a lock, default {@code 5000}</li>
+ * </ul>
+ * Tokens are stored in table {@code artificialintelligence_token}, one row per player and platform, and token
+ * usage in {@code artificialintelligence_usage}, one row per day, subject, platform and model.
+ */
+public class MCEngineArtificialIntelligenceApiDBSQLite implements IMCEngineArtificialIntelligenceDB {
+
+    /**
+     * How long a caller waits for a free pooled connection before giving up.
+     */
+    private static final long BORROW_TIMEOUT_SECONDS = 30L;
+
+    /** The Bukkit plugin instance used for configuration and logging. */
+    private final Plugin plugin;
+
+    /** JDBC URL of the database file. */
+    private final String url;
+
+    /** Number of pooled connections. */
+    private final int poolSize;
+
+    /** Lock wait applied to every connection, in milliseconds. */
+    private final int busyTimeoutMillis;
+
+    /** Idle connections; {@code null} until {@link #open()} is called. */
+    private volatile BlockingQueue<Connection> pool;
+
+    /**
+     * Creates the database from the plugin configuration. Call {@link #open()} before use.
+     *
+     * @param plugin The Bukkit plugin instance.
+     */
+    public MCEngineArtificialIntelligenceApiDBSQLite(Plugin plugin) {
+        this.plugin = plugin;
+        File file = new File(plugin.getDataFolder(),
+                plugin.getConfig().getString("database.sqlite.path", "artificialintelligence.db"));
+        this.url = "jdbc:sqlite:" + file.getAbsolutePath();
+        this.poolSize = Math.max(1, plugin.getConfig().getInt("database.sqlite.pool-size", 4));
+        this.busyTimeoutMillis = Math.max(0, plugin.getConfig().getInt("database.sqlite.busy-timeout-ms", 5000));
+    }
+
+    /**
+     * Opens the connection pool and creates the token and usage tables if needed.
+     */
+    @Override
+    public synchronized void open() {
+        if (pool != null) {
+            return;
+        }
+        File folder = plugin.getDataFolder();
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IllegalStateException("Cannot create data folder " + folder);
+        }
+
+        BlockingQueue<Connection> connections = new ArrayBlockingQueue<>(poolSize);
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                Connection connection = DriverManager.getConnection(url);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PRAGMA busy_timeout = " + busyTimeoutMillis);
+                    statement.execute("PRAGMA journal_mode = WAL");
+                    statement.execute("PRAGMA synchronous = NORMAL");
+                }
+                connections.add(connection);
+            }
+            try (Statement statement = connections.peek().createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS artificialintelligence_token ("
+                        + "player_uuid TEXT NOT NULL, "
+                        + "platform TEXT NOT NULL, "
+                        + "token TEXT NOT NULL, "
+                        + "PRIMARY KEY (player_uuid, platform))");
+                statement.execute("CREATE TABLE IF NOT EXISTS artificialintelligence_usage ("
+                        + "day TEXT NOT NULL, "
+                        + "subject TEXT NOT NULL, "
+                        + "platform TEXT NOT NULL, "
+                        + "model TEXT NOT NULL, "
+                        + "requests INTEGER NOT NULL, "
+                        + "prompt_tokens INTEGER NOT NULL, "
+                        + "completion_tokens INTEGER NOT NULL, "
+                        + "latency_ms INTEGER NOT NULL, "
+                        + "PRIMARY KEY (day, subject, platform, model))");
+            }
+        } catch (SQLException e) {
+            closeAll(connections);
+            throw new IllegalStateException("Failed to open SQLite database " + url, e);
+        }
+        pool = connections;
+        plugin.getLogger().info("Connected to SQLite database with " + poolSize + " pooled connections.");
+    }
+
+    /**
+     * Closes every pooled connection. Connections in use are closed when they are returned.
+     */
+    @Override
+    public synchronized void close() {
+        BlockingQueue<Connection> connections = pool;
+        pool = null;
+        if (connections != null) {
+            closeAll(connections);
+        }
+    }
+
+    @Override
+    public void executeQuery(String query) {
+        withConnection(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(query);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public <T> T getValue(String query, Class<T> type) {
+        return getValue(query, type, new Object[0]);
+    }
+
+    @Override
+    public int execute(String query, Object... params) {
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                bind(statement, params);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Runs every parameter set as one JDBC batch inside a single transaction, so either all rows are
+     * written or none are.
+     */
+    @Override
+    public int[] executeBatch(String query, List<Object[]> paramSets) {
+        if (paramSets.isEmpty()) {
+            return new int[0];
+        }
+        return withConnection(connection -> {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                for (Object[] params : paramSets) {
+                    bind(statement, params);
+                    statement.addBatch();
+                }
+                int[] counts = statement.executeBatch();
+                connection.commit();
+                return counts;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        });
+    }
+
+    @Override
+    public <T> T getValue(String query, Class<T> type, Object... params) {
+        if (type != String.class && type != Integer.class && type != Long.class
+                && type != Double.class && type != Boolean.class) {
+            throw new IllegalArgumentException("Unsupported value type: " + type.getName());
+        }
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                bind(statement, params);
+                try (ResultSet result = statement.executeQuery()) {
+                    if (!result.next()) {
+                        return null;
+                    }
+                    Object value;
+                    if (type == String.class) {
+                        value = result.getString(1);
+                    } else if (type == Integer.class) {
+                        value = result.getInt(1);
+                    } else if (type == Long.class) {
+                        value = result.getLong(1);
+                    } else if (type == Double.class) {
+                        value = result.getDouble(1);
+                    } else {
+                        value = result.getBoolean(1);
+                    }
+                    return result.wasNull() ? null : type.cast(value);
+                }
+            }
+        });
+    }
+
+    @Override
+    public <T> List<T> query(String query, Function<Map<String, Object>, T> mapper, Object... params) {
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                bind(statement, params);
+                try (ResultSet result = statement.executeQuery()) {
+                    ResultSetMetaData meta = result.getMetaData();
+                    int columns = meta.getColumnCount();
+                    List<T> rows = new ArrayList<>();
+                    while (result.next()) {
+                        Map<String, Object> row = new LinkedHashMap<>(columns * 2);
+                        for (int i = 1; i <= columns; i++) {
+                            row.put(meta.getColumnLabel(i), result.getObject(i));
+                        }
+                        rows.add(mapper.apply(row));
+                    }
+                    return rows;
+                }
+            }
+        });
+    }
+
+    @Override
+    public void setPlayerToken(String playerUuid, String platform, String token) {
+        execute("INSERT INTO artificialintelligence_token (player_uuid, platform, token) VALUES (?, ?, ?) "
+                + "ON CONFLICT (player_uuid, platform) DO UPDATE SET token = excluded.token",
+                playerUuid, platform, token);
+    }
+
+    @Override
+    public String getPlayerToken(String playerUuid, String platform) {
+        return getValue("SELECT token FROM artificialintelligence_token WHERE player_uuid = ? AND platform = ?",
+                String.class, playerUuid, platform);
+    }
+
+    @Override
+    public boolean supportsParameterizedStatements() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsTokenUsage() {
+        return true;
+    }
+
+    @Override
+    public void saveTokenUsage(List<MCEngineArtificialIntelligenceApiUtilUsage.Record> records) {
+        List<Object[]> rows = new ArrayList<>(records.size());
+        for (MCEngineArtificialIntelligenceApiUtilUsage.Record record : records) {
+            rows.add(new Object[]{record.getDay(), record.getSubject(), record.getPlatform(), record.getModel(),
+                    record.getRequests(), record.getPromptTokens(), record.getCompletionTokens(), record.getLatencyMillis()});
+        }
+        executeBatch("INSERT INTO artificialintelligence_usage "
+                + "(day, subject, platform, model, requests, prompt_tokens, completion_tokens, latency_ms) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+                + "ON CONFLICT (day, subject, platform, model) DO UPDATE SET "
+                + "requests = requests + excluded.requests, "
+                + "prompt_tokens = prompt_tokens + excluded.prompt_tokens, "
+                + "completion_tokens = completion_tokens + excluded.completion_tokens, "
+                + "latency_ms = latency_ms + excluded.latency_ms", rows);
+    }
+
+    @Override
+    public long getTokenUsage(String subject, String day) {
+        Long tokens = getValue("SELECT SUM(prompt_tokens + completion_tokens) FROM artificialintelligence_usage "
+                + "WHERE subject = ? AND day = ?", Long.class, subject, day);
+        return tokens == null ? 0L : tokens;
+    }
+
+    /**
+     * Work done with a borrowed connection.
+     *
+     * @param <T> The result type.
+     */
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Borrows a pooled connection for {@code work} and returns it afterwards.
+     * SQL failures are rethrown unchecked so callers such as the token cache see them as failed loads.
+     */
+    private <T> T withConnection(SqlWork<T> work) {
+        BlockingQueue<Connection> connections = pool;
+        if (connections == null) {
+            throw new IllegalStateException("SQLite database is not open");
+        }
+        Connection connection;
+        try {
+            connection = connections.poll(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a database connection", e);
+        }
+        if (connection == null) {
+            throw new IllegalStateException("Timed out waiting for a database connection");
+        }
+        try {
+            return work.run(connection);
+        } catch (SQLException e) {
+            throw new IllegalStateException("SQLite query failed: " + e.getMessage(), e);
+        } finally {
+            // The pool may have been closed while the connection was out
+            if (pool != connections || !connections.offer(connection)) {
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    /**
+     * Binds values to a statement's placeholders in order.
+     */
+    private static void bind(PreparedStatement statement, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            statement.setObject(i + 1, params[i]);
+        }
+    }
+
+    /**
+     * Closes and removes every connection in the queue.
+     */
+    private static void closeAll(BlockingQueue<Connection> connections) {
+        Connection connection;
+        while ((connection = connections.poll()) != null) {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Closes a connection, ignoring failures.
+     */
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // Nothing useful to do while shutting down
+        }
+    }
+}
@@ -1,10 +1,21 @@
 package io.github.mcengine.api.artificialintelligence.model;
 
 import com.google.gson.JsonObject;
+import io.github.mcengine.api.artificialintelligence.response.MCEngineArtificialIntelligenceApiResponse;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilAi;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilConversation;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Interface for AI response providers.
  * Implementing classes must provide logic to generate a full JSON response based on input.
+ * <p>
+ * Only the two {@code getResponse} methods are required; every other method falls back on them by default.
+ * Providers for an OpenAI-compatible endpoint extend {@link MCEngineArtificialIntelligenceApiModelOpenAiCompatible}
+ * instead, which implements all of them without blocking.
  */
 public interface IMCEngineArtificialIntelligenceApiModel {
 
@@ -26,4 +37,218 @@ public interface IMCEngineArtificialIntelligenceApiModel {
      * @return A {@link JsonObject} containing the full AI response.
      */
     JsonObject getResponse(String token, String systemPrompt, String message);
+
+    /**
+     * Generates a full JSON response from the AI using the default token without blocking the caller.
+     * <p>
+     * The default implementation runs {@link #getResponse(String, String)} on the common pool;
+     * {@link MCEngineArtificialIntelligenceApiModelOpenAiCompatible} overrides it with a non-blocking transport.
+     *
+     * @param systemPrompt The system prompt providing instructions or behavior guidance.
+     * @param message      The input message or prompt to the AI.
+     * @return A future completed with the full AI response.
+     */
+    default CompletableFuture<JsonObject> getResponseAsync(String systemPrompt, String message) {
+        return CompletableFuture.supplyAsync(() -> getResponse(systemPrompt, message));
+    }
+
+    /**
+     * Generates a full JSON response from the AI using a user-specific token without blocking the caller.
+     * <p>
+     * The default implementation runs {@link #getResponse(String, String, String)} on the common pool;
+     * {@link MCEngineArtificialIntelligenceApiModelOpenAiCompatible} overrides it with a non-blocking transport.
+     *
+     * @param token        The user-specific token for authenticating or identifying the request.
+     * @param systemPrompt The system prompt providing instructions or behavior guidance.
+     * @param message      The input message or prompt to the AI.
+     * @return A future completed with the full AI response.
+     */
+    default CompletableFuture<JsonObject> getResponseAsync(String token, String systemPrompt, String message) {
+        return CompletableFuture.supplyAsync(() -> getResponse(token, systemPrompt, message));
+    }
+
+    /**
+     * Streams a response from the AI using the default token, passing partial text to {@code onChunk}
+     * in sentence-sized pieces as it is generated.
+     *
+     * @param systemPrompt The system prompt providing instructions or behavior guidance.
+     * @param message      The input message or prompt to the AI.
+     * @param onChunk      Receives partial reply text; invoked off the main thread.
+     * @return A future completed with the full AI response once the stream ends.
+     */
+    default CompletableFuture<JsonObject> getResponseStream(String systemPrompt, String message, Consumer<String> onChunk) {
+        return getResponseAsync(systemPrompt, message).thenApply(response -> emitWhole(response, onChunk));
+    }
+
+    /**
+     * Streams a response from the AI using a user-specific token, passing partial text to {@code onChunk}
+     * in sentence-sized pieces as it is generated.
+     * <p>
+     * The default implementation waits for the full reply and passes it as a single chunk;
+     * {@link MCEngineArtificialIntelligenceApiModelOpenAiCompatible} overrides it with server-sent event streaming.
+     *
+     * @param token        The user-specific token for authenticating or identifying the request.
+     * @param systemPrompt The system prompt providing instructions or behavior guidance.
+     * @param message      The input message or prompt to the AI.
+     * @param onChunk      Receives partial reply text; invoked off the main thread.
+     * @return A future completed with the full AI response once the stream ends.
+     */
+    default CompletableFuture<JsonObject> getResponseStream(String token, String systemPrompt, String message, Consumer<String> onChunk) {
+        return getResponseAsync(token, systemPrompt, message).thenApply(response -> emitWhole(response, onChunk));
+    }
+
+    /**
+     * Generates a typed response from the AI using the default token without blocking the caller.
+     * <p>
+     * The default implementation reads the result of {@link #getResponseAsync(String, String)};
+     * {@link MCEngineArtificialIntelligenceApiModelOpenAiCompatible} overrides it
+     * to parse the HTTP body directly into the typed response.
+     *
+     * @param systemPrompt The system prompt providing instructions or behavior guidance.
+     * @param message      The input message or prompt to the AI.
+     * @return A future completed with the typed AI response.
+     */
+    default CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(String systemPrompt, String message) {
+        return getResponseAsync(systemPrompt, message).thenApply(MCEngineArtificialIntelligenceApiResponse::fromJson);
+    }
+
+    /**
+     * Generates a typed response from the AI using a user-specific token without blocking the caller.
+     * <p>
+     * The default implementation reads the result of {@link #getResponseAsync(String, String, String)};
+     * {@link MCEngineArtificialIntelligenceApiModelOpenAiCompatible} overrides it
+     * to parse the HTTP body directly into the typed response.
+     *
+     * @param token        The user-specific token for authenticating or identifying the request.
+     * @param systemPrompt The system prompt providing instructions or behavior guidance.
+     * @param message      The input message or prompt to the AI.
+     * @return A future completed with the typed AI response.
+     */
+    default CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(String token, String systemPrompt, String message) {
+        return getResponseAsync(token, systemPrompt, message).thenApply(MCEngineArtificialIntelligenceApiResponse::fromJson);
+    }
+
+    /**
+     * Streams a response from the AI using the default token like {@link #getResponseStream(String, String, Consumer)}
+     * and returns it typed once the stream ends.
+     *
+     * @param systemPrompt The system prompt providing instructions or behavior guidance.
+     * @param message      The input message or prompt to the AI.
+     * @param onChunk      Receives partial reply text; invoked off the main thread.
+     * @return A future completed with the typed AI response once the stream ends.
+     */
+    default CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(String systemPrompt, String message, Consumer<String> onChunk) {
+        return getResponseStream(systemPrompt, message, onChunk).thenApply(MCEngineArtificialIntelligenceApiResponse::fromJson);
+    }
+
+    /**
+     * Streams a response from the AI using a user-specific token like
+     * {@link #getResponseStream(String, String, String, Consumer)} and returns it typed once the stream ends.
+     *
+     * @param token        The user-specific token for authenticating or identifying the request.
+     * @param systemPrompt The system prompt providing instructions or behavior guidance.
+     * @param message      The input message or prompt to the AI.
+     * @param onChunk      Receives partial reply text; invoked off the main thread.
+     * @return A future completed with the typed AI response once the stream ends.
+     */
+    default CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(String token, String systemPrompt, String message, Consumer<String> onChunk) {
+        return getResponseStream(token, systemPrompt, message, onChunk).thenApply(MCEngineArtificialIntelligenceApiResponse::fromJson);
+    }
+
+    /**
+     * Generates a typed response to a conversation using the default token without blocking the caller.
+     * The request carries {@code systemPrompt}, then {@code history} as {@code user} and {@code assistant}
+     * messages, then {@code message}, so the start of the request stays the same as the conversation grows
+     * and providers can serve it from their prompt cache.
+     * <p>
+     * The default implementation appends the rendered history to the system prompt and calls
+     * {@link #getChatResponseAsync(String, String)}; {@link MCEngineArtificialIntelligenceApiModelOpenAiCompatible} overrides it
+     * to send the turns as messages.
+     *
+     * @param systemPrompt The system prompt providing instructions or behavior guidance.
+     * @param history      Earlier turns of the conversation, oldest first.
+     * @param message      The input message or prompt to the AI.
+     * @return A future completed with the typed AI response.
+     */
+    default CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message) {
+        return getChatResponseAsync(flatten(systemPrompt, history), message);
+    }
+
+    /**
+     * Generates a typed response to a conversation using a user-specific token without blocking the caller,
+     * laid out like {@link #getChatResponseAsync(String, List, String)}.
+     *
+     * @param token        The user-specific token for authenticating or identifying the request.
+     * @param systemPrompt The system prompt providing instructions or behavior guidance.
+     * @param history      Earlier turns of the conversation, oldest first.
+     * @param message      The input message or prompt to the AI.
+     * @return A future completed with the typed AI response.
+     */
+    default CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(String token, String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message) {
+        return getChatResponseAsync(token, flatten(systemPrompt, history), message);
+    }
+
+    /**
+     * Streams the response to a conversation using the default token, laid out like
+     * {@link #getChatResponseAsync(String, List, String)}, and returns it typed once the stream ends.
+     *
+     * @param systemPrompt The system prompt providing instructions or behavior guidance.
+     * @param history      Earlier turns of the conversation, oldest first.
+     * @param message      The input message or prompt to the AI.
+     * @param onChunk      Receives partial reply text; invoked off the main thread.
+     * @return A future completed with the typed AI response once the stream ends.
+     */
+    default CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message, Consumer<String> onChunk) {
+        return getChatResponseStream(flatten(systemPrompt, history), message, onChunk);
+    }
+
+    /**
+     * Streams the response to a conversation using a user-specific token, laid out like
+     * {@link #getChatResponseAsync(String, List, String)}, and returns it typed once the stream ends.
+     *
+     * @param token        The user-specific token for authenticating or identifying the request.
+     * @param systemPrompt The system prompt providing instructions or behavior guidance.
+     * @param history      Earlier turns of the conversation, oldest first.
+     * @param message      The input message or prompt to the AI.
+     * @param onChunk      Receives partial reply text; invoked off the main thread.
+     * @return A future completed with the typed AI response once the stream ends.
+     */
+    default CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(String token, String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message, Consumer<String> onChunk) {
+        return getChatResponseStream(token, flatten(systemPrompt, history), message, onChunk);
+    }
+
+    /**
+     * Appends the rendered history to a system prompt, for providers that only accept a single system prompt.
+     *
+     * @param systemPrompt The system prompt.
+     * @param history      Earlier turns of the conversation.
+     * @return The combined prompt; {@code systemPrompt} unchanged when there is no history.
+     */
+    private static String flatten(String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history) {
+        if (history.isEmpty()) {
+            return systemPrompt;
+        }
+        StringBuilder prompt = new StringBuilder(systemPrompt == null ? "" : systemPrompt);
+        for (MCEngineArtificialIntelligenceApiUtilConversation.Turn turn : history) {
+            if (prompt.length() > 0) {
+                prompt.append('\n');
+            }
+            prompt.append(turn.getRole().getLabel()).append(turn.getContent());
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * Passes a complete, non-error reply to a chunk consumer in one piece.
+     *
+     * @param response The full AI response.
+     * @param onChunk  The chunk consumer.
+     * @return The same response.
+     */
+    private static JsonObject emitWhole(JsonObject response, Consumer<String> onChunk) {
+        if (!response.has("error")) {
+            onChunk.accept(MCEngineArtificialIntelligenceApiUtilAi.getCompletionContent(response));
+        }
+        return response;
+    }
 }
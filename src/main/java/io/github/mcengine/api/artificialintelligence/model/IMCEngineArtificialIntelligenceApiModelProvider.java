@@ -0,0 +1,61 @@
+package io.github.mcengine.api.artificialintelligence.model;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.function.BiFunction;
+
+/**
+ * Factory for the models of one AI platform.
+ * <p>
+ * Providers plug new backends into {@code registerModel} without changes to the API itself. They are
+ * either registered explicitly (typically from an extension's {@code onLoad}) through
+ * {@link io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilProvider#register}
+ * or discovered with {@link java.util.ServiceLoader} from a plugin jar that lists the implementation in
+ * {@code META-INF/services/io.github.mcengine.api.artificialintelligence.model.IMCEngineArtificialIntelligenceApiModelProvider}.
+ * Service-loaded implementations need a public no-argument constructor.
+ */
+public interface IMCEngineArtificialIntelligenceApiModelProvider {
+
+    /**
+     * Returns the platform name this provider serves, as passed to {@code registerModel}.
+     * Platform names are matched case-insensitively.
+     *
+     * @return The platform name (e.g. {@code openai}).
+     */
+    String getPlatform();
+
+    /**
+     * Creates the model instance for a model name. Called once per platform and model; the instance is
+     * then shared by every caller.
+     *
+     * @param plugin The Bukkit plugin registering the model, used for configuration and logging.
+     * @param model  The model name as passed to {@code registerModel}.
+     * @return The model instance.
+     * @throws IllegalArgumentException If the model name is not valid for this platform.
+     */
+    IMCEngineArtificialIntelligenceApiModel create(Plugin plugin, String model);
+
+    /**
+     * Creates a provider from a platform name and a factory function.
+     *
+     * @param platform The platform name.
+     * @param factory  Creates a model from the plugin and model name.
+     * @return The provider.
+     */
+    static IMCEngineArtificialIntelligenceApiModelProvider of(
+            String platform,
+            BiFunction<Plugin, String, IMCEngineArtificialIntelligenceApiModel> factory
+    ) {
+        return new IMCEngineArtificialIntelligenceApiModelProvider() {
+            @Override
+            public String getPlatform() {
+                return platform;
+            }
+
+            @Override
+            public IMCEngineArtificialIntelligenceApiModel create(Plugin plugin, String model) {
+                return factory.apply(plugin, model);
+            }
+        };
+    }
+}
@@ -1,29 +1,17 @@
 package io.github.mcengine.api.artificialintelligence.model;
 
-import com.google.gson.JsonObject;
-import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilAi;
 import org.bukkit.plugin.Plugin;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * Custom URL AI implementation of {@link IMCEngineArtificialIntelligenceApiModel}.
  * Communicates with a user-defined API endpoint specified in the plugin configuration.
+ * When {@code ai.custom.{server}.backends} lists several URLs, requests are load-balanced across them
+ * (see {@link io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilBalancer}).
  */
-public class MCEngineArtificialIntelligenceApiModelCustomUrl implements IMCEngineArtificialIntelligenceApiModel {
-
-    /** The Bukkit plugin instance used for accessing configuration and logging. */
-    private final Plugin plugin;
-
-    /** The identifier for the custom AI server (used to fetch config values like token and endpoint). */
-    private final String serverName;
-
-    /** The default authentication token defined in the config for this server. */
-    private final String defaultToken;
-
-    /** The full URL of the custom API endpoint for this AI model. */
-    private final String endpoint;
-
-    /** The name of the AI model to be used in API requests. */
-    private final String aiModel;
+public class MCEngineArtificialIntelligenceApiModelCustomUrl extends MCEngineArtificialIntelligenceApiModelOpenAiCompatible {
 
     /**
      * Constructs a new Custom URL AI model handler for a specific server and model.
@@ -33,30 +21,24 @@ public class MCEngineArtificialIntelligenceApiModelCustomUrl implements IMCEngin
      * @param model  The AI model name; if null, uses the model from config {@code ai.custom.{server}.model}.
      */
     public MCEngineArtificialIntelligenceApiModelCustomUrl(Plugin plugin, String server, String model) {
-        this.plugin = plugin;
-        this.serverName = server;
-        String configBase = "ai.custom." + server + ".";
-        this.defaultToken = plugin.getConfig().getString(configBase + "token", null);
-        this.endpoint = plugin.getConfig().getString(configBase + "url", "http://localhost:11434/v1/chat/completions");
-        this.aiModel = model;
+        super(plugin, "custom." + server, endpoint(plugin, "ai.custom." + server + "."),
+                plugin.getConfig().getString("ai.custom." + server + ".token", null), model, false);
     }
 
-    @Override
-    public JsonObject getResponse(String systemPrompt, String message) {
-        return getResponse(defaultToken, systemPrompt, message);
-    }
-
-    @Override
-    public JsonObject getResponse(String token, String systemPrompt, String message) {
-        return MCEngineArtificialIntelligenceApiUtilAi.getResponse(
-                plugin,
-                endpoint,
-                aiModel,
-                defaultToken,
-                token,
-                systemPrompt,
-                message,
-                false
-        );
+    /**
+     * Reads the endpoint of a custom server. With a backend list this is the first backend and identifies
+     * the server as a whole.
+     *
+     * @param plugin     The Bukkit plugin instance.
+     * @param configBase The config section of the server, ending with a dot.
+     * @return The full URL of the custom API endpoint.
+     */
+    private static String endpoint(Plugin plugin, String configBase) {
+        String defaultUrl = "http://localhost:11434/v1/chat/completions";
+        List<Map<?, ?>> backends = plugin.getConfig().getMapList(configBase + "backends");
+        if (!backends.isEmpty() && backends.get(0).get("url") != null) {
+            defaultUrl = backends.get(0).get("url").toString();
+        }
+        return plugin.getConfig().getString(configBase + "url", defaultUrl);
     }
 }
@@ -0,0 +1,132 @@
+package io.github.mcengine.api.artificialintelligence.model;
+
+import com.google.gson.JsonObject;
+import io.github.mcengine.api.artificialintelligence.response.MCEngineArtificialIntelligenceApiResponse;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilAi;
+import io.github.mcengine.api.artificialintelligence.util.MCEngineArtificialIntelligenceApiUtilConversation;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Base for providers speaking the OpenAI Chat Completions protocol.
+ * <p>
+ * Every request variant ends up in
+ * {@link MCEngineArtificialIntelligenceApiUtilAi#getChatResponseAsync(Plugin, String, String, String, String, String, String, List, String, boolean)}
+ * or its streaming counterpart, so subclasses only supply the platform key, endpoint, default token and
+ * whether OpenRouter headers are sent.
+ */
+public abstract class MCEngineArtificialIntelligenceApiModelOpenAiCompatible implements IMCEngineArtificialIntelligenceApiModel {
+
+    /** The Bukkit plugin instance used for configuration access and logging. */
+    private final Plugin plugin;
+
+    /** Platform key selecting the shared HTTP pool, limiter and statistics (e.g., "openai" or "custom.myserver"). */
+    private final String platform;
+
+    /** The chat completions URL requests are sent to. */
+    private final String endpoint;
+
+    /** The default token from config, used when no user-specific token is supplied. */
+    private final String defaultToken;
+
+    /** The model name to use for completion requests. */
+    private final String aiModel;
+
+    /** Whether to include the OpenRouter headers. */
+    private final boolean isOpenRouter;
+
+    /**
+     * Constructs a provider for an OpenAI-compatible endpoint.
+     *
+     * @param plugin       The Bukkit plugin instance.
+     * @param platform     Platform key selecting the shared HTTP pool.
+     * @param endpoint     The chat completions URL.
+     * @param defaultToken The default token from config; may be {@code null}.
+     * @param model        The model name.
+     * @param isOpenRouter Whether to include the OpenRouter headers.
+     */
+    protected MCEngineArtificialIntelligenceApiModelOpenAiCompatible(Plugin plugin, String platform, String endpoint,
+                                                                     String defaultToken, String model, boolean isOpenRouter) {
+        this.plugin = plugin;
+        this.platform = platform;
+        this.endpoint = endpoint;
+        this.defaultToken = defaultToken;
+        this.aiModel = model;
+        this.isOpenRouter = isOpenRouter;
+    }
+
+    @Override
+    public JsonObject getResponse(String systemPrompt, String message) {
+        return getResponse(defaultToken, systemPrompt, message);
+    }
+
+    @Override
+    public JsonObject getResponse(String token, String systemPrompt, String message) {
+        return getResponseAsync(token, systemPrompt, message).join();
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> getResponseAsync(String systemPrompt, String message) {
+        return getResponseAsync(defaultToken, systemPrompt, message);
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> getResponseAsync(String token, String systemPrompt, String message) {
+        return getChatResponseAsync(token, systemPrompt, message).thenApply(MCEngineArtificialIntelligenceApiResponse::toJson);
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> getResponseStream(String systemPrompt, String message, Consumer<String> onChunk) {
+        return getResponseStream(defaultToken, systemPrompt, message, onChunk);
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> getResponseStream(String token, String systemPrompt, String message, Consumer<String> onChunk) {
+        return getChatResponseStream(token, systemPrompt, message, onChunk).thenApply(MCEngineArtificialIntelligenceApiResponse::toJson);
+    }
+
+    @Override
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(String systemPrompt, String message) {
+        return getChatResponseAsync(defaultToken, systemPrompt, List.of(), message);
+    }
+
+    @Override
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(String token, String systemPrompt, String message) {
+        return getChatResponseAsync(token, systemPrompt, List.of(), message);
+    }
+
+    @Override
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message) {
+        return getChatResponseAsync(defaultToken, systemPrompt, history, message);
+    }
+
+    @Override
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(String token, String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message) {
+        return MCEngineArtificialIntelligenceApiUtilAi.getChatResponseAsync(
+                plugin, platform, endpoint, aiModel, defaultToken, token, systemPrompt, history, message, isOpenRouter);
+    }
+
+    @Override
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(String systemPrompt, String message, Consumer<String> onChunk) {
+        return getChatResponseStream(defaultToken, systemPrompt, List.of(), message, onChunk);
+    }
+
+    @Override
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(String token, String systemPrompt, String message, Consumer<String> onChunk) {
+        return getChatResponseStream(token, systemPrompt, List.of(), message, onChunk);
+    }
+
+    @Override
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message, Consumer<String> onChunk) {
+        return getChatResponseStream(defaultToken, systemPrompt, history, message, onChunk);
+    }
+
+    @Override
+    public CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(String token, String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message, Consumer<String> onChunk) {
+        return MCEngineArtificialIntelligenceApiUtilAi.getChatResponseStream(
+                plugin, platform, endpoint, aiModel, defaultToken, token, systemPrompt, history, message, isOpenRouter, onChunk);
+    }
+}
@@ -0,0 +1,429 @@
+package io.github.mcengine.api.artificialintelligence.response;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Typed result of a chat completion call.
+ * <p>
+ * Holds only the fields the API reads: the reply content, finish reason, reporting model,
+ * token usage (including prompt tokens served from the provider's prompt cache) and, for failed calls, an error message. Instances are immutable and may be shared
+ * between callers, for example by the response cache or coalesced requests.
+ * {@link #toJson()} gives the same data in the provider's JSON shape for code built on the
+ * {@link JsonObject} API.
+ */
+public class MCEngineArtificialIntelligenceApiResponse {
+
+    /** The reply text, or {@code null} if the provider returned none. */
+    private final String content;
+
+    /** Why generation stopped (e.g. {@code stop}, {@code length}), or {@code null} if unknown. */
+    private final String finishReason;
+
+    /** Model name reported by the provider, or {@code null} if absent. */
+    private final String model;
+
+    /** Prompt tokens, or {@code -1} if not reported. */
+    private final int promptTokens;
+
+    /** Completion tokens, or {@code -1} if not reported. */
+    private final int completionTokens;
+
+    /** Total tokens, or {@code -1} if not reported. */
+    private final int totalTokens;
+
+    /** Prompt tokens served from the provider's prompt cache, or {@code -1} if not reported. */
+    private final int cachedTokens;
+
+    /** Error message of a failed call, or {@code null} on success. */
+    private final String error;
+
+    /** Whether the response was answered from the local cache. */
+    private final boolean cached;
+
+    /** The {@code platform:model} that answered a hedged request, or {@code null} if not tagged. */
+    private final String source;
+
+    /** Milliseconds from sending until the provider's reply started, or {@code -1} if unknown. */
+    private final long replyMillis;
+
+    /**
+     * Creates a response without a cached prompt token count.
+     *
+     * @param content          The reply text.
+     * @param finishReason     The finish reason.
+     * @param model            The reporting model.
+     * @param promptTokens     Prompt tokens, or {@code -1}.
+     * @param completionTokens Completion tokens, or {@code -1}.
+     * @param totalTokens      Total tokens, or {@code -1}.
+     * @param error            Error message, or {@code null} on success.
+     * @param cached           Whether the response came from the local cache.
+     */
+    public MCEngineArtificialIntelligenceApiResponse(
+            String content,
+            String finishReason,
+            String model,
+            int promptTokens,
+            int completionTokens,
+            int totalTokens,
+            String error,
+            boolean cached
+    ) {
+        this(content, finishReason, model, promptTokens, completionTokens, totalTokens, -1, error, cached);
+    }
+
+    /**
+     * Creates a response.
+     *
+     * @param content          The reply text.
+     * @param finishReason     The finish reason.
+     * @param model            The reporting model.
+     * @param promptTokens     Prompt tokens, or {@code -1}.
+     * @param completionTokens Completion tokens, or {@code -1}.
+     * @param totalTokens      Total tokens, or {@code -1}.
+     * @param cachedTokens     Prompt tokens served from the provider's prompt cache, or {@code -1}.
+     * @param error            Error message, or {@code null} on success.
+     * @param cached           Whether the response came from the local cache.
+     */
+    public MCEngineArtificialIntelligenceApiResponse(
+            String content,
+            String finishReason,
+            String model,
+            int promptTokens,
+            int completionTokens,
+            int totalTokens,
+            int cachedTokens,
+            String error,
+            boolean cached
+    ) {
+        this(content, finishReason, model, promptTokens, completionTokens, totalTokens, cachedTokens, error, cached, null, -1);
+    }
+
+    /**
+     * Creates a response with every field set; used by the copy methods.
+     */
+    private MCEngineArtificialIntelligenceApiResponse(
+            String content,
+            String finishReason,
+            String model,
+            int promptTokens,
+            int completionTokens,
+            int totalTokens,
+            int cachedTokens,
+            String error,
+            boolean cached,
+            String source,
+            long replyMillis
+    ) {
+        this.content = content;
+        this.finishReason = finishReason;
+        this.model = model;
+        this.promptTokens = promptTokens;
+        this.completionTokens = completionTokens;
+        this.totalTokens = totalTokens;
+        this.cachedTokens = cachedTokens;
+        this.error = error;
+        this.cached = cached;
+        this.source = source;
+        this.replyMillis = replyMillis;
+    }
+
+    /**
+     * Creates a failed response.
+     *
+     * @param error The error message.
+     * @return A response carrying only the error.
+     */
+    public static MCEngineArtificialIntelligenceApiResponse error(String error) {
+        return new MCEngineArtificialIntelligenceApiResponse(null, null, null, -1, -1, -1, error, false);
+    }
+
+    /**
+     * Reads a response from its JSON form, as returned by providers or by {@link #toJson()}.
+     * Missing or malformed fields are left unset.
+     *
+     * @param json The JSON response.
+     * @return The typed response.
+     */
+    public static MCEngineArtificialIntelligenceApiResponse fromJson(JsonObject json) {
+        if (json == null) {
+            return error("No response from AI.");
+        }
+        JsonElement error = json.get("error");
+        if (error != null && !error.isJsonNull()) {
+            return error(errorMessage(error));
+        }
+
+        String content = null;
+        String finishReason = null;
+        JsonElement choices = json.get("choices");
+        if (choices != null && choices.isJsonArray() && choices.getAsJsonArray().size() > 0
+                && choices.getAsJsonArray().get(0).isJsonObject()) {
+            JsonObject choice = choices.getAsJsonArray().get(0).getAsJsonObject();
+            JsonElement message = choice.get("message");
+            if (message != null && message.isJsonObject()) {
+                content = string(message.getAsJsonObject().get("content"));
+            }
+            finishReason = string(choice.get("finish_reason"));
+        }
+
+        int prompt = -1;
+        int completion = -1;
+        int total = -1;
+        int cachedTokens = -1;
+        JsonElement usage = json.get("usage");
+        if (usage != null && usage.isJsonObject()) {
+            prompt = number(usage.getAsJsonObject().get("prompt_tokens"));
+            completion = number(usage.getAsJsonObject().get("completion_tokens"));
+            total = number(usage.getAsJsonObject().get("total_tokens"));
+            cachedTokens = cachedTokens(usage.getAsJsonObject());
+        }
+
+        JsonElement cached = json.get("cached");
+        return new MCEngineArtificialIntelligenceApiResponse(content, finishReason, string(json.get("model")),
+                prompt, completion, total, cachedTokens, null,
+                cached != null && cached.isJsonPrimitive() && cached.getAsJsonPrimitive().isBoolean() && cached.getAsBoolean());
+    }
+
+    /**
+     * Reads the cached prompt token count from a usage block: OpenAI-style
+     * {@code prompt_tokens_details.cached_tokens} or DeepSeek's {@code prompt_cache_hit_tokens}.
+     *
+     * @param usage The {@code usage} object.
+     * @return Cached prompt tokens, or {@code -1} if not reported.
+     */
+    public static int cachedTokens(JsonObject usage) {
+        JsonElement details = usage.get("prompt_tokens_details");
+        if (details != null && details.isJsonObject()) {
+            int tokens = number(details.getAsJsonObject().get("cached_tokens"));
+            if (tokens >= 0) {
+                return tokens;
+            }
+        }
+        return number(usage.get("prompt_cache_hit_tokens"));
+    }
+
+    /**
+     * Extracts a message from a provider error, which is either a string or an object with {@code message}.
+     *
+     * @param error The {@code error} element.
+     * @return The error message.
+     */
+    public static String errorMessage(JsonElement error) {
+        if (error.isJsonObject()) {
+            String message = string(error.getAsJsonObject().get("message"));
+            return message != null ? message : error.toString();
+        }
+        String message = string(error);
+        return message != null ? message : error.toString();
+    }
+
+    /**
+     * Returns a copy marked as served from the local cache, reporting zero token usage
+     * since no paid call was made. Also given to requests that joined an identical call in flight.
+     *
+     * @return The cached view of this response.
+     */
+    public MCEngineArtificialIntelligenceApiResponse asCached() {
+        return new MCEngineArtificialIntelligenceApiResponse(content, finishReason, model, 0, 0, 0, 0, error, true, source, -1);
+    }
+
+    /**
+     * Returns a copy tagged with the platform and model that answered it.
+     *
+     * @param source The answering {@code platform:model}.
+     * @return The tagged response.
+     */
+    public MCEngineArtificialIntelligenceApiResponse withSource(String source) {
+        return new MCEngineArtificialIntelligenceApiResponse(content, finishReason, model, promptTokens, completionTokens,
+                totalTokens, cachedTokens, error, cached, source, replyMillis);
+    }
+
+    /**
+     * Returns a copy recording how long the provider took to start replying.
+     *
+     * @param replyMillis Milliseconds from sending until the reply started.
+     * @return The timed response.
+     */
+    public MCEngineArtificialIntelligenceApiResponse withReplyMillis(long replyMillis) {
+        return new MCEngineArtificialIntelligenceApiResponse(content, finishReason, model, promptTokens, completionTokens,
+                totalTokens, cachedTokens, error, cached, source, replyMillis);
+    }
+
+    /**
+     * Builds the JSON view of this response in the provider's chat completion shape.
+     *
+     * @return {@code {"error": ...}} for failures, otherwise {@code model}, {@code choices[0].message.content},
+     *         {@code choices[0].finish_reason}, {@code usage} (with {@code prompt_tokens_details.cached_tokens})
+     *         when reported and {@code cached} for cache hits.
+     */
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        if (error != null) {
+            json.addProperty("error", error);
+            return json;
+        }
+
+        if (model != null) {
+            json.addProperty("model", model);
+        }
+
+        JsonObject message = new JsonObject();
+        message.addProperty("role", "assistant");
+        message.addProperty("content", content);
+
+        JsonObject choice = new JsonObject();
+        choice.addProperty("index", 0);
+        choice.add("message", message);
+        choice.addProperty("finish_reason", finishReason);
+
+        JsonArray choices = new JsonArray();
+        choices.add(choice);
+        json.add("choices", choices);
+
+        if (totalTokens >= 0 || promptTokens >= 0 || completionTokens >= 0) {
+            JsonObject usage = new JsonObject();
+            usage.addProperty("prompt_tokens", promptTokens);
+            usage.addProperty("completion_tokens", completionTokens);
+            usage.addProperty("total_tokens", totalTokens);
+            if (cachedTokens >= 0) {
+                JsonObject details = new JsonObject();
+                details.addProperty("cached_tokens", cachedTokens);
+                usage.add("prompt_tokens_details", details);
+            }
+            json.add("usage", usage);
+        }
+        if (cached) {
+            json.addProperty("cached", true);
+        }
+        return json;
+    }
+
+    /**
+     * Returns the reply text.
+     *
+     * @return The content, or {@code null} if the provider returned none or the call failed.
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * Returns why generation stopped.
+     *
+     * @return The finish reason, or {@code null} if unknown.
+     */
+    public String getFinishReason() {
+        return finishReason;
+    }
+
+    /**
+     * Returns the model name reported by the provider.
+     *
+     * @return The model, or {@code null} if absent.
+     */
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * Returns the prompt token count.
+     *
+     * @return Prompt tokens, or {@code -1} if not reported.
+     */
+    public int getPromptTokens() {
+        return promptTokens;
+    }
+
+    /**
+     * Returns the completion token count.
+     *
+     * @return Completion tokens, or {@code -1} if not reported.
+     */
+    public int getCompletionTokens() {
+        return completionTokens;
+    }
+
+    /**
+     * Returns the total token count.
+     *
+     * @return Total tokens, or {@code -1} if not reported.
+     */
+    public int getTotalTokens() {
+        return totalTokens;
+    }
+
+    /**
+     * Returns how many prompt tokens the provider served from its prompt cache. Providers cache a request's
+     * prompt prefix when it repeats an earlier request byte for byte, and bill those tokens at a discount.
+     *
+     * @return Cached prompt tokens, or {@code -1} if not reported.
+     */
+    public int getCachedTokens() {
+        return cachedTokens;
+    }
+
+    /**
+     * Returns the error message of a failed call.
+     *
+     * @return The error, or {@code null} on success.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Checks whether the call failed.
+     *
+     * @return {@code true} if an error is set.
+     */
+    public boolean isError() {
+        return error != null;
+    }
+
+    /**
+     * Checks whether the response was answered from the local cache or by joining an identical call
+     * already in flight.
+     *
+     * @return {@code true} for cache hits and coalesced requests, which made no paid call of their own.
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * Returns the platform and model that answered when a hedged request may have been answered by its
+     * backup rather than the model asked for; its usage and latency belong to that model.
+     *
+     * @return The answering {@code platform:model}, or {@code null} if the request was not hedged.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns how long the provider took to start replying (its response headers), excluding the time
+     * spent generating and transferring the body.
+     *
+     * @return Milliseconds, or {@code -1} for cached, coalesced and failed responses.
+     */
+    public long getReplyMillis() {
+        return replyMillis;
+    }
+
+    /**
+     * Reads a string element, treating JSON null and non-primitives as absent.
+     */
+    private static String string(JsonElement element) {
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+
+    /**
+     * Reads an integer element, returning {@code -1} when absent or not a number.
+     */
+    private static int number(JsonElement element) {
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber()
+                ? element.getAsInt() : -1;
+    }
+}
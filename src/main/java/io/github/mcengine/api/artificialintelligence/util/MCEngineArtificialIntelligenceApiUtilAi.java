@@ -2,19 +2,24 @@ package io.github.mcengine.api.artificialintelligence.util;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import io.github.mcengine.api.artificialintelligence.model.*;
+import io.github.mcengine.api.artificialintelligence.response.MCEngineArtificialIntelligenceApiResponse;
 import org.bukkit.plugin.Plugin;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
 import java.net.URI;
-import java.net.URL;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
@@ -24,12 +29,14 @@ public class MCEngineArtificialIntelligenceApiUtilAi {
 
     /**
      * Global cache shared across all plugins.
-     * Maps platform name to its models and instances.
+     * Maps platform name to its models and instances. Both levels are concurrent maps, so lookups on the
+     * request path never block.
      */
-    private static final Map<String, Map<String, IMCEngineArtificialIntelligenceApiModel>> modelCache = new HashMap<>();
+    private static final Map<String, Map<String, IMCEngineArtificialIntelligenceApiModel>> modelCache = new ConcurrentHashMap<>();
 
     /**
      * Sends a prompt to an AI API and returns the full JSON response.
+     * The endpoint host is used as the platform key for the shared HTTP pool.
      *
      * @param plugin       The Bukkit plugin instance.
      * @param endpoint     API endpoint URL.
@@ -50,89 +57,601 @@ public class MCEngineArtificialIntelligenceApiUtilAi {
             String systemPrompt,
             String message,
             boolean isOpenRouter
+    ) {
+        return getResponse(plugin, URI.create(endpoint).getHost(), endpoint, aiModel, defaultToken, token,
+                systemPrompt, message, isOpenRouter);
+    }
+
+    /**
+     * Sends a prompt to an AI API through the platform's pooled HTTP client and returns the full JSON response.
+     * Blocks until the response arrives; see {@link #getResponseAsync} for the non-blocking variant.
+     *
+     * @param plugin       The Bukkit plugin instance.
+     * @param platform     Platform key selecting the shared HTTP pool and its {@code ai.<platform>.http} settings
+     *                     (e.g., "openai" or "custom.myserver").
+     * @param endpoint     API endpoint URL.
+     * @param aiModel      Model name (e.g., "gpt-4").
+     * @param defaultToken Server default token.
+     * @param token        User or provided token.
+     * @param systemPrompt The system prompt to guide AI behavior.
+     * @param message      User prompt content.
+     * @param isOpenRouter Whether to include OpenRouter headers.
+     * @return The raw JSON response from the AI API, or error message in JSON format.
+     */
+    public static JsonObject getResponse(
+            Plugin plugin,
+            String platform,
+            String endpoint,
+            String aiModel,
+            String defaultToken,
+            String token,
+            String systemPrompt,
+            String message,
+            boolean isOpenRouter
+    ) {
+        return getResponseAsync(plugin, platform, endpoint, aiModel, defaultToken, token, systemPrompt, message, isOpenRouter)
+                .join();
+    }
+
+    /**
+     * Sends a prompt to an AI API without blocking the calling thread.
+     * The request is dispatched on the platform's pooled non-blocking HTTP client, so no thread is held
+     * while waiting for the provider. The returned future never completes exceptionally; failures are
+     * reported as an error JSON object just like {@link #getResponse}.
+     *
+     * @param plugin       The Bukkit plugin instance.
+     * @param platform     Platform key selecting the shared HTTP pool (e.g., "openai" or "custom.myserver").
+     * @param endpoint     API endpoint URL.
+     * @param aiModel      Model name (e.g., "gpt-4").
+     * @param defaultToken Server default token.
+     * @param token        User or provided token.
+     * @param systemPrompt The system prompt to guide AI behavior.
+     * @param message      User prompt content.
+     * @param isOpenRouter Whether to include OpenRouter headers.
+     * @return A future completed with the raw JSON response, or error message in JSON format.
+     */
+    public static CompletableFuture<JsonObject> getResponseAsync(
+            Plugin plugin,
+            String platform,
+            String endpoint,
+            String aiModel,
+            String defaultToken,
+            String token,
+            String systemPrompt,
+            String message,
+            boolean isOpenRouter
+    ) {
+        return getChatResponseAsync(plugin, platform, endpoint, aiModel, defaultToken, token, systemPrompt, message, isOpenRouter)
+                .thenApply(MCEngineArtificialIntelligenceApiResponse::toJson);
+    }
+
+    /**
+     * Sends a prompt to an AI API without blocking the calling thread and returns the typed response.
+     * The body is parsed as it streams in and only the fields of
+     * {@link MCEngineArtificialIntelligenceApiResponse} are read. The returned future never completes
+     * exceptionally; failures are reported through {@link MCEngineArtificialIntelligenceApiResponse#getError()}.
+     *
+     * @param plugin       The Bukkit plugin instance.
+     * @param platform     Platform key selecting the shared HTTP pool (e.g., "openai" or "custom.myserver").
+     * @param endpoint     API endpoint URL.
+     * @param aiModel      Model name (e.g., "gpt-4").
+     * @param defaultToken Server default token.
+     * @param token        User or provided token.
+     * @param systemPrompt The system prompt to guide AI behavior.
+     * @param message      User prompt content.
+     * @param isOpenRouter Whether to include OpenRouter headers.
+     * @return A future completed with the typed response.
+     */
+    public static CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(
+            Plugin plugin,
+            String platform,
+            String endpoint,
+            String aiModel,
+            String defaultToken,
+            String token,
+            String systemPrompt,
+            String message,
+            boolean isOpenRouter
+    ) {
+        return getChatResponseAsync(plugin, platform, endpoint, aiModel, defaultToken, token, systemPrompt, List.of(), message, isOpenRouter);
+    }
+
+    /**
+     * Sends a conversation to an AI API without blocking the calling thread and returns the typed response.
+     * The request carries the system prompt, then the earlier turns as alternating {@code user} and
+     * {@code assistant} messages, then the new message. Keeping the system prompt fixed and only appending
+     * turns keeps the start of every request identical to the previous one, so providers that cache repeated
+     * prompt prefixes (OpenAI, DeepSeek) can serve it from their cache; see
+     * {@link MCEngineArtificialIntelligenceApiResponse#getCachedTokens()}.
+     *
+     * @param plugin       The Bukkit plugin instance.
+     * @param platform     Platform key selecting the shared HTTP pool (e.g., "openai" or "custom.myserver").
+     * @param endpoint     API endpoint URL.
+     * @param aiModel      Model name (e.g., "gpt-4").
+     * @param defaultToken Server default token.
+     * @param token        User or provided token.
+     * @param systemPrompt The system prompt to guide AI behavior; should not change between turns.
+     * @param history      Earlier turns of the conversation, oldest first.
+     * @param message      User prompt content.
+     * @param isOpenRouter Whether to include OpenRouter headers.
+     * @return A future completed with the typed response.
+     */
+    public static CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(
+            Plugin plugin,
+            String platform,
+            String endpoint,
+            String aiModel,
+            String defaultToken,
+            String token,
+            String systemPrompt,
+            List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history,
+            String message,
+            boolean isOpenRouter
+    ) {
+        return dispatch(plugin, platform, endpoint, aiModel, defaultToken, token, systemPrompt, history, message, isOpenRouter, null);
+    }
+
+    /**
+     * Sends a prompt to an AI API with {@code "stream": true} and parses the server-sent events as they arrive.
+     * Partial reply text is passed to {@code onChunk} in sentence-sized pieces on the HTTP client thread;
+     * callers that touch the Bukkit API must hop to the main thread themselves. The returned future completes
+     * once the stream ends with a response in the same shape as {@link #getResponseAsync}, including the
+     * {@code usage} block when the provider reports it.
+     *
+     * @param plugin       The Bukkit plugin instance.
+     * @param platform     Platform key selecting the shared HTTP pool (e.g., "openai" or "custom.myserver").
+     * @param endpoint     API endpoint URL.
+     * @param aiModel      Model name (e.g., "gpt-4").
+     * @param defaultToken Server default token.
+     * @param token        User or provided token.
+     * @param systemPrompt The system prompt to guide AI behavior.
+     * @param message      User prompt content.
+     * @param isOpenRouter Whether to include OpenRouter headers.
+     * @param onChunk      Receives partial reply text as it is generated.
+     * @return A future completed with the assembled JSON response, or error message in JSON format.
+     */
+    public static CompletableFuture<JsonObject> getResponseStream(
+            Plugin plugin,
+            String platform,
+            String endpoint,
+            String aiModel,
+            String defaultToken,
+            String token,
+            String systemPrompt,
+            String message,
+            boolean isOpenRouter,
+            Consumer<String> onChunk
+    ) {
+        return getChatResponseStream(plugin, platform, endpoint, aiModel, defaultToken, token, systemPrompt, message, isOpenRouter, onChunk)
+                .thenApply(MCEngineArtificialIntelligenceApiResponse::toJson);
+    }
+
+    /**
+     * Streams a reply like {@link #getResponseStream} and returns the typed response once the stream ends.
+     *
+     * @param plugin       The Bukkit plugin instance.
+     * @param platform     Platform key selecting the shared HTTP pool (e.g., "openai" or "custom.myserver").
+     * @param endpoint     API endpoint URL.
+     * @param aiModel      Model name (e.g., "gpt-4").
+     * @param defaultToken Server default token.
+     * @param token        User or provided token.
+     * @param systemPrompt The system prompt to guide AI behavior.
+     * @param message      User prompt content.
+     * @param isOpenRouter Whether to include OpenRouter headers.
+     * @param onChunk      Receives partial reply text as it is generated.
+     * @return A future completed with the typed response.
+     */
+    public static CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(
+            Plugin plugin,
+            String platform,
+            String endpoint,
+            String aiModel,
+            String defaultToken,
+            String token,
+            String systemPrompt,
+            String message,
+            boolean isOpenRouter,
+            Consumer<String> onChunk
+    ) {
+        return getChatResponseStream(plugin, platform, endpoint, aiModel, defaultToken, token, systemPrompt, List.of(), message, isOpenRouter, onChunk);
+    }
+
+    /**
+     * Streams the reply to a conversation like {@link #getResponseStream} and returns the typed response once
+     * the stream ends. The messages are laid out as for
+     * {@link #getChatResponseAsync(Plugin, String, String, String, String, String, String, List, String, boolean)}.
+     *
+     * @param plugin       The Bukkit plugin instance.
+     * @param platform     Platform key selecting the shared HTTP pool (e.g., "openai" or "custom.myserver").
+     * @param endpoint     API endpoint URL.
+     * @param aiModel      Model name (e.g., "gpt-4").
+     * @param defaultToken Server default token.
+     * @param token        User or provided token.
+     * @param systemPrompt The system prompt to guide AI behavior; should not change between turns.
+     * @param history      Earlier turns of the conversation, oldest first.
+     * @param message      User prompt content.
+     * @param isOpenRouter Whether to include OpenRouter headers.
+     * @param onChunk      Receives partial reply text as it is generated.
+     * @return A future completed with the typed response.
+     */
+    public static CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseStream(
+            Plugin plugin,
+            String platform,
+            String endpoint,
+            String aiModel,
+            String defaultToken,
+            String token,
+            String systemPrompt,
+            List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history,
+            String message,
+            boolean isOpenRouter,
+            Consumer<String> onChunk
+    ) {
+        return dispatch(plugin, platform, endpoint, aiModel, defaultToken, token, systemPrompt, history, message, isOpenRouter, onChunk);
+    }
+
+    /**
+     * Answers from the response cache when possible, otherwise joins an identical in-flight request or
+     * sends a new one on the platform's pooled client. The deadline current at dispatch time, if any,
+     * bounds every later stage of the call.
+     *
+     * @param history Earlier turns of the conversation, oldest first.
+     * @param onChunk Receives streamed reply text, or {@code null} for a regular (non-streamed) completion.
+     * @return A future completed with the typed response.
+     */
+    private static CompletableFuture<MCEngineArtificialIntelligenceApiResponse> dispatch(
+            Plugin plugin,
+            String platform,
+            String endpoint,
+            String aiModel,
+            String defaultToken,
+            String token,
+            String systemPrompt,
+            List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history,
+            String message,
+            boolean isOpenRouter,
+            Consumer<String> onChunk
     ) {
         if (token == null || token.isEmpty()) {
             plugin.getLogger().severe("Token is missing or invalid.");
-            JsonObject error = new JsonObject();
-            error.addProperty("error", "Missing or invalid token.");
-            return error;
+            return CompletableFuture.completedFuture(MCEngineArtificialIntelligenceApiResponse.error("Missing or invalid token."));
+        }
+
+        MCEngineArtificialIntelligenceApiUtilDeadline deadline = MCEngineArtificialIntelligenceApiUtilDeadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            return CompletableFuture.completedFuture(errorResponse(plugin, deadline.exceeded()));
+        }
+
+        // Trim the history to the model's context window; a prompt that cannot fit is refused without a round trip
+        MCEngineArtificialIntelligenceApiUtilTokenizer.Fit fit =
+                MCEngineArtificialIntelligenceApiUtilTokenizer.fit(plugin, platform, aiModel, systemPrompt, history, message);
+        if (!fit.fits()) {
+            plugin.getLogger().warning("Prompt of about " + fit.getEstimatedTokens() + " tokens exceeds the context window of " + aiModel + ".");
+            return CompletableFuture.completedFuture(MCEngineArtificialIntelligenceApiResponse.error("Prompt is too long for the model's context window."));
         }
+        List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> turns = fit.getHistory();
 
+        // The cache and single-flight keys cover the whole conversation, not just the system prompt
+        String context = context(systemPrompt, turns);
+        boolean cacheable = MCEngineArtificialIntelligenceApiUtilCache.isEnabled(plugin, platform, aiModel);
+        if (cacheable) {
+            MCEngineArtificialIntelligenceApiResponse cached =
+                    MCEngineArtificialIntelligenceApiUtilCache.get(platform, aiModel, context, message);
+            if (cached != null) {
+                if (onChunk != null && cached.getContent() != null) {
+                    onChunk.accept(cached.getContent().trim());
+                }
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        // Identical requests already in flight share that call; only the leader is billed, so followers get
+        // the zero-usage view a cache hit would
+        String flightKey = MCEngineArtificialIntelligenceApiUtilSingleFlight.key(platform, aiModel, token, context, message);
+        CompletableFuture<MCEngineArtificialIntelligenceApiResponse> leader = new CompletableFuture<>();
+        CompletableFuture<MCEngineArtificialIntelligenceApiResponse> running =
+                MCEngineArtificialIntelligenceApiUtilSingleFlight.join(flightKey, leader);
+        if (running != null) {
+            return running.thenApply(response -> {
+                if (response.isError()) {
+                    return response;
+                }
+                if (onChunk != null && response.getContent() != null) {
+                    onChunk.accept(response.getContent().trim());
+                }
+                return response.asCached();
+            });
+        }
+
+        // A caller that cancels its deadline (e.g. a hedge whose other request won) aborts the call, unless
+        // identical requests have joined it meanwhile; those keep it running
+        MCEngineArtificialIntelligenceApiUtilDeadline callDeadline = deadline;
+        if (deadline != null) {
+            MCEngineArtificialIntelligenceApiUtilDeadline own = deadline.fork();
+            deadline.onCancel(() -> {
+                if (MCEngineArtificialIntelligenceApiUtilSingleFlight.abandon(flightKey, leader)) {
+                    own.cancel();
+                }
+            });
+            callDeadline = own;
+        }
+
+        send(plugin, platform, endpoint, aiModel, defaultToken, token, systemPrompt, turns, message, isOpenRouter, onChunk, callDeadline)
+                .whenComplete((response, error) -> {
+                    if (response != null && !response.isError()) {
+                        MCEngineArtificialIntelligenceApiUtilTokenizer.calibrate(platform, aiModel, fit.getEstimatedTokens(), response.getPromptTokens());
+                    }
+                    if (cacheable && response != null) {
+                        MCEngineArtificialIntelligenceApiUtilCache.put(platform, aiModel, context, message, response);
+                    }
+                    MCEngineArtificialIntelligenceApiUtilSingleFlight.complete(flightKey, leader, response, error);
+                });
+        return leader;
+    }
+
+    /**
+     * Resolves the token, builds the request and sends it on the platform's pooled client. Successful
+     * responses carry the time until the provider's reply started (see
+     * {@link MCEngineArtificialIntelligenceApiResponse#getReplyMillis()}).
+     *
+     * @param history  Earlier turns of the conversation, oldest first.
+     * @param onChunk  Receives streamed reply text, or {@code null} for a regular (non-streamed) completion.
+     * @param deadline The call's deadline, or {@code null} for none.
+     * @return A future completed with the typed response.
+     */
+    private static CompletableFuture<MCEngineArtificialIntelligenceApiResponse> send(
+            Plugin plugin,
+            String platform,
+            String endpoint,
+            String aiModel,
+            String defaultToken,
+            String token,
+            String systemPrompt,
+            List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history,
+            String message,
+            boolean isOpenRouter,
+            Consumer<String> onChunk,
+            MCEngineArtificialIntelligenceApiUtilDeadline deadline
+    ) {
         String actualToken = token;
 
         if (!token.equals(defaultToken)) {
             actualToken = MCEngineArtificialIntelligenceApiUtilToken.decryptToken(token);
             if (actualToken == null || actualToken.isEmpty()) {
                 plugin.getLogger().warning("Failed to decrypt user token.");
-                JsonObject error = new JsonObject();
-                error.addProperty("error", "Invalid or corrupt user token.");
-                return error;
+                return CompletableFuture.completedFuture(MCEngineArtificialIntelligenceApiResponse.error("Invalid or corrupt user token."));
             }
         }
 
+        HttpRequest request;
         try {
-            URI uri = URI.create(endpoint);
-            URL url = uri.toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            request = buildRequest(endpoint, aiModel, actualToken, systemPrompt, history, message, isOpenRouter, onChunk != null);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(errorResponse(plugin, e));
+        }
 
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Authorization", "Bearer " + actualToken);
-            conn.setRequestProperty("Content-Type", "application/json");
+        // Time to the response headers of the attempt that answered, not to the end of its body
+        long start = System.nanoTime();
+        AtomicLong replyAt = new AtomicLong(start);
+        CompletableFuture<MCEngineArtificialIntelligenceApiResponse> result;
+        if (onChunk == null) {
+            HttpResponse.BodyHandler<MCEngineArtificialIntelligenceApiResponse> parser = MCEngineArtificialIntelligenceApiUtilJson.bodyHandler();
+            HttpResponse.BodyHandler<MCEngineArtificialIntelligenceApiResponse> handler = info -> {
+                replyAt.set(System.nanoTime());
+                return parser.apply(info);
+            };
+            result = exchange(plugin, platform, aiModel, request, handler, true, deadline)
+                    .thenApply(response -> response.statusCode() != 200
+                            ? statusError(plugin, response.statusCode())
+                            : response.body().withReplyMillis(TimeUnit.NANOSECONDS.toMillis(replyAt.get() - start)));
+        } else {
+            MCEngineArtificialIntelligenceApiUtilStream stream =
+                    new MCEngineArtificialIntelligenceApiUtilStream(platform, System.nanoTime(), onChunk);
+            // Only feed the event parser when the provider accepted the request, so failed
+            // attempts can be retried; a broken stream is not retried as text may already be shown
+            HttpResponse.BodyHandler<Void> handler = info -> {
+                replyAt.set(System.nanoTime());
+                return info.statusCode() == 200
+                        ? HttpResponse.BodySubscribers.fromLineSubscriber(stream)
+                        : HttpResponse.BodySubscribers.replacing(null);
+            };
+            result = exchange(plugin, platform, aiModel, request, handler, false, deadline)
+                    .thenApply(response -> response.statusCode() != 200
+                            ? statusError(plugin, response.statusCode())
+                            : stream.toResponse().withReplyMillis(TimeUnit.NANOSECONDS.toMillis(replyAt.get() - start)));
+        }
+        return result.exceptionally(e -> errorResponse(plugin, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e));
+    }
 
-            if (isOpenRouter) {
-                conn.setRequestProperty("HTTP-Referer", "https://github.com/mcengine");
-                conn.setRequestProperty("X-Title", "MCEngine AI");
-            }
+    /**
+     * Sends a request through the resilience layers: the endpoint's circuit breaker and retry policy
+     * wrap every attempt, and each attempt waits for the platform/model limiter, whose concurrency
+     * limit then adapts to the attempt's outcome. When the platform lists several backends, each
+     * attempt is routed to one of them by the platform's balancer, which counts transport errors, HTTP
+     * timeouts and {@code 5xx} responses against the backend but not cancellations or the call's deadline.
+     * <p>
+     * Each attempt is limited to {@code ai.<platform>.timeout.request-ms} (default {@code 60000}, {@code 0} for
+     * no limit), covering the response headers and body, and never runs past the call's deadline. An attempt still running
+     * when its limit passes is cancelled, which aborts the exchange.
+     *
+     * @param plugin           The Bukkit plugin instance.
+     * @param platform         The platform key.
+     * @param aiModel          The model name.
+     * @param request          The request to send.
+     * @param bodyHandler      The handler that consumes the response body.
+     * @param retryOnException Whether failed attempts without a response may be retried.
+     * @param deadline         The call's deadline, or {@code null} for none.
+     * @param <T>              The body type.
+     * @return A future completed with the HTTP response of the last attempt.
+     */
+    private static <T> CompletableFuture<HttpResponse<T>> exchange(
+            Plugin plugin,
+            String platform,
+            String aiModel,
+            HttpRequest request,
+            HttpResponse.BodyHandler<T> bodyHandler,
+            boolean retryOnException,
+            MCEngineArtificialIntelligenceApiUtilDeadline deadline
+    ) {
+        MCEngineArtificialIntelligenceApiUtilLimiter.Limiter limiter =
+                MCEngineArtificialIntelligenceApiUtilLimiter.get(plugin, platform, aiModel);
+        MCEngineArtificialIntelligenceApiUtilBalancer.Balancer balancer =
+                MCEngineArtificialIntelligenceApiUtilBalancer.get(plugin, platform);
+        long requestTimeout = plugin.getConfig().getLong("ai." + platform + ".timeout.request-ms", 60_000L);
+        // With several backends the balancer ejects failing ones, so the configured URL gets no breaker of its own
+        return MCEngineArtificialIntelligenceApiUtilRetry.execute(plugin, platform, balancer != null ? null : request.uri().toString(),
+                () -> limiter.acquire(deadline).thenCompose(ignored -> {
+                    MCEngineArtificialIntelligenceApiUtilDeadline attemptDeadline = deadline != null
+                            ? deadline.min(requestTimeout)
+                            : requestTimeout > 0 ? MCEngineArtificialIntelligenceApiUtilDeadline.after(requestTimeout) : null;
+                    // Platforms with several backends route every attempt separately, so retries can fail over
+                    MCEngineArtificialIntelligenceApiUtilBalancer.Backend backend = balancer != null ? balancer.pick() : null;
+                    HttpRequest.Builder builder = HttpRequest.newBuilder(request, (name, value) -> true);
+                    if (attemptDeadline != null) {
+                        builder.timeout(Duration.ofMillis(Math.max(1, attemptDeadline.remainingMillis())));
+                    }
+                    if (backend != null) {
+                        builder.uri(URI.create(backend.getUrl()));
+                    }
+                    return MCEngineArtificialIntelligenceApiUtilHttp
+                            .sendAsync(plugin, platform, builder.build(), bodyHandler, attemptDeadline)
+                            .whenComplete((response, error) -> {
+                                int status = response != null ? response.statusCode() : -1;
+                                limiter.release(status);
+                                if (backend == null) {
+                                    return;
+                                }
+                                // Cancellations and the call's deadline passing are no fault of the backend
+                                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                                if (cause != null && MCEngineArtificialIntelligenceApiUtilRetry.isLocalFailure(cause, deadline)) {
+                                    balancer.abandon(backend);
+                                } else {
+                                    balancer.release(backend, status < 0 || status >= 500);
+                                }
+                            });
+                }),
+                retryOnException,
+                deadline);
+    }
 
-            conn.setDoOutput(true);
+    /**
+     * Logs a non-200 status and wraps it as an error response.
+     *
+     * @param plugin     The Bukkit plugin instance.
+     * @param statusCode The HTTP status returned by the provider.
+     * @return Error response.
+     */
+    private static MCEngineArtificialIntelligenceApiResponse statusError(Plugin plugin, int statusCode) {
+        plugin.getLogger().warning("AI API returned status: " + statusCode);
+        return MCEngineArtificialIntelligenceApiResponse.error("API request failed with status code: " + statusCode);
+    }
 
-            JsonObject payload = new JsonObject();
-            payload.addProperty("model", aiModel);
-            payload.addProperty("temperature", 0.7);
+    /**
+     * Builds the chat completion HTTP request.
+     * <p>
+     * The body always starts with {@code model} and {@code messages}, and the messages run from the system
+     * prompt through the history to the new message, so consecutive requests of a conversation share a
+     * byte-identical prefix. Per-request settings follow the messages.
+     *
+     * @param endpoint     API endpoint URL.
+     * @param aiModel      Model name.
+     * @param actualToken  Decrypted bearer token.
+     * @param systemPrompt The system prompt, may be {@code null} or empty.
+     * @param history      Earlier turns of the conversation, oldest first.
+     * @param message      User prompt content.
+     * @param isOpenRouter Whether to include OpenRouter headers.
+     * @param stream       Whether to request a server-sent event stream with a trailing usage block.
+     * @return The POST request carrying the JSON payload.
+     */
+    private static HttpRequest buildRequest(
+            String endpoint,
+            String aiModel,
+            String actualToken,
+            String systemPrompt,
+            List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history,
+            String message,
+            boolean isOpenRouter,
+            boolean stream
+    ) {
+        JsonArray messages = new JsonArray();
 
-            JsonArray messages = new JsonArray();
+        if (systemPrompt != null && !systemPrompt.isEmpty()) {
+            messages.add(message("system", systemPrompt));
+        }
+        for (MCEngineArtificialIntelligenceApiUtilConversation.Turn turn : history) {
+            messages.add(message(turn.getRole().getName(), turn.getContent()));
+        }
+        messages.add(message("user", message));
 
-            if (systemPrompt != null && !systemPrompt.isEmpty()) {
-                JsonObject systemMessage = new JsonObject();
-                systemMessage.addProperty("role", "system");
-                systemMessage.addProperty("content", systemPrompt);
-                messages.add(systemMessage);
-            }
+        // Gson writes properties in insertion order, so the stable part of the body comes first
+        JsonObject payload = new JsonObject();
+        payload.addProperty("model", aiModel);
+        payload.add("messages", messages);
+        payload.addProperty("temperature", 0.7);
 
-            JsonObject userMessage = new JsonObject();
-            userMessage.addProperty("role", "user");
-            userMessage.addProperty("content", message);
-            messages.add(userMessage);
+        if (stream) {
+            payload.addProperty("stream", true);
+            JsonObject streamOptions = new JsonObject();
+            streamOptions.addProperty("include_usage", true);
+            payload.add("stream_options", streamOptions);
+        }
 
-            payload.add("messages", messages);
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(endpoint))
+                .header("Authorization", "Bearer " + actualToken)
+                .header("Content-Type", "application/json")
+                .header("Accept", stream ? "text/event-stream" : "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(payload.toString(), StandardCharsets.UTF_8));
 
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(payload.toString().getBytes(StandardCharsets.UTF_8));
-            }
+        if (isOpenRouter) {
+            request.header("HTTP-Referer", "https://github.com/mcengine");
+            request.header("X-Title", "MCEngine AI");
+        }
 
-            int statusCode = conn.getResponseCode();
-            if (statusCode != 200) {
-                plugin.getLogger().warning("AI API returned status: " + statusCode);
-                JsonObject error = new JsonObject();
-                error.addProperty("error", "API request failed with status code: " + statusCode);
-                return error;
-            }
+        return request.build();
+    }
 
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-            StringBuilder responseBuilder = new StringBuilder();
-            String line;
-            while ((line = in.readLine()) != null) {
-                responseBuilder.append(line);
-            }
-            in.close();
+    /**
+     * Builds one chat message.
+     *
+     * @param role    The role ({@code system}, {@code user} or {@code assistant}).
+     * @param content The message text.
+     * @return The message object.
+     */
+    private static JsonObject message(String role, String content) {
+        JsonObject message = new JsonObject();
+        message.addProperty("role", role);
+        message.addProperty("content", content);
+        return message;
+    }
 
-            return JsonParser.parseString(responseBuilder.toString()).getAsJsonObject();
-        } catch (Exception e) {
-            plugin.getLogger().severe("AI API error: " + e.getMessage());
-            JsonObject error = new JsonObject();
-            error.addProperty("error", "Exception: " + e.getMessage());
-            return error;
+    /**
+     * Combines the system prompt and history into the context part of the cache and single-flight keys.
+     *
+     * @param systemPrompt The system prompt, may be {@code null}.
+     * @param history      Earlier turns of the conversation.
+     * @return The system prompt alone when there is no history.
+     */
+    private static String context(String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history) {
+        if (history.isEmpty()) {
+            return systemPrompt;
         }
+        StringBuilder context = new StringBuilder(systemPrompt == null ? "" : systemPrompt);
+        for (MCEngineArtificialIntelligenceApiUtilConversation.Turn turn : history) {
+            context.append('\u0000').append(turn.getRole().getName()).append('\u0000').append(turn.getContent());
+        }
+        return context.toString();
+    }
+
+    /**
+     * Logs an exception raised while calling the AI API and wraps it as an error response.
+     *
+     * @param plugin The Bukkit plugin instance.
+     * @param e      The failure.
+     * @return Error response.
+     */
+    private static MCEngineArtificialIntelligenceApiResponse errorResponse(Plugin plugin, Throwable e) {
+        plugin.getLogger().severe("AI API error: " + e.getMessage());
+        return MCEngineArtificialIntelligenceApiResponse.error("Exception: " + e.getMessage());
     }
 
     /**
@@ -142,16 +661,17 @@ public class MCEngineArtificialIntelligenceApiUtilAi {
      * @return The generated message content or fallback string.
      */
     public static String getCompletionContent(JsonObject responseJson) {
-        try {
-            JsonArray choices = responseJson.getAsJsonArray("choices");
-            if (choices != null && choices.size() > 0) {
-                JsonObject messageObj = choices.get(0).getAsJsonObject().getAsJsonObject("message");
-                return messageObj.get("content").getAsString().trim();
-            }
-        } catch (Exception e) {
-            return "Error parsing content: " + e.getMessage();
-        }
-        return "No response from AI.";
+        return getCompletionContent(MCEngineArtificialIntelligenceApiResponse.fromJson(responseJson));
+    }
+
+    /**
+     * Extracts the completion content from a typed response.
+     *
+     * @param response The typed response.
+     * @return The generated message content, trimmed, or fallback string.
+     */
+    public static String getCompletionContent(MCEngineArtificialIntelligenceApiResponse response) {
+        return response.getContent() != null ? response.getContent().trim() : "No response from AI.";
     }
 
     /**
@@ -161,94 +681,96 @@ public class MCEngineArtificialIntelligenceApiUtilAi {
      * @return Total token usage as integer, or -1 if not available.
      */
     public static int getTotalTokenUsage(JsonObject responseJson) {
-        try {
-            JsonObject usage = responseJson.getAsJsonObject("usage");
-            if (usage != null && usage.has("total_tokens")) {
-                return usage.get("total_tokens").getAsInt();
-            }
-        } catch (Exception ignored) {
-        }
-        return -1;
+        return MCEngineArtificialIntelligenceApiResponse.fromJson(responseJson).getTotalTokens();
     }
 
     /**
      * Registers an AI model into the cache for given platform and model name.
+     * The model is created by the platform's {@link MCEngineArtificialIntelligenceApiUtilProvider provider}.
      *
      * @param plugin   The Bukkit plugin instance.
      * @param platform AI platform name.
      * @param model    Model name.
+     * @throws IllegalArgumentException If no provider serves the platform or it rejects the model name.
      */
     public static void registerModel(Plugin plugin, String platform, String model) {
         Logger logger = plugin.getLogger();
         platform = platform.toLowerCase();
+        if (!MCEngineArtificialIntelligenceApiUtilHedge.isInitialized()) {
+            MCEngineArtificialIntelligenceApiUtilHedge.initialize(plugin);
+        }
 
-        synchronized (modelCache) {
-            modelCache.putIfAbsent(platform, new HashMap<>());
-            Map<String, IMCEngineArtificialIntelligenceApiModel> platformMap = modelCache.get(platform);
+        Map<String, IMCEngineArtificialIntelligenceApiModel> platformMap = modelCache.get(platform);
+        if (platformMap != null && platformMap.containsKey(model)) {
+            return;
+        }
 
-            if (platformMap.containsKey(model)) {
-                return;
-            }
+        IMCEngineArtificialIntelligenceApiModelProvider provider = MCEngineArtificialIntelligenceApiUtilProvider.get(plugin, platform);
+        if (provider == null) {
+            throw new IllegalArgumentException("Unsupported AI platform: " + platform);
+        }
 
-            IMCEngineArtificialIntelligenceApiModel aiModel;
-            switch (platform) {
-                case "openai":
-                    aiModel = new MCEngineArtificialIntelligenceApiModelOpenAi(plugin, model);
-                    break;
-                case "deepseek":
-                    aiModel = new MCEngineArtificialIntelligenceApiModelDeepSeek(plugin, model);
-                    break;
-                case "openrouter":
-                    aiModel = new MCEngineArtificialIntelligenceApiModelOpenRouter(plugin, model);
-                    break;
-                case "customurl":
-                    String[] parts = model.split(":", 2);
-                    if (parts.length != 2) {
-                        throw new IllegalArgumentException("CustomURL model must be in format 'server:modelName'. Got: " + model);
-                    }
-                    String server = parts[0];
-                    String actualModel = parts[1];
-                    aiModel = new MCEngineArtificialIntelligenceApiModelCustomUrl(plugin, server, actualModel);
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unsupported AI platform: " + platform);
-            }
+        // Creation runs inside the map's per-key lock, so concurrent registrations build the model only once
+        boolean[] created = {false};
+        modelCache.computeIfAbsent(platform, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(model, key -> {
+                    created[0] = true;
+                    return provider.create(plugin, key);
+                });
+        if (!created[0]) {
+            return;
+        }
 
-            platformMap.put(model, aiModel);
-            logger.info("*".repeat(15));
-            logger.info("Registered AI");
-            logger.info("Platform: " + platform);
-            logger.info("Model: " + model);
-            logger.info("*".repeat(15));
+        logger.info("*".repeat(15));
+        logger.info("Registered AI");
+        logger.info("Platform: " + platform);
+        logger.info("Model: " + model);
+        logger.info("*".repeat(15));
+    }
+
+    /**
+     * Returns the config and metrics key of a registered model's platform: the platform name itself, or
+     * {@code custom.<server>} for {@code customurl} models registered as {@code server:model}.
+     *
+     * @param platform The registered platform name.
+     * @param model    The registered model name.
+     * @return The platform key.
+     */
+    public static String getPlatformKey(String platform, String model) {
+        platform = platform.toLowerCase();
+        if (platform.equals("customurl")) {
+            int split = model.indexOf(':');
+            return "custom." + (split < 0 ? model : model.substring(0, split));
         }
+        return platform;
     }
 
     /**
-     * Retrieves the AI model instance from cache.
+     * Retrieves the AI model instance from cache. Lookups take no lock.
      *
      * @param platform AI platform name.
      * @param model    Model name.
      * @return AI model instance.
      */
     public static IMCEngineArtificialIntelligenceApiModel getAi(String platform, String model) {
-        platform = platform.toLowerCase();
-        synchronized (modelCache) {
-            Map<String, IMCEngineArtificialIntelligenceApiModel> platformMap = modelCache.get(platform);
-            if (platformMap == null || !platformMap.containsKey(model)) {
-                throw new IllegalStateException("AI model not registered → platform=" + platform + ", model=" + model);
-            }
-            return platformMap.get(model);
+        Map<String, IMCEngineArtificialIntelligenceApiModel> platformMap = modelCache.get(platform.toLowerCase());
+        IMCEngineArtificialIntelligenceApiModel aiModel = platformMap != null ? platformMap.get(model) : null;
+        if (aiModel == null) {
+            throw new IllegalStateException("AI model not registered → platform=" + platform.toLowerCase() + ", model=" + model);
         }
+        return aiModel;
     }
 
     /**
-     * Returns a shallow copy of all currently registered AI models.
+     * Returns a snapshot of all currently registered AI models.
      *
      * @return Map of platform names to their model instances.
      */
     public static Map<String, Map<String, ?>> getAllModels() {
-        synchronized (modelCache) {
-            return new HashMap<>(modelCache);
+        Map<String, Map<String, ?>> models = new HashMap<>();
+        for (Map.Entry<String, Map<String, IMCEngineArtificialIntelligenceApiModel>> entry : modelCache.entrySet()) {
+            models.put(entry.getKey(), new HashMap<>(entry.getValue()));
         }
+        return models;
     }
 }
@@ -0,0 +1,395 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import org.bukkit.plugin.Plugin;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load balancing across several backends of one platform, typically a self-hosted
+ * {@code ai.custom.<server>} running multiple OpenAI-compatible inference boxes.
+ * <p>
+ * Backends are listed under {@code ai.<platform>.backends}, each with a {@code url}, an optional
+ * {@code weight} (default {@code 1}) and an optional {@code health-url}:
+ * <pre>
+ * ai:
+ *   custom:
+ *     myserver:
+ *       backends:
+ *         - url: http://10.0.0.1:11434/v1/chat/completions
+ *           weight: 2
+ *         - url: http://10.0.0.2:11434/v1/chat/completions
+ * </pre>
+ * Each attempt is routed to a healthy backend by weighted power-of-two-choices (default) or
+ * least-outstanding-requests, comparing outstanding requests divided by weight. A backend is ejected
+ * after consecutive failures (transport errors or {@code 5xx}) and brought back once a periodic
+ * health probe gets a non-{@code 5xx} answer. If every backend is ejected, all of them are eligible again
+ * so requests keep flowing to whichever recovers first.
+ * <p>
+ * Balancer settings are read from {@code ai.<platform>.balancer}:
+ * <ul>
+ *     <li>{@code strategy} – {@code power-of-two} (default) or {@code least-outstanding}</li>
+ *     <li>{@code eject-after} – consecutive failures before ejection, default {@code 3}</li>
+ *     <li>{@code health-interval-seconds} – probe interval for ejected backends, default {@code 10}</li>
+ * </ul>
+ */
+public class MCEngineArtificialIntelligenceApiUtilBalancer {
+
+    /**
+     * Balancers keyed by platform key; empty for platforms without a backend list.
+     */
+    private static final Map<String, Optional<Balancer>> balancers = new ConcurrentHashMap<>();
+
+    /**
+     * Timer running the health probes of ejected backends; created on first use and stopped by {@link #shutdown()}.
+     */
+    private static ScheduledExecutorService prober;
+
+    /**
+     * Returns the balancer of a platform, building it from config on first use.
+     *
+     * @param plugin   The Bukkit plugin instance used for configuration.
+     * @param platform The platform key (e.g. {@code custom.<server>}).
+     * @return The balancer, or {@code null} if the platform has no {@code backends} list.
+     */
+    public static Balancer get(Plugin plugin, String platform) {
+        return balancers.computeIfAbsent(platform, key -> Optional.ofNullable(create(plugin, key))).orElse(null);
+    }
+
+    /**
+     * Returns the state of every backend of every balancer.
+     *
+     * @return Map of platform key → backend URL → counters.
+     */
+    public static Map<String, Map<String, Map<String, Long>>> getStats() {
+        Map<String, Map<String, Map<String, Long>>> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, Optional<Balancer>> entry : balancers.entrySet()) {
+            entry.getValue().ifPresent(balancer -> stats.put(entry.getKey(), balancer.getStats()));
+        }
+        return stats;
+    }
+
+    /**
+     * Stops all balancers so they are rebuilt from config on next use.
+     * Typically called when the plugin is reloaded.
+     */
+    public static void reset() {
+        for (Optional<Balancer> balancer : balancers.values()) {
+            balancer.ifPresent(Balancer::stop);
+        }
+        balancers.clear();
+    }
+
+    /**
+     * Stops all balancers and the health probe thread. Typically called when the plugin is disabled.
+     */
+    public static synchronized void shutdown() {
+        reset();
+        if (prober != null) {
+            prober.shutdownNow();
+            prober = null;
+        }
+    }
+
+    /**
+     * Returns the health probe timer, starting it if needed.
+     */
+    private static synchronized ScheduledExecutorService prober() {
+        if (prober == null) {
+            prober = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "MCEngineAI-HealthProbe");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return prober;
+    }
+
+    /**
+     * Builds a balancer from the platform's backend list.
+     */
+    private static Balancer create(Plugin plugin, String platform) {
+        String configBase = "ai." + platform + ".";
+        List<Map<?, ?>> entries = plugin.getConfig().getMapList(configBase + "backends");
+        if (entries.isEmpty()) {
+            return null;
+        }
+
+        List<Backend> backends = new ArrayList<>();
+        for (Map<?, ?> entry : entries) {
+            Object url = entry.get("url");
+            if (url == null) {
+                plugin.getLogger().warning("Ignoring backend without url in " + configBase + "backends");
+                continue;
+            }
+            Object weight = entry.get("weight");
+            Object healthUrl = entry.get("health-url");
+            backends.add(new Backend(
+                    url.toString(),
+                    weight instanceof Number ? Math.max(1, ((Number) weight).intValue()) : 1,
+                    healthUrl != null ? healthUrl.toString() : defaultHealthUrl(url.toString())
+            ));
+        }
+        if (backends.isEmpty()) {
+            return null;
+        }
+
+        boolean leastOutstanding = "least-outstanding".equalsIgnoreCase(
+                plugin.getConfig().getString(configBase + "balancer.strategy", "power-of-two"));
+        int ejectAfter = Math.max(1, plugin.getConfig().getInt(configBase + "balancer.eject-after", 3));
+        long interval = Math.max(1, plugin.getConfig().getLong(configBase + "balancer.health-interval-seconds", 10L));
+        HttpClient client = MCEngineArtificialIntelligenceApiUtilHttp.getPool(plugin, platform, backends.get(0).url).getClient();
+
+        Balancer balancer = new Balancer(backends, leastOutstanding, ejectAfter);
+        balancer.probeTask = prober().scheduleWithFixedDelay(() -> balancer.probe(client), interval, interval, TimeUnit.SECONDS);
+        return balancer;
+    }
+
+    /**
+     * Derives a health URL for an OpenAI-compatible backend: {@code .../chat/completions} becomes
+     * {@code .../models}, anything else probes the server root.
+     */
+    private static String defaultHealthUrl(String url) {
+        if (url.endsWith("/chat/completions")) {
+            return url.substring(0, url.length() - "/chat/completions".length()) + "/models";
+        }
+        URI uri = URI.create(url);
+        return uri.getScheme() + "://" + uri.getAuthority() + "/";
+    }
+
+    /**
+     * Routing state for one platform's backends.
+     */
+    public static class Balancer {
+
+        /** All configured backends. */
+        private final List<Backend> backends;
+
+        /** Whether to scan for the least loaded backend instead of sampling two. */
+        private final boolean leastOutstanding;
+
+        /** Consecutive failures before ejection. */
+        private final int ejectAfter;
+
+        /** Handle of the periodic probe, cancelled on reset. */
+        private ScheduledFuture<?> probeTask;
+
+        Balancer(List<Backend> backends, boolean leastOutstanding, int ejectAfter) {
+            this.backends = backends;
+            this.leastOutstanding = leastOutstanding;
+            this.ejectAfter = ejectAfter;
+        }
+
+        /**
+         * Picks a backend for one attempt and counts it as outstanding.
+         * The caller must report the outcome with {@link #release(Backend, boolean)}.
+         *
+         * @return The chosen backend.
+         */
+        public Backend pick() {
+            List<Backend> candidates = new ArrayList<>(backends.size());
+            for (Backend backend : backends) {
+                if (!backend.ejected) {
+                    candidates.add(backend);
+                }
+            }
+            if (candidates.isEmpty()) {
+                candidates = backends;
+            }
+
+            Backend chosen;
+            if (candidates.size() == 1) {
+                chosen = candidates.get(0);
+            } else if (leastOutstanding) {
+                chosen = weightedRandom(candidates, null);
+                for (Backend backend : candidates) {
+                    if (backend.load() < chosen.load()) {
+                        chosen = backend;
+                    }
+                }
+            } else {
+                Backend first = weightedRandom(candidates, null);
+                Backend second = weightedRandom(candidates, first);
+                chosen = second.load() < first.load() ? second : first;
+            }
+            chosen.outstanding.incrementAndGet();
+            chosen.requests.incrementAndGet();
+            return chosen;
+        }
+
+        /**
+         * Samples a backend with probability proportional to its weight, skipping {@code exclude}.
+         */
+        private Backend weightedRandom(List<Backend> candidates, Backend exclude) {
+            int total = 0;
+            for (Backend backend : candidates) {
+                if (backend != exclude) {
+                    total += backend.weight;
+                }
+            }
+            int roll = ThreadLocalRandom.current().nextInt(total);
+            for (Backend backend : candidates) {
+                if (backend == exclude) {
+                    continue;
+                }
+                roll -= backend.weight;
+                if (roll < 0) {
+                    return backend;
+                }
+            }
+            return candidates.get(0);
+        }
+
+        /**
+         * Reports the outcome of an attempt routed by {@link #pick()}, ejecting the backend once it
+         * reaches the consecutive failure threshold.
+         *
+         * @param backend The backend the attempt was sent to.
+         * @param failed  {@code true} for a transport error or {@code 5xx} response.
+         */
+        public void release(Backend backend, boolean failed) {
+            backend.outstanding.decrementAndGet();
+            if (!failed) {
+                backend.consecutiveFailures.set(0);
+                return;
+            }
+            backend.failures.incrementAndGet();
+            if (backend.consecutiveFailures.incrementAndGet() >= ejectAfter && !backend.ejected) {
+                backend.ejected = true;
+                backend.ejections.incrementAndGet();
+            }
+        }
+
+        /**
+         * Releases a backend whose attempt ended on this side without an answer, e.g. because the call was
+         * cancelled or its deadline passed. The attempt counts neither as a success nor as a failure.
+         *
+         * @param backend The backend the attempt was sent to.
+         */
+        public void abandon(Backend backend) {
+            backend.outstanding.decrementAndGet();
+        }
+
+        /**
+         * Probes every ejected backend and re-admits those that answer.
+         */
+        private void probe(HttpClient client) {
+            for (Backend backend : backends) {
+                if (!backend.ejected) {
+                    continue;
+                }
+                HttpRequest request = HttpRequest.newBuilder(URI.create(backend.healthUrl))
+                        .timeout(Duration.ofSeconds(5))
+                        .GET()
+                        .build();
+                client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                    if (response != null && response.statusCode() < 500) {
+                        backend.consecutiveFailures.set(0);
+                        backend.ejected = false;
+                    }
+                });
+            }
+        }
+
+        /**
+         * Cancels the health probe.
+         */
+        void stop() {
+            if (probeTask != null) {
+                probeTask.cancel(false);
+            }
+        }
+
+        /**
+         * Returns the state of every backend.
+         *
+         * @return Map of backend URL to counters.
+         */
+        public Map<String, Map<String, Long>> getStats() {
+            Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+            for (Backend backend : backends) {
+                Map<String, Long> counters = new LinkedHashMap<>();
+                counters.put("weight", (long) backend.weight);
+                counters.put("outstanding", (long) backend.outstanding.get());
+                counters.put("requests", backend.requests.get());
+                counters.put("failures", backend.failures.get());
+                counters.put("ejections", backend.ejections.get());
+                counters.put("ejected", backend.ejected ? 1L : 0L);
+                stats.put(backend.url, counters);
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * One backend of a balanced platform.
+     */
+    public static class Backend {
+
+        /** Chat completion URL of the backend. */
+        private final String url;
+
+        /** Relative share of traffic. */
+        private final int weight;
+
+        /** URL probed while ejected. */
+        private final String healthUrl;
+
+        /** Requests currently in flight. */
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        /** Failures since the last success. */
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+        /** Requests routed here. */
+        private final AtomicLong requests = new AtomicLong();
+
+        /** Failures recorded. */
+        private final AtomicLong failures = new AtomicLong();
+
+        /** Times this backend was ejected. */
+        private final AtomicLong ejections = new AtomicLong();
+
+        /** Whether the backend is currently out of rotation. */
+        private volatile boolean ejected;
+
+        Backend(String url, int weight, String healthUrl) {
+            this.url = url;
+            this.weight = weight;
+            this.healthUrl = healthUrl;
+        }
+
+        /**
+         * Returns the backend's chat completion URL.
+         *
+         * @return The URL.
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * Outstanding requests relative to weight. Idle backends tie at zero, in which case the
+         * weighted random sample decides.
+         */
+        private double load() {
+            return outstanding.get() / (double) weight;
+        }
+    }
+}
@@ -2,18 +2,23 @@ package io.github.mcengine.api.artificialintelligence.util;
 
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
 
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * API utility class to manage AI chat conversations for each player.
  * <p>
+ * Each player's state lives in one {@link MCEngineArtificialIntelligenceApiUtilSession}, so handling a message
+ * takes a single map lookup. Sessions are created on join (see {@link #join(Player)}) or on first use and
+ * removed on quit or after being idle for too long (see {@link MCEngineArtificialIntelligenceApiUtilIdleEvictor}).
+ * <p>
  * Handles:
  * <ul>
- *     <li>Conversation history tracking</li>
+ *     <li>Bounded conversation history tracking, with background compaction of long histories</li>
  *     <li>Player session activation/deactivation</li>
  *     <li>Waiting state tracking</li>
  *     <li>Model and platform assignments per player</li>
@@ -23,29 +28,175 @@ import java.util.concurrent.ConcurrentHashMap;
 public class MCEngineArtificialIntelligenceApiUtilBotManager {
 
     /**
-     * Stores the conversation history per player UUID.
+     * Player UUID → session holding the conversation, active flag, wait state, platform and model.
+     */
+    private static final Map<UUID, MCEngineArtificialIntelligenceApiUtilSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum turns kept per conversation, from {@code ai.history.max-turns}.
+     */
+    private static volatile int maxTurns = 20;
+
+    /**
+     * Token budget per conversation, from {@code ai.history.max-tokens}.
+     */
+    private static volatile int maxTokens = 2000;
+
+    /**
+     * Messages queued per player while a request is in progress, from {@code ai.queue.size}.
+     */
+    private static volatile int queueSize = 3;
+
+    /**
+     * Whether a full queue drops its oldest message, from {@code ai.queue.overflow}.
+     */
+    private static volatile boolean queueDropOldest;
+
+    /**
+     * Maximum gap between queued messages sent as one request, from {@code ai.queue.coalesce-ms}.
+     */
+    private static volatile long coalesceMillis = 1500L;
+
+    /**
+     * Whether the history limits have been read from config.
+     */
+    private static volatile boolean initialized;
+
+    /**
+     * Reads the conversation history limits from the plugin config. Conversations started afterwards use them.
+     * <ul>
+     *     <li>{@code ai.history.max-turns} – turns kept per player, default {@code 20}</li>
+     *     <li>{@code ai.history.max-tokens} – estimated tokens kept per player, default {@code 2000}; {@code 0} for no limit</li>
+     *     <li>{@code ai.queue.size} – messages queued per player while the AI is answering, default {@code 3};
+     *         {@code 0} rejects them</li>
+     *     <li>{@code ai.queue.overflow} – {@code reject} (default) drops new messages when the queue is full,
+     *         {@code drop-oldest} makes room by dropping the oldest queued message</li>
+     *     <li>{@code ai.queue.coalesce-ms} – queued messages arriving within this gap of each other are sent as one
+     *         request, default {@code 1500}</li>
+     * </ul>
+     * Also reads the compaction, idle eviction and spill settings, see {@link MCEngineArtificialIntelligenceApiUtilCompactor},
+     * {@link MCEngineArtificialIntelligenceApiUtilIdleEvictor} and {@link MCEngineArtificialIntelligenceApiUtilSessionStore}.
+     *
+     * @param plugin The Bukkit plugin instance.
+     */
+    public static void initialize(Plugin plugin) {
+        maxTurns = Math.max(1, plugin.getConfig().getInt("ai.history.max-turns", 20));
+        maxTokens = plugin.getConfig().getInt("ai.history.max-tokens", 2000);
+        queueSize = Math.max(0, plugin.getConfig().getInt("ai.queue.size", 3));
+        queueDropOldest = "drop-oldest".equalsIgnoreCase(plugin.getConfig().getString("ai.queue.overflow", "reject"));
+        coalesceMillis = Math.max(0L, plugin.getConfig().getLong("ai.queue.coalesce-ms", 1500L));
+        MCEngineArtificialIntelligenceApiUtilCompactor.initialize(plugin);
+        MCEngineArtificialIntelligenceApiUtilSessionStore.initialize(plugin);
+        MCEngineArtificialIntelligenceApiUtilIdleEvictor.initialize(plugin, sessions.values());
+        initialized = true;
+    }
+
+    /**
+     * Checks whether the history limits have been read from config.
+     *
+     * @return {@code true} once {@link #initialize(Plugin)} has run.
+     */
+    public static boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * Returns how many messages are queued per player while a request is in progress.
+     *
+     * @return The queue capacity; {@code 0} if messages are rejected instead.
+     */
+    public static int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Returns whether a full queue drops its oldest message instead of the new one.
+     *
+     * @return {@code true} for the {@code drop-oldest} overflow policy.
+     */
+    public static boolean isQueueDropOldest() {
+        return queueDropOldest;
+    }
+
+    /**
+     * Returns the maximum gap between queued messages that are sent as one request.
+     *
+     * @return The coalescing window in milliseconds.
+     */
+    public static long getCoalesceMillis() {
+        return coalesceMillis;
+    }
+
+    /**
+     * Returns the player's session, creating it if needed, and marks it as used.
+     *
+     * @param player The player.
+     * @return The session.
      */
-    private static final Map<UUID, StringBuilder> playerConversations = new ConcurrentHashMap<>();
+    public static MCEngineArtificialIntelligenceApiUtilSession getSession(Player player) {
+        MCEngineArtificialIntelligenceApiUtilSession session = sessions.computeIfAbsent(player.getUniqueId(),
+                MCEngineArtificialIntelligenceApiUtilBotManager::newSession);
+        session.touch();
+        return session;
+    }
 
     /**
-     * Tracks players with active AI sessions.
+     * Checks whether a session is still the one registered for its player.
+     *
+     * @param session The session.
+     * @return {@code false} once the session has been terminated, evicted or replaced.
      */
-    private static final Set<UUID> activePlayers = ConcurrentHashMap.newKeySet();
+    public static boolean isCurrent(MCEngineArtificialIntelligenceApiUtilSession session) {
+        return sessions.get(session.getPlayerUuid()) == session;
+    }
 
     /**
-     * Tracks players currently waiting for an AI response.
+     * Drops an idle session and everything cached for it, spilling its conversation to disk when enabled.
+     * Idleness is checked again under the session's lock, so a session used or given a message since the
+     * caller looked at it is kept; once dropped, the session accepts no more messages.
+     *
+     * @param session       The session.
+     * @param timeoutMillis Idle time after which the session may be dropped.
+     * @param now           The current time in epoch milliseconds.
+     * @return {@code true} if the session was dropped.
      */
-    private static final Set<UUID> waitingPlayers = ConcurrentHashMap.newKeySet();
+    public static boolean evictIdle(MCEngineArtificialIntelligenceApiUtilSession session, long timeoutMillis, long now) {
+        synchronized (session) {
+            if (session.isBusy() || session.getLastActive() + timeoutMillis > now
+                    || !sessions.remove(session.getPlayerUuid(), session)) {
+                return false;
+            }
+            session.detach();
+        }
+        session.setActive(false);
+        MCEngineArtificialIntelligenceApiUtilToken.evict(session.getPlayerUuid());
+        MCEngineArtificialIntelligenceApiUtilCompactor.evict(session.getPlayerUuid());
+        MCEngineArtificialIntelligenceApiUtilSessionStore.spill(session);
+        return true;
+    }
 
     /**
-     * Maps player UUIDs to the AI platform in use.
+     * Creates the player's session ahead of their first message. Typically called when the player joins.
+     *
+     * @param player The player.
      */
-    private static final Map<UUID, String> playerPlatform = new ConcurrentHashMap<>();
+    public static void join(Player player) {
+        getSession(player);
+    }
 
     /**
-     * Maps player UUIDs to the AI model in use.
+     * Drops the player's session and everything cached for it, spilling its conversation to disk when enabled.
+     * Typically called when the player quits.
+     *
+     * @param player The player.
      */
-    private static final Map<UUID, String> playerModel = new ConcurrentHashMap<>();
+    public static void quit(Player player) {
+        MCEngineArtificialIntelligenceApiUtilSession session = sessions.get(player.getUniqueId());
+        if (session != null) {
+            MCEngineArtificialIntelligenceApiUtilSessionStore.spill(session);
+        }
+        terminate(player);
+    }
 
     /**
      * Initializes a new conversation for the given player.
@@ -53,39 +204,85 @@ public class MCEngineArtificialIntelligenceApiUtilBotManager {
      * @param player The player to start a conversation for.
      */
     public static void startConversation(Player player) {
-        playerConversations.put(player.getUniqueId(), new StringBuilder());
+        getSession(player).setConversation(newConversation());
+    }
+
+    /**
+     * Returns the player's conversation, starting one if needed.
+     *
+     * @param player The player.
+     * @return The conversation.
+     */
+    public static MCEngineArtificialIntelligenceApiUtilConversation getConversation(Player player) {
+        return getSession(player).getConversation();
+    }
+
+    /**
+     * Appends a typed turn to the player's conversation history.
+     * If the history has grown past the compaction threshold, its older turns are summarized in the background.
+     *
+     * @param player  The player whose history to append to.
+     * @param role    Who produced the message.
+     * @param content The message text.
+     */
+    public static void addTurn(Player player, MCEngineArtificialIntelligenceApiUtilConversation.Role role, String content) {
+        addTurn(getSession(player), role, content);
+    }
+
+    /**
+     * Appends a typed turn to a session's conversation history.
+     * If the history has grown past the compaction threshold, its older turns are summarized in the background.
+     *
+     * @param session The session whose history to append to.
+     * @param role    Who produced the message.
+     * @param content The message text.
+     */
+    public static void addTurn(MCEngineArtificialIntelligenceApiUtilSession session, MCEngineArtificialIntelligenceApiUtilConversation.Role role, String content) {
+        session.touch();
+        MCEngineArtificialIntelligenceApiUtilConversation conversation = session.getConversation();
+        conversation.add(role, content);
+        MCEngineArtificialIntelligenceApiUtilCompactor.maybeCompact(session.getPlayerUuid(), conversation);
     }
 
     /**
      * Appends a message to the player's conversation history.
+     * Lines starting with {@code [Ai]: } are stored as AI turns and everything else as player turns,
+     * with a leading {@code [Player]: } removed.
      *
      * @param player  The player whose history to append to.
      * @param message The message to append.
      */
     public static void append(Player player, String message) {
-        playerConversations
-            .computeIfAbsent(player.getUniqueId(), k -> new StringBuilder())
-            .append(message)
-            .append("\n");
+        if (message.startsWith("[Ai]: ")) {
+            addTurn(player, MCEngineArtificialIntelligenceApiUtilConversation.Role.ASSISTANT, message.substring(6));
+        } else {
+            addTurn(player, MCEngineArtificialIntelligenceApiUtilConversation.Role.USER,
+                    message.startsWith("[Player]: ") ? message.substring(10) : message);
+        }
     }
 
     /**
-     * Retrieves the entire conversation history for a player.
+     * Retrieves the conversation history for a player as text, one line per turn.
+     * The text is cached by the conversation until it changes.
      *
      * @param player The player whose history to retrieve.
      * @return The conversation as a single string.
      */
     public static String get(Player player) {
-        return playerConversations.getOrDefault(player.getUniqueId(), new StringBuilder()).toString();
+        MCEngineArtificialIntelligenceApiUtilSession session = sessions.get(player.getUniqueId());
+        return session == null ? "" : session.getConversation().render();
     }
 
     /**
-     * Ends and removes the conversation history for a player.
+     * Ends the conversation history for a player; the next message starts a new one.
      *
      * @param player The player whose conversation to remove.
      */
     public static void end(Player player) {
-        playerConversations.remove(player.getUniqueId());
+        MCEngineArtificialIntelligenceApiUtilSession session = sessions.get(player.getUniqueId());
+        if (session != null) {
+            session.setConversation(newConversation());
+        }
     }
 
     /**
@@ -94,7 +291,7 @@ public class MCEngineArtificialIntelligenceApiUtilBotManager {
      * @param player The player to activate.
      */
     public static void activate(Player player) {
-        activePlayers.add(player.getUniqueId());
+        getSession(player).setActive(true);
     }
 
     /**
@@ -103,7 +300,10 @@ public class MCEngineArtificialIntelligenceApiUtilBotManager {
      * @param player The player to deactivate.
      */
     public static void deactivate(Player player) {
-        activePlayers.remove(player.getUniqueId());
+        MCEngineArtificialIntelligenceApiUtilSession session = sessions.get(player.getUniqueId());
+        if (session != null) {
+            session.setActive(false);
+        }
     }
 
     /**
@@ -113,42 +313,57 @@ public class MCEngineArtificialIntelligenceApiUtilBotManager {
      * @return True if active; false otherwise.
      */
     public static boolean isActive(Player player) {
-        return activePlayers.contains(player.getUniqueId());
+        MCEngineArtificialIntelligenceApiUtilSession session = sessions.get(player.getUniqueId());
+        return session != null && session.isActive();
     }
 
     /**
-     * Completely terminates a player's session, including conversation, model, and wait state.
+     * Completely terminates a player's session, including conversation, model, wait state and cached tokens.
+     * A request still in flight completes against the detached session and does not affect a new one.
      *
      * @param player The player to terminate.
      */
     public static void terminate(Player player) {
-        end(player);
-        deactivate(player);
-        setWaiting(player, false);
-        clearModel(player);
+        MCEngineArtificialIntelligenceApiUtilSession session = sessions.get(player.getUniqueId());
+        if (session != null) {
+            synchronized (session) {
+                sessions.remove(player.getUniqueId(), session);
+                session.detach();
+            }
+            session.setActive(false);
+            session.finish();
+        }
+        MCEngineArtificialIntelligenceApiUtilToken.evict(player.getUniqueId());
+        MCEngineArtificialIntelligenceApiUtilCompactor.evict(player.getUniqueId());
     }
 
     /**
      * Checks whether a player is currently waiting for an AI response.
      *
      * @param player The player to check.
-     * @return True if waiting; false otherwise.
+     * @return True if a request is waiting or being delivered; false otherwise.
      */
     public static boolean isWaiting(Player player) {
-        return waitingPlayers.contains(player.getUniqueId());
+        MCEngineArtificialIntelligenceApiUtilSession session = sessions.get(player.getUniqueId());
+        return session != null && session.isBusy();
     }
 
     /**
-     * Sets the player's waiting state.
+     * Sets the player's waiting state unconditionally.
+     * Request handlers should claim the session with {@link MCEngineArtificialIntelligenceApiUtilSession#tryBegin()}
+     * instead, which checks and sets in one step.
      *
      * @param player  The player.
      * @param waiting True to mark as waiting; false to clear waiting state.
      */
     public static void setWaiting(Player player, boolean waiting) {
         if (waiting) {
-            waitingPlayers.add(player.getUniqueId());
+            getSession(player).setState(MCEngineArtificialIntelligenceApiUtilSession.State.WAITING);
         } else {
-            waitingPlayers.remove(player.getUniqueId());
+            MCEngineArtificialIntelligenceApiUtilSession session = sessions.get(player.getUniqueId());
+            if (session != null) {
+                session.finish();
+            }
         }
     }
 
@@ -160,8 +375,7 @@ public class MCEngineArtificialIntelligenceApiUtilBotManager {
      * @param model    The AI model name (e.g., "gpt-4o").
      */
     public static void setModel(Player player, String platform, String model) {
-        playerPlatform.put(player.getUniqueId(), platform);
-        playerModel.put(player.getUniqueId(), model);
+        getSession(player).setModel(platform, model);
     }
 
     /**
@@ -171,7 +385,9 @@ public class MCEngineArtificialIntelligenceApiUtilBotManager {
      * @return The platform name, or "gpt" if not set.
      */
     public static String getPlatform(Player player) {
-        return playerPlatform.getOrDefault(player.getUniqueId(), "gpt");
+        MCEngineArtificialIntelligenceApiUtilSession session = sessions.get(player.getUniqueId());
+        String platform = session == null ? null : session.getPlatform();
+        return platform == null ? "gpt" : platform;
     }
 
     /**
@@ -181,7 +397,9 @@ public class MCEngineArtificialIntelligenceApiUtilBotManager {
      * @return The model name, or "gpt-4o" if not set.
      */
     public static String getModel(Player player) {
-        return playerModel.getOrDefault(player.getUniqueId(), "gpt-4o");
+        MCEngineArtificialIntelligenceApiUtilSession session = sessions.get(player.getUniqueId());
+        String model = session == null ? null : session.getModel();
+        return model == null ? "gpt-4o" : model;
     }
 
     /**
@@ -190,8 +408,10 @@ public class MCEngineArtificialIntelligenceApiUtilBotManager {
      * @param player The player.
      */
     public static void clearModel(Player player) {
-        playerPlatform.remove(player.getUniqueId());
-        playerModel.remove(player.getUniqueId());
+        MCEngineArtificialIntelligenceApiUtilSession session = sessions.get(player.getUniqueId());
+        if (session != null) {
+            session.setModel(null, null);
+        }
     }
 
     /**
@@ -199,17 +419,34 @@ public class MCEngineArtificialIntelligenceApiUtilBotManager {
      * This is typically called when the plugin is disabled or reloaded.
      */
     public static void terminateAll() {
-        for (UUID uuid : Set.copyOf(activePlayers)) {
-            Player player = Bukkit.getPlayer(uuid);
-            if (player != null && player.isOnline()) {
+        for (MCEngineArtificialIntelligenceApiUtilSession session : List.copyOf(sessions.values())) {
+            Player player = Bukkit.getPlayer(session.getPlayerUuid());
+            if (session.isActive() && player != null && player.isOnline()) {
                 terminate(player);
                 player.sendMessage("§cYour AI session has ended due to the plugin being reloaded or disabled.");
             }
+            session.detach();
         }
-        playerConversations.clear();
-        activePlayers.clear();
-        waitingPlayers.clear();
-        playerPlatform.clear();
-        playerModel.clear();
+        sessions.clear();
+        MCEngineArtificialIntelligenceApiUtilToken.clearCache();
+        MCEngineArtificialIntelligenceApiUtilTokenCache.clear();
+        MCEngineArtificialIntelligenceApiUtilCompactor.clear();
+    }
+
+    /**
+     * Creates a player's session, puts it on the idle eviction wheel and restores a spilled conversation if any.
+     */
+    private static MCEngineArtificialIntelligenceApiUtilSession newSession(UUID playerUuid) {
+        MCEngineArtificialIntelligenceApiUtilSession session = new MCEngineArtificialIntelligenceApiUtilSession(playerUuid, newConversation());
+        MCEngineArtificialIntelligenceApiUtilIdleEvictor.schedule(session);
+        MCEngineArtificialIntelligenceApiUtilSessionStore.restore(session);
+        return session;
+    }
+
+    /**
+     * Creates an empty conversation with the configured limits.
+     */
+    private static MCEngineArtificialIntelligenceApiUtilConversation newConversation() {
+        return new MCEngineArtificialIntelligenceApiUtilConversation(maxTurns, maxTokens);
     }
 }
@@ -1,27 +1,42 @@
 package io.github.mcengine.api.artificialintelligence.util;
 
-import com.google.gson.JsonObject;
 import io.github.mcengine.api.artificialintelligence.MCEngineArtificialIntelligenceApi;
 import io.github.mcengine.api.artificialintelligence.database.IMCEngineArtificialIntelligenceDB;
-import org.bukkit.Bukkit;
+import io.github.mcengine.api.artificialintelligence.response.MCEngineArtificialIntelligenceApiResponse;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Asynchronous task that sends a player's input to an AI model and delivers the response.
  * <p>
  * This task performs:
  * <ul>
- *     <li>Checking and enforcing waiting state per player</li>
+ *     <li>Claiming the player's session, so only one request per player runs at a time</li>
+ *     <li>Queueing messages sent while the AI is answering and sending them together afterwards</li>
  *     <li>Server or player token resolution</li>
- *     <li>Conversation history injection and context building</li>
+ *     <li>Daily token budget enforcement and usage recording</li>
+ *     <li>Sending the configured system prompt and the conversation history as role-tagged messages</li>
  *     <li>Prompt dispatch and response collection from AI</li>
- *     <li>Color-coded response back to the player</li>
+ *     <li>Sentence-by-sentence delivery when {@code ai.stream} is enabled in the config</li>
+ *     <li>Color-coded response back to the player, batched with other replies on the main thread
+ *         (see {@link MCEngineArtificialIntelligenceApiUtilDelivery})</li>
  * </ul>
+ * The whole interaction – time queued on the scheduler, the token lookup and the AI call – shares one
+ * deadline from {@code ai.<platform>.timeout.total-ms}, so a hung provider cannot leave a player waiting forever.
+ * <p>
+ * Tasks are started through {@link #submit()} on the {@link MCEngineArtificialIntelligenceApiUtilScheduler},
+ * which they hold a slot of until the reply has been delivered or the request has failed. A task that was
+ * not submitted refuses to run, since it holds no slot it could give back.
  */
-public class MCEngineArtificialIntelligenceApiUtilBotTask extends BukkitRunnable {
+public class MCEngineArtificialIntelligenceApiUtilBotTask implements Runnable {
 
     /** The plugin instance executing this task. */
     private final Plugin plugin;
@@ -44,8 +59,35 @@ public class MCEngineArtificialIntelligenceApiUtilBotTask extends BukkitRunnable
     /** AI model name. */
     private final String model;
 
-    /** Message input sent by the player. */
-    private final String message;
+    /** Message input sent by the player; for a task sending queued messages, set from the queue when it runs. */
+    private String message;
+
+    /**
+     * The player's session, claimed for the duration of the request; looked up once when the task runs,
+     * or handed over by the previous task when sending queued messages.
+     */
+    private MCEngineArtificialIntelligenceApiUtilSession session;
+
+    /** Whether part of the reply has already been streamed to the player. */
+    private final AtomicBoolean streamed = new AtomicBoolean();
+
+    /** End-to-end deadline of this interaction, started when the task is created. */
+    private final MCEngineArtificialIntelligenceApiUtilDeadline deadline;
+
+    /** {@link System#nanoTime()} when the task was created, for the latency recorded in the usage ledger. */
+    private final long startNanos = System.nanoTime();
+
+    /** Budget groups of the player, resolved when the task runs. */
+    private List<String> groups = List.of();
+
+    /** Scheduler lane of the task, resolved when the task is created. */
+    private final MCEngineArtificialIntelligenceApiUtilScheduler.Lane lane;
+
+    /** Whether the task has been submitted to the scheduler. */
+    private final AtomicBoolean submitted = new AtomicBoolean();
+
+    /** Whether the task has given back its scheduler slot. */
+    private final AtomicBoolean done = new AtomicBoolean();
 
     /**
      * Constructs a new bot task for asynchronous AI interaction.
@@ -77,69 +119,267 @@ public class MCEngineArtificialIntelligenceApiUtilBotTask extends BukkitRunnable
         this.platform = platform;
         this.model = model;
         this.message = message;
+        this.deadline = MCEngineArtificialIntelligenceApiUtilDeadline.forPlatform(plugin,
+                MCEngineArtificialIntelligenceApiUtilAi.getPlatformKey(platform, model));
+        this.lane = MCEngineArtificialIntelligenceApiUtilScheduler.laneOf(player, tokenType);
+    }
+
+    /**
+     * Constructs a task that sends the messages queued in an already claimed session.
+     *
+     * @param previous The task that finished; supplies the player, platform, model and token settings.
+     * @param session  The claimed session.
+     */
+    private MCEngineArtificialIntelligenceApiUtilBotTask(MCEngineArtificialIntelligenceApiUtilBotTask previous, MCEngineArtificialIntelligenceApiUtilSession session) {
+        this(previous.plugin, previous.api, previous.db, previous.tokenType, previous.player, previous.platform, previous.model, null);
+        this.session = session;
+    }
+
+    /**
+     * Queues the task on the AI scheduler. If the scheduler is saturated, the player is told to try again.
+     *
+     * @throws IllegalStateException If the task was already submitted.
+     */
+    public void submit() {
+        if (!submitted.compareAndSet(false, true)) {
+            throw new IllegalStateException("Bot task was already submitted.");
+        }
+        MCEngineArtificialIntelligenceApiUtilScheduler.submit(player.getUniqueId(), lane, this, this::shed);
     }
 
     /**
      * Executes the asynchronous AI interaction task.
+     * The AI request is dispatched without blocking; the reply is delivered when the future completes.
+     *
+     * @throws IllegalStateException If the task was not started through {@link #submit()}.
      */
     @Override
     public void run() {
+        if (!submitted.get()) {
+            throw new IllegalStateException("Bot tasks must be started through submit().");
+        }
         try {
-            // Ignore new task if already waiting
-            if (api.checkWaitingPlayer(player)) {
-                Bukkit.getScheduler().runTask(plugin, () ->
-                        player.sendMessage(ChatColor.RED + "⏳ Please wait for the AI to respond before sending another message.")
-                );
-                return;
+            if (!MCEngineArtificialIntelligenceApiUtilBotManager.isInitialized()) {
+                MCEngineArtificialIntelligenceApiUtilBotManager.initialize(plugin);
             }
-
-            // Mark player as waiting
-            api.setWaiting(player, true);
-
-            // Construct chat context history
-            String chatContext = MCEngineArtificialIntelligenceApiUtilBotManager.get(player);
-            String fullPrompt = chatContext + "[Player]: " + message;
-
-            // Get response from API (depending on token type)
-            JsonObject responseJson;
-            if ("server".equalsIgnoreCase(tokenType)) {
-                responseJson = api.getResponse(platform, model, chatContext, message);
-            } else if ("player".equalsIgnoreCase(tokenType)) {
-                String token = db.getPlayerToken(player.getUniqueId().toString(), platform);
-                if (token == null || token.isEmpty()) {
-                    throw new IllegalStateException("No token found for player.");
+            if (session == null) {
+                // Claim the session; of two messages racing here only one gets through, later ones are queued.
+                // A session evicted between lookup and offer refuses the message, and the next lookup creates a new one.
+                MCEngineArtificialIntelligenceApiUtilSession claimed;
+                MCEngineArtificialIntelligenceApiUtilSession.Offer offer;
+                do {
+                    claimed = MCEngineArtificialIntelligenceApiUtilBotManager.getSession(player);
+                    offer = claimed.offer(message,
+                            MCEngineArtificialIntelligenceApiUtilBotManager.getQueueSize(),
+                            MCEngineArtificialIntelligenceApiUtilBotManager.isQueueDropOldest());
+                } while (offer == MCEngineArtificialIntelligenceApiUtilSession.Offer.DETACHED);
+                if (offer != MCEngineArtificialIntelligenceApiUtilSession.Offer.STARTED) {
+                    String notice = offer == MCEngineArtificialIntelligenceApiUtilSession.Offer.QUEUED
+                            ? ChatColor.GRAY + "⏳ Your message will be sent when the AI has responded."
+                            : offer == MCEngineArtificialIntelligenceApiUtilSession.Offer.DROPPED_OLDEST
+                            ? ChatColor.GRAY + "⏳ Your message will be sent when the AI has responded. Your oldest queued message was dropped."
+                            : ChatColor.RED + "⏳ Please wait for the AI to respond before sending another message.";
+                    MCEngineArtificialIntelligenceApiUtilDelivery.post(plugin, () -> player.sendMessage(notice));
+                    done();
+                    return;
                 }
-                responseJson = api.getResponse(platform, model, token, chatContext, message);
+                session = claimed;
             } else {
-                throw new IllegalArgumentException("Unknown tokenType: " + tokenType);
+                // Sending queued messages; those that arrived close together go as one request
+                message = session.drain(MCEngineArtificialIntelligenceApiUtilBotManager.getCoalesceMillis());
+                if (message == null) {
+                    release();
+                    return;
+                }
             }
 
-            // Extract content and token usage
-            String replyContent = api.getCompletionContent(responseJson);
-            int tokenUsed = api.getTotalTokenUsage(responseJson);
+            // The task may have sat in the scheduler queue for most of its budget
+            if (deadline.isExpired()) {
+                throw deadline.exceeded();
+            }
 
-            // Log conversation
-            String playerPrompt = "[Player]: " + message;
-            String aiReply = "[Ai]: " + replyContent;
+            // The system prompt stays fixed and turns are only appended, so consecutive requests share a prefix
+            String systemPrompt = plugin.getConfig().getString("ai.system-prompt", "");
+            List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history = session.getConversation().getTurns();
 
-            // Deliver response to player on main thread
-            Bukkit.getScheduler().runTask(plugin, () -> {
-                player.sendMessage(ChatColor.YELLOW + "[ChatBot] " + ChatColor.RESET + replyContent);
-                if (tokenUsed >= 0) {
-                    player.sendMessage(ChatColor.GREEN + "[Tokens Used] " + ChatColor.RESET + tokenUsed);
-                }
+            // Refuse the call up front once the player or one of their groups is out of budget
+            if (!MCEngineArtificialIntelligenceApiUtilUsage.isStarted()) {
+                MCEngineArtificialIntelligenceApiUtilUsage.start(plugin, db);
+            }
+            groups = MCEngineArtificialIntelligenceApiUtilUsage.getGroups(plugin, player);
+            boolean stream = plugin.getConfig().getBoolean("ai.stream", false);
+            CompletableFuture<MCEngineArtificialIntelligenceApiResponse> responseFuture = MCEngineArtificialIntelligenceApiUtilUsage
+                    .checkBudget(plugin, player, groups, "server".equalsIgnoreCase(tokenType))
+                    .thenCompose(reason -> {
+                        if (reason != null) {
+                            throw new BudgetExceededException(reason);
+                        }
+                        return request(systemPrompt, history, stream);
+                    });
 
-                MCEngineArtificialIntelligenceApiUtilBotManager.append(player, playerPrompt);
-                MCEngineArtificialIntelligenceApiUtilBotManager.append(player, aiReply);
-                api.setWaiting(player, false);
+            // Backstop for responses that outlive the deadline, e.g. when joined to a slower identical request
+            deadline.bound(responseFuture).thenAccept(this::deliver).exceptionally(e -> {
+                fail(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                return null;
             });
 
         } catch (Exception e) {
-            e.printStackTrace();
-            Bukkit.getScheduler().runTask(plugin, () -> {
-                player.sendMessage(ChatColor.DARK_RED + "[ChatBot] Unexpected error: " + e.getMessage());
-                api.setWaiting(player, false);
+            fail(e);
+        }
+    }
+
+    /**
+     * Sends the player's message to the AI (depending on token type) without holding the calling thread.
+     *
+     * @param systemPrompt The configured system prompt.
+     * @param history      The conversation so far.
+     * @param stream       Whether to stream the reply sentence by sentence.
+     * @return The pending response.
+     */
+    private CompletableFuture<MCEngineArtificialIntelligenceApiResponse> request(
+            String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, boolean stream) {
+        if ("server".equalsIgnoreCase(tokenType)) {
+            return MCEngineArtificialIntelligenceApiUtilDeadline.callWith(deadline, () -> stream
+                    ? api.getChatResponseStream(platform, model, systemPrompt, history, message, this::deliverChunk)
+                    : api.getChatResponseAsync(platform, model, systemPrompt, history, message));
+        } else if ("player".equalsIgnoreCase(tokenType)) {
+            // Usually answered from the token cache; a database load is bounded by the deadline
+            return deadline.bound(MCEngineArtificialIntelligenceApiUtilTokenCache.get(db, player.getUniqueId().toString(), platform))
+                    .thenCompose(token -> {
+                        if (token == null || token.isEmpty()) {
+                            throw new IllegalStateException("No token found for player.");
+                        }
+                        MCEngineArtificialIntelligenceApiUtilToken.bind(player.getUniqueId(), token);
+                        return MCEngineArtificialIntelligenceApiUtilDeadline.callWith(deadline, () -> stream
+                                ? api.getChatResponseStream(platform, model, token, systemPrompt, history, message, this::deliverChunk)
+                                : api.getChatResponseAsync(platform, model, token, systemPrompt, history, message));
+                    });
+        }
+        throw new IllegalArgumentException("Unknown tokenType: " + tokenType);
+    }
+
+    /**
+     * Queues a streamed piece of the reply for the player on the main thread.
+     *
+     * @param chunk Sentence-sized piece of the reply.
+     */
+    private void deliverChunk(String chunk) {
+        streamed.set(true);
+        MCEngineArtificialIntelligenceApiUtilDelivery.post(plugin, () ->
+                player.sendMessage(ChatColor.YELLOW + "[ChatBot] " + ChatColor.RESET + chunk)
+        );
+    }
+
+    /**
+     * Extracts the reply from a completed response and delivers it to the player on the main thread.
+     * When the reply was already streamed, only the token usage is sent.
+     *
+     * @param response The typed response from the AI.
+     */
+    private void deliver(MCEngineArtificialIntelligenceApiResponse response) {
+        // Extract content and token usage
+        String replyContent = api.getCompletionContent(response);
+        int tokenUsed = response.getTotalTokens();
+
+        if (!response.isError()) {
+            // A hedged request may have been answered by its backup; bill the model that actually answered
+            String[] source = response.getSource() != null ? response.getSource().split(":", 2) : new String[] { platform, model };
+            MCEngineArtificialIntelligenceApiUtilUsage.record(player.getUniqueId().toString(), groups, source[0], source[1],
+                    response.getPromptTokens(), response.getCompletionTokens(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+
+        // Deliver response to player on main thread
+        session.beginDelivery();
+        boolean alreadyShown = streamed.get();
+        MCEngineArtificialIntelligenceApiUtilDelivery.post(plugin, () -> {
+            if (!alreadyShown) {
+                player.sendMessage(ChatColor.YELLOW + "[ChatBot] " + ChatColor.RESET + replyContent);
+            }
+            if (tokenUsed >= 0) {
+                player.sendMessage(ChatColor.GREEN + "[Tokens Used] " + ChatColor.RESET + tokenUsed);
+            }
+
+            // Log conversation
+            MCEngineArtificialIntelligenceApiUtilBotManager.addTurn(session,
+                    MCEngineArtificialIntelligenceApiUtilConversation.Role.USER, message);
+            MCEngineArtificialIntelligenceApiUtilBotManager.addTurn(session,
+                    MCEngineArtificialIntelligenceApiUtilConversation.Role.ASSISTANT, replyContent);
+            release();
+        });
+    }
+
+    /**
+     * Reports an unexpected failure to the player on the main thread and releases the session if this task claimed it.
+     *
+     * @param e The failure.
+     */
+    private void fail(Throwable e) {
+        if (e instanceof BudgetExceededException) {
+            MCEngineArtificialIntelligenceApiUtilDelivery.post(plugin, () -> {
+                player.sendMessage(ChatColor.RED + e.getMessage());
+                release();
+            });
+            return;
+        }
+        if (e instanceof TimeoutException) {
+            plugin.getLogger().warning("AI request for " + player.getName() + " timed out (" + platform + ":" + model + ")");
+            MCEngineArtificialIntelligenceApiUtilDelivery.post(plugin, () -> {
+                player.sendMessage(ChatColor.RED + "⏳ The AI did not respond in time. Please try again.");
+                release();
             });
+            return;
+        }
+        e.printStackTrace();
+        MCEngineArtificialIntelligenceApiUtilDelivery.post(plugin, () -> {
+            player.sendMessage(ChatColor.DARK_RED + "[ChatBot] Unexpected error: " + e.getMessage());
+            release();
+        });
+    }
+
+    /**
+     * Gives back the scheduler slot and releases the session if this task claimed it. If messages were queued
+     * meanwhile, the session stays claimed and a new task is submitted for them once the coalescing window
+     * after the newest one has passed.
+     */
+    private void release() {
+        done();
+        if (session == null || !session.finishOrContinue()) {
+            return;
+        }
+        long wait = session.getLastQueuedAt() + MCEngineArtificialIntelligenceApiUtilBotManager.getCoalesceMillis() - System.currentTimeMillis();
+        MCEngineArtificialIntelligenceApiUtilBotTask next = new MCEngineArtificialIntelligenceApiUtilBotTask(this, session);
+        CompletableFuture.delayedExecutor(Math.max(0L, wait), TimeUnit.MILLISECONDS).execute(next::submit);
+    }
+
+    /**
+     * Gives back the scheduler slot; only the first call has an effect.
+     */
+    private void done() {
+        if (done.compareAndSet(false, true)) {
+            MCEngineArtificialIntelligenceApiUtilScheduler.done();
+        }
+    }
+
+    /**
+     * Tells the player the task was shed because the scheduler is saturated. A task sending queued
+     * messages also releases the session, dropping those messages.
+     */
+    private void shed() {
+        if (session != null) {
+            session.finish();
+        }
+        MCEngineArtificialIntelligenceApiUtilDelivery.post(plugin, () ->
+                player.sendMessage(ChatColor.RED + "⏳ The AI is busy right now. Please try again in a moment."));
+    }
+
+    /**
+     * Signals that a daily token budget refused the call.
+     */
+    private static class BudgetExceededException extends RuntimeException {
+
+        BudgetExceededException(String reason) {
+            super(reason, null, false, false);
         }
     }
 }
@@ -0,0 +1,205 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import io.github.mcengine.api.artificialintelligence.response.MCEngineArtificialIntelligenceApiResponse;
+import org.bukkit.plugin.Plugin;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded exact-match cache of AI responses.
+ * <p>
+ * Entries are keyed by (platform, model, system prompt, normalized message) where the message is
+ * trimmed, lower-cased and has its whitespace collapsed. Only successful responses are stored.
+ * Hits return a view whose usage reports zero tokens, since no paid call was made.
+ * <p>
+ * Configuration:
+ * <ul>
+ *     <li>{@code ai.cache.models} – opt-in list of {@code platform:model} entries (e.g. {@code openai:gpt-4o},
+ *         {@code custom.myserver:llama3}); models not listed are never cached</li>
+ *     <li>{@code ai.cache.max-entries} – maximum entries before least-recently-used eviction, default {@code 1000}</li>
+ *     <li>{@code ai.cache.ttl-seconds} – entry lifetime, default {@code 600}</li>
+ * </ul>
+ */
+public class MCEngineArtificialIntelligenceApiUtilCache {
+
+    /**
+     * Opted-in {@code platform:model} entries; {@code null} until the config has been read.
+     */
+    private static volatile Set<String> enabledModels;
+
+    /**
+     * Maximum number of entries.
+     */
+    private static int maxEntries = 1000;
+
+    /**
+     * Entry lifetime in milliseconds.
+     */
+    private static long ttlMillis = 600_000L;
+
+    /**
+     * Access-ordered map giving least-recently-used eviction; guarded by its own monitor.
+     */
+    private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /** Lookups answered from the cache. */
+    private static final AtomicLong hits = new AtomicLong();
+
+    /** Lookups that went upstream. */
+    private static final AtomicLong misses = new AtomicLong();
+
+    /** Entries dropped because the cache was full. */
+    private static final AtomicLong evictions = new AtomicLong();
+
+    /** Entries dropped because their TTL elapsed. */
+    private static final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * Checks whether responses of a model are cached, reading the config on first use.
+     *
+     * @param plugin   The Bukkit plugin instance.
+     * @param platform The platform key (e.g. {@code openai} or {@code custom.<server>}).
+     * @param model    The model name.
+     * @return {@code true} if the model has opted in.
+     */
+    public static boolean isEnabled(Plugin plugin, String platform, String model) {
+        Set<String> models = enabledModels;
+        if (models == null) {
+            models = configure(plugin);
+        }
+        return models.contains(platform + ":" + model);
+    }
+
+    /**
+     * Looks up a cached response.
+     *
+     * @param platform     The platform key.
+     * @param model        The model name.
+     * @param systemPrompt The system prompt.
+     * @param message      The user message.
+     * @return The cached response reporting zero token usage, or {@code null} on a miss.
+     */
+    public static MCEngineArtificialIntelligenceApiResponse get(String platform, String model, String systemPrompt, String message) {
+        String key = key(platform, model, systemPrompt, message);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                expirations.incrementAndGet();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.response;
+    }
+
+    /**
+     * Stores a successful response. Error responses are ignored.
+     *
+     * @param platform     The platform key.
+     * @param model        The model name.
+     * @param systemPrompt The system prompt.
+     * @param message      The user message.
+     * @param response     The full response returned by the provider.
+     */
+    public static void put(String platform, String model, String systemPrompt, String message,
+                           MCEngineArtificialIntelligenceApiResponse response) {
+        if (response == null || response.isError()) {
+            return;
+        }
+        Entry entry = new Entry(response.asCached(), System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(key(platform, model, systemPrompt, message), entry);
+        }
+    }
+
+    /**
+     * Returns cache statistics.
+     *
+     * @return Map with {@code hits}, {@code misses}, {@code evictions}, {@code expirations} and {@code size}.
+     */
+    public static Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        synchronized (entries) {
+            stats.put("size", (long) entries.size());
+        }
+        return stats;
+    }
+
+    /**
+     * Drops every entry and forgets the config so it is re-read on next use.
+     * Typically called when the plugin is disabled or reloaded.
+     */
+    public static void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        enabledModels = null;
+    }
+
+    /**
+     * Reads the cache settings from the plugin config.
+     *
+     * @param plugin The Bukkit plugin instance.
+     * @return The opted-in {@code platform:model} entries.
+     */
+    private static synchronized Set<String> configure(Plugin plugin) {
+        if (enabledModels != null) {
+            return enabledModels;
+        }
+        List<String> models = plugin.getConfig().getStringList("ai.cache.models");
+        maxEntries = Math.max(1, plugin.getConfig().getInt("ai.cache.max-entries", 1000));
+        ttlMillis = plugin.getConfig().getLong("ai.cache.ttl-seconds", 600L) * 1000L;
+        enabledModels = new HashSet<>(models);
+        return enabledModels;
+    }
+
+    /**
+     * Builds the lookup key; the message is normalized so trivial differences still hit.
+     */
+    private static String key(String platform, String model, String systemPrompt, String message) {
+        String normalized = message == null ? "" : message.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return platform + '\u0000' + model + '\u0000' + (systemPrompt == null ? "" : systemPrompt) + '\u0000' + normalized;
+    }
+
+    /**
+     * A cached response and its expiry time.
+     */
+    private static class Entry {
+
+        /** The stored response, already marked as cached. */
+        private final MCEngineArtificialIntelligenceApiResponse response;
+
+        /** Expiry timestamp in epoch milliseconds. */
+        private final long expiresAt;
+
+        Entry(MCEngineArtificialIntelligenceApiResponse response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-endpoint circuit breakers for AI providers.
+ * <p>
+ * A breaker opens after a run of consecutive upstream failures (exceptions or {@code 5xx} responses).
+ * While open, requests to the endpoint fail immediately instead of waiting out a slow failure.
+ * After the open period a single trial request is let through (half-open); its outcome closes the
+ * breaker again or re-opens it.
+ * <p>
+ * Settings are read from {@code ai.<platform>.breaker}:
+ * <ul>
+ *     <li>{@code failure-threshold} – consecutive failures that open the breaker, default {@code 5}</li>
+ *     <li>{@code open-seconds} – how long the breaker stays open before a trial, default {@code 30}</li>
+ * </ul>
+ */
+public class MCEngineArtificialIntelligenceApiUtilCircuitBreaker {
+
+    /**
+     * Breaker states.
+     */
+    public enum State {
+        /** Requests flow normally. */
+        CLOSED,
+        /** Requests fail fast. */
+        OPEN,
+        /** One trial request is in flight. */
+        HALF_OPEN
+    }
+
+    /**
+     * Breakers keyed by endpoint URL.
+     */
+    private static final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the breaker of an endpoint, creating it from the platform's config on first use.
+     *
+     * @param plugin   The Bukkit plugin instance used for configuration.
+     * @param platform The platform key the endpoint belongs to.
+     * @param endpoint The endpoint URL.
+     * @return The shared breaker.
+     */
+    public static Breaker get(Plugin plugin, String platform, String endpoint) {
+        return breakers.computeIfAbsent(endpoint, key -> {
+            String configBase = "ai." + platform + ".breaker.";
+            int threshold = Math.max(1, plugin.getConfig().getInt(configBase + "failure-threshold", 5));
+            long openMillis = plugin.getConfig().getLong(configBase + "open-seconds", 30L) * 1000L;
+            return new Breaker(threshold, openMillis);
+        });
+    }
+
+    /**
+     * Returns the state and counters of every breaker.
+     *
+     * @return Map of endpoint URL to its state ({@code state}) and counters.
+     */
+    public static Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, Breaker> entry : breakers.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Drops all breakers so they are rebuilt from config on next use.
+     * Typically called when the plugin is reloaded.
+     */
+    public static void reset() {
+        breakers.clear();
+    }
+
+    /**
+     * Circuit breaker for one endpoint. State transitions are guarded by the breaker's monitor.
+     */
+    public static class Breaker {
+
+        /** Consecutive failures that open the breaker. */
+        private final int failureThreshold;
+
+        /** Open period in milliseconds. */
+        private final long openMillis;
+
+        /** Current state. */
+        private State state = State.CLOSED;
+
+        /** Consecutive failures seen while closed. */
+        private int consecutiveFailures;
+
+        /** Time the breaker last opened. */
+        private long openedAt;
+
+        /** Times the breaker has opened. */
+        private final AtomicLong opened = new AtomicLong();
+
+        /** Requests rejected while open. */
+        private final AtomicLong rejected = new AtomicLong();
+
+        /** Failures recorded. */
+        private final AtomicLong failures = new AtomicLong();
+
+        /** Successes recorded. */
+        private final AtomicLong successes = new AtomicLong();
+
+        Breaker(int failureThreshold, long openMillis) {
+            this.failureThreshold = failureThreshold;
+            this.openMillis = openMillis;
+        }
+
+        /**
+         * Checks whether a request may be sent, moving an expired open breaker to half-open.
+         *
+         * @return {@code true} if the request may proceed; {@code false} to fail fast.
+         */
+        public synchronized boolean tryAcquire() {
+            if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+                state = State.HALF_OPEN;
+                return true;
+            }
+            if (state == State.CLOSED) {
+                return true;
+            }
+            rejected.incrementAndGet();
+            return false;
+        }
+
+        /**
+         * Records a successful call, closing a half-open breaker.
+         */
+        public synchronized void onSuccess() {
+            successes.incrementAndGet();
+            consecutiveFailures = 0;
+            state = State.CLOSED;
+        }
+
+        /**
+         * Records a failed call, opening the breaker when the threshold is reached or the trial failed.
+         */
+        public synchronized void onFailure() {
+            failures.incrementAndGet();
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = State.OPEN;
+                openedAt = System.currentTimeMillis();
+                opened.incrementAndGet();
+            }
+        }
+
+        /**
+         * Records a call that ended before reaching the provider, e.g. a local queue timeout or a cancellation.
+         * It counts as neither success nor failure; a half-open breaker waiting on it lets the next request
+         * try again.
+         */
+        public synchronized void onIgnored() {
+            if (state == State.HALF_OPEN) {
+                state = State.OPEN;
+                openedAt = System.currentTimeMillis() - openMillis;
+            }
+        }
+
+        /**
+         * Returns the current state.
+         *
+         * @return The breaker state.
+         */
+        public synchronized State getState() {
+            return state;
+        }
+
+        /**
+         * Returns a snapshot of this breaker's state and counters.
+         *
+         * @return Map of counter name to value.
+         */
+        public synchronized Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("state", state.name());
+            stats.put("consecutiveFailures", consecutiveFailures);
+            stats.put("opened", opened.get());
+            stats.put("rejected", rejected.get());
+            stats.put("failures", failures.get());
+            stats.put("successes", successes.get());
+            return stats;
+        }
+    }
+}
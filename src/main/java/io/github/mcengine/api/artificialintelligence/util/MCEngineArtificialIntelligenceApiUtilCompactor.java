@@ -0,0 +1,298 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import io.github.mcengine.api.artificialintelligence.response.MCEngineArtificialIntelligenceApiResponse;
+import org.bukkit.plugin.Plugin;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background summarization of long conversations.
+ * <p>
+ * When a conversation grows past a threshold, its older turns are sent to a (typically cheaper) summary
+ * model and replaced by a single summary turn once the summary arrives. The recent turns stay verbatim.
+ * The summary request runs on a background thread and the non-blocking HTTP client, so the player's next
+ * message is never held up; it is answered with the full history until the summary is in place. At most
+ * one compaction runs per player, and a summary that no longer matches the start of the history (because
+ * turns were dropped meanwhile) is discarded. Summary calls are recorded in the usage ledger under the
+ * subject {@value #USAGE_SUBJECT}, so they count towards the provider bill but not towards any player's budget.
+ * <p>
+ * Configuration:
+ * <ul>
+ *     <li>{@code ai.history.compaction.platform} and {@code ai.history.compaction.model} – the registered model
+ *         writing summaries with the server token; compaction is off unless both are set</li>
+ *     <li>{@code ai.history.compaction.threshold-tokens} – estimated history tokens that start a compaction,
+ *         default {@code 1500}</li>
+ *     <li>{@code ai.history.compaction.threshold-turns} – history turns that start a compaction, default {@code 16}</li>
+ *     <li>{@code ai.history.compaction.keep-turns} – most recent turns never summarized, default {@code 4}</li>
+ *     <li>{@code ai.history.compaction.prompt} – the summary instructions</li>
+ * </ul>
+ */
+public class MCEngineArtificialIntelligenceApiUtilCompactor {
+
+    /**
+     * Default summary instructions.
+     */
+    private static final String DEFAULT_PROMPT = "Summarize the following conversation between a Minecraft player "
+            + "and an AI assistant. Keep names, facts, decisions and open questions the assistant needs to continue "
+            + "the conversation. Reply with the summary only, in no more than 150 words.";
+
+    /**
+     * Usage ledger subject summary calls are recorded under.
+     */
+    public static final String USAGE_SUBJECT = "server:compaction";
+
+    /**
+     * Thread preparing summary requests, keeping that work off the main thread.
+     * Created on first use and stopped by {@link #shutdown()}.
+     */
+    private static ExecutorService executor;
+
+    /** The plugin whose config and logger are used; {@code null} until initialized. */
+    private static volatile Plugin plugin;
+
+    /** Platform of the summary model; {@code null} when compaction is off. */
+    private static volatile String platform;
+
+    /** Name of the summary model. */
+    private static volatile String model;
+
+    /** Estimated history tokens that start a compaction. */
+    private static volatile int thresholdTokens = 1500;
+
+    /** History turns that start a compaction. */
+    private static volatile int thresholdTurns = 16;
+
+    /** Most recent turns never summarized. */
+    private static volatile int keepTurns = 4;
+
+    /** The summary instructions. */
+    private static volatile String prompt = DEFAULT_PROMPT;
+
+    /** Players with a compaction in progress. */
+    private static final Set<UUID> running = ConcurrentHashMap.newKeySet();
+
+    /** Estimated tokens saved per player session. */
+    private static final Map<UUID, AtomicLong> savedBySession = new ConcurrentHashMap<>();
+
+    /** Compactions applied to a history. */
+    private static final AtomicLong compactions = new AtomicLong();
+
+    /** Summaries discarded because the history had changed. */
+    private static final AtomicLong discarded = new AtomicLong();
+
+    /** Summary requests that failed. */
+    private static final AtomicLong failures = new AtomicLong();
+
+    /** Estimated tokens saved across all sessions. */
+    private static final AtomicLong tokensSaved = new AtomicLong();
+
+    /** Tokens billed for summary requests. */
+    private static final AtomicLong summaryTokens = new AtomicLong();
+
+    /**
+     * Reads the compaction settings from the plugin config.
+     *
+     * @param plugin The Bukkit plugin instance.
+     */
+    public static void initialize(Plugin plugin) {
+        String configuredPlatform = plugin.getConfig().getString("ai.history.compaction.platform", "");
+        String configuredModel = plugin.getConfig().getString("ai.history.compaction.model", "");
+        thresholdTokens = plugin.getConfig().getInt("ai.history.compaction.threshold-tokens", 1500);
+        thresholdTurns = plugin.getConfig().getInt("ai.history.compaction.threshold-turns", 16);
+        keepTurns = Math.max(0, plugin.getConfig().getInt("ai.history.compaction.keep-turns", 4));
+        prompt = plugin.getConfig().getString("ai.history.compaction.prompt", DEFAULT_PROMPT);
+        model = configuredModel;
+        platform = configuredPlatform.isEmpty() || configuredModel.isEmpty() ? null : configuredPlatform;
+        MCEngineArtificialIntelligenceApiUtilCompactor.plugin = plugin;
+    }
+
+    /**
+     * Checks whether compaction is configured.
+     *
+     * @return {@code true} if a summary model is set.
+     */
+    public static boolean isEnabled() {
+        return plugin != null && platform != null;
+    }
+
+    /**
+     * Starts a background compaction of a player's conversation if it has passed the threshold and none is
+     * running. Returns immediately.
+     *
+     * @param playerUuid   The player.
+     * @param conversation The player's conversation.
+     */
+    public static void maybeCompact(UUID playerUuid, MCEngineArtificialIntelligenceApiUtilConversation conversation) {
+        if (!isEnabled()
+                || (conversation.getTotalTokens() < thresholdTokens && conversation.size() < thresholdTurns)
+                || conversation.size() - keepTurns < 2
+                || !running.add(playerUuid)) {
+            return;
+        }
+
+        CompletableFuture.supplyAsync(() -> summarize(conversation), executor())
+                .thenCompose(future -> future)
+                .whenComplete((saved, error) -> {
+                    running.remove(playerUuid);
+                    if (error != null) {
+                        failures.incrementAndGet();
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        plugin.getLogger().warning("Conversation compaction failed: " + cause.getMessage());
+                    } else if (saved < 0) {
+                        discarded.incrementAndGet();
+                    } else {
+                        compactions.incrementAndGet();
+                        tokensSaved.addAndGet(saved);
+                        savedBySession.computeIfAbsent(playerUuid, key -> new AtomicLong()).addAndGet(saved);
+                    }
+                });
+    }
+
+    /**
+     * Sends the older turns to the summary model and swaps the summary in.
+     *
+     * @param conversation The conversation to compact.
+     * @return A future completed with the estimated tokens saved, or {@code -1} if the summary was discarded.
+     */
+    private static CompletableFuture<Integer> summarize(MCEngineArtificialIntelligenceApiUtilConversation conversation) {
+        List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> turns = conversation.getTurns();
+        List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> older = turns.subList(0, Math.max(0, turns.size() - keepTurns));
+        if (older.size() < 2) {
+            return CompletableFuture.completedFuture(-1);
+        }
+
+        StringBuilder transcript = new StringBuilder();
+        for (MCEngineArtificialIntelligenceApiUtilConversation.Turn turn : older) {
+            transcript.append(turn.getRole().getLabel()).append(turn.getContent()).append('\n');
+        }
+
+        String summaryPlatform = platform;
+        String summaryModel = model;
+        long start = System.nanoTime();
+        MCEngineArtificialIntelligenceApiUtilDeadline deadline = MCEngineArtificialIntelligenceApiUtilDeadline.forPlatform(plugin,
+                MCEngineArtificialIntelligenceApiUtilAi.getPlatformKey(summaryPlatform, summaryModel));
+        return MCEngineArtificialIntelligenceApiUtilDeadline.callWith(deadline, () ->
+                        MCEngineArtificialIntelligenceApiUtilAi.getAi(summaryPlatform, summaryModel).getChatResponseAsync(prompt, transcript.toString()))
+                .thenApply(response -> apply(conversation, older, response, summaryPlatform, summaryModel,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    /**
+     * Records the summary's usage in the ledger and replaces the summarized turns with the summary.
+     *
+     * @param conversation    The conversation.
+     * @param older           The summarized turns.
+     * @param response        The summary model's reply.
+     * @param summaryPlatform The platform of the summary model.
+     * @param summaryModel    The summary model.
+     * @param latencyMillis   Time from sending the summary request to its reply.
+     * @return Estimated tokens saved, or {@code -1} if the history had changed.
+     */
+    private static int apply(
+            MCEngineArtificialIntelligenceApiUtilConversation conversation,
+            List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> older,
+            MCEngineArtificialIntelligenceApiResponse response,
+            String summaryPlatform,
+            String summaryModel,
+            long latencyMillis
+    ) {
+        if (response.isError()) {
+            throw new IllegalStateException(response.getError());
+        }
+        if (response.getTotalTokens() > 0) {
+            summaryTokens.addAndGet(response.getTotalTokens());
+        }
+        // Summaries are paid with the server token, so they are billed to the server rather than the player
+        MCEngineArtificialIntelligenceApiUtilUsage.record(USAGE_SUBJECT, List.of(), summaryPlatform, summaryModel,
+                response.getPromptTokens(), response.getCompletionTokens(), latencyMillis);
+        String summary = response.getContent() == null ? "" : response.getContent().trim();
+        if (summary.isEmpty()) {
+            throw new IllegalStateException("Summary model returned no content");
+        }
+        String content = "Summary of the earlier conversation: " + summary;
+        return conversation.compact(older, new MCEngineArtificialIntelligenceApiUtilConversation.Turn(
+                MCEngineArtificialIntelligenceApiUtilConversation.Role.SUMMARY, content,
+                MCEngineArtificialIntelligenceApiUtilConversation.estimateTokens(content)));
+    }
+
+    /**
+     * Returns the estimated tokens compaction has saved in a player's session.
+     *
+     * @param playerUuid The player.
+     * @return Estimated tokens saved per request, summed over all compactions of the session.
+     */
+    public static long getTokensSaved(UUID playerUuid) {
+        AtomicLong saved = savedBySession.get(playerUuid);
+        return saved == null ? 0L : saved.get();
+    }
+
+    /**
+     * Forgets a player's session totals. Typically called when the player's session ends.
+     *
+     * @param playerUuid The player.
+     */
+    public static void evict(UUID playerUuid) {
+        savedBySession.remove(playerUuid);
+    }
+
+    /**
+     * Forgets every session's totals.
+     */
+    public static void clear() {
+        savedBySession.clear();
+    }
+
+    /**
+     * Stops the compactor thread and forgets every session's totals. Summaries being prepared are dropped.
+     * Typically called when the plugin is disabled.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        clear();
+    }
+
+    /**
+     * Returns the compactor thread, starting it if needed.
+     */
+    private static synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "MCEngineAI-Compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Returns compaction statistics.
+     *
+     * @return Map with {@code compactions}, {@code discarded}, {@code failures}, {@code running},
+     *         {@code tokensSaved} and {@code summaryTokens} (tokens billed for summaries).
+     */
+    public static Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("compactions", compactions.get());
+        stats.put("discarded", discarded.get());
+        stats.put("failures", failures.get());
+        stats.put("running", (long) running.size());
+        stats.put("tokensSaved", tokensSaved.get());
+        stats.put("summaryTokens", summaryTokens.get());
+        return stats;
+    }
+}
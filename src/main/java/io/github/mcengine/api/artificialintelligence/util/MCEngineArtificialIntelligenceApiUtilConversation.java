@@ -0,0 +1,303 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Bounded history of one player's conversation with the AI.
+ * <p>
+ * Turns are kept in a fixed-size ring buffer. When a new turn would exceed either the turn limit or the
+ * token budget, the oldest turns are dropped, so memory and the prompt resent on every message stay
+ * bounded however long the session runs. The newest turn is always kept, even if it alone exceeds the budget.
+ * Older turns can also be replaced by a summary with {@link #compact(List, Turn)}.
+ * <p>
+ * All methods are thread-safe. Reads do not copy the buffer: {@link #forEach(Consumer)} walks it in place
+ * and {@link #render()} returns a string that is rebuilt only after the history has changed.
+ */
+public class MCEngineArtificialIntelligenceApiUtilConversation {
+
+    /**
+     * Who produced a turn.
+     */
+    public enum Role {
+        /** The player. */
+        USER("user", "[Player]: "),
+        /** The AI. */
+        ASSISTANT("assistant", "[Ai]: "),
+        /** A summary of earlier turns, sent as a system message. */
+        SUMMARY("system", "[Summary]: ");
+
+        /** The role name used in chat completion messages. */
+        private final String name;
+
+        /** The prefix of the role's lines in rendered history. */
+        private final String label;
+
+        Role(String name, String label) {
+            this.name = name;
+            this.label = label;
+        }
+
+        /**
+         * Returns the role name used in chat completion messages.
+         *
+         * @return {@code user} or {@code assistant}.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the prefix of the role's lines in rendered history.
+         *
+         * @return {@code [Player]: }, {@code [Ai]: } or {@code [Summary]: }.
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * One message of the conversation.
+     */
+    public static class Turn {
+
+        /** Who produced the message. */
+        private final Role role;
+
+        /** The message text. */
+        private final String content;
+
+        /** Estimated token count of the message. */
+        private final int tokens;
+
+        /**
+         * Creates a turn.
+         *
+         * @param role    Who produced the message.
+         * @param content The message text.
+         * @param tokens  Estimated token count.
+         */
+        public Turn(Role role, String content, int tokens) {
+            this.role = role;
+            this.content = content;
+            this.tokens = tokens;
+        }
+
+        /**
+         * Returns who produced the message.
+         *
+         * @return The role.
+         */
+        public Role getRole() {
+            return role;
+        }
+
+        /**
+         * Returns the message text.
+         *
+         * @return The content.
+         */
+        public String getContent() {
+            return content;
+        }
+
+        /**
+         * Returns the estimated token count of the message.
+         *
+         * @return Estimated tokens.
+         */
+        public int getTokens() {
+            return tokens;
+        }
+    }
+
+    /** Ring buffer of turns; {@code turns[head]} is the oldest. */
+    private final Turn[] turns;
+
+    /** Token budget across all kept turns. */
+    private final int maxTokens;
+
+    /** Index of the oldest turn. */
+    private int head;
+
+    /** Number of kept turns. */
+    private int size;
+
+    /** Estimated tokens of all kept turns. */
+    private int totalTokens;
+
+    /** Rendered history, or {@code null} after a change. */
+    private String rendered;
+
+    /**
+     * Creates an empty conversation.
+     *
+     * @param maxTurns  Maximum number of turns kept.
+     * @param maxTokens Token budget across all kept turns; {@code 0} or less for none.
+     */
+    public MCEngineArtificialIntelligenceApiUtilConversation(int maxTurns, int maxTokens) {
+        this.turns = new Turn[Math.max(1, maxTurns)];
+        this.maxTokens = maxTokens > 0 ? maxTokens : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Estimates the token count of a text with {@link MCEngineArtificialIntelligenceApiUtilTokenizer#estimate(String)}.
+     *
+     * @param text The text.
+     * @return Estimated tokens.
+     */
+    public static int estimateTokens(String text) {
+        return MCEngineArtificialIntelligenceApiUtilTokenizer.estimate(text);
+    }
+
+    /**
+     * Appends a turn, dropping the oldest turns as needed to stay within the limits.
+     *
+     * @param role    Who produced the message.
+     * @param content The message text.
+     */
+    public void add(Role role, String content) {
+        add(new Turn(role, content, estimateTokens(content)));
+    }
+
+    /**
+     * Appends a turn, dropping the oldest turns as needed to stay within the limits.
+     *
+     * @param turn The turn.
+     */
+    public synchronized void add(Turn turn) {
+        if (size == turns.length) {
+            removeOldest();
+        }
+        turns[(head + size) % turns.length] = turn;
+        size++;
+        totalTokens += turn.tokens;
+        while (size > 1 && totalTokens > maxTokens) {
+            removeOldest();
+        }
+        rendered = null;
+    }
+
+    /**
+     * Puts turns restored from an earlier session in front of the current ones, which are newer, in one
+     * step so turns added concurrently are never interleaved with restored ones. If the result exceeds the
+     * limits, the oldest restored turns are dropped first.
+     *
+     * @param restored The turns to put in front, oldest first.
+     */
+    public synchronized void restore(List<Turn> restored) {
+        List<Turn> newer = new ArrayList<>(size);
+        forEach(newer::add);
+        while (size > 0) {
+            removeOldest();
+        }
+        for (Turn turn : restored) {
+            add(turn);
+        }
+        for (Turn turn : newer) {
+            add(turn);
+        }
+    }
+
+    /**
+     * Walks the kept turns from oldest to newest without copying them.
+     * {@code action} runs while the conversation is locked, so it must not block.
+     *
+     * @param action Called for each turn.
+     */
+    public synchronized void forEach(Consumer<Turn> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(turns[(head + i) % turns.length]);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the kept turns from oldest to newest.
+     *
+     * @return An unmodifiable list of turns.
+     */
+    public synchronized List<Turn> getTurns() {
+        List<Turn> snapshot = new ArrayList<>(size);
+        forEach(snapshot::add);
+        return Collections.unmodifiableList(snapshot);
+    }
+
+    /**
+     * Replaces the oldest turns with a summary of them. Nothing changes if {@code replaced} is no longer
+     * the start of the history, e.g. because turns were dropped while the summary was being written.
+     *
+     * @param replaced The oldest turns, as returned by {@link #getTurns()}; at least two.
+     * @param summary  The turn replacing them.
+     * @return Estimated tokens saved, or {@code -1} if the history had changed.
+     */
+    public synchronized int compact(List<Turn> replaced, Turn summary) {
+        if (replaced.size() < 2 || replaced.size() > size) {
+            return -1;
+        }
+        for (int i = 0; i < replaced.size(); i++) {
+            if (turns[(head + i) % turns.length] != replaced.get(i)) {
+                return -1;
+            }
+        }
+
+        int before = totalTokens;
+        for (int i = 0; i < replaced.size(); i++) {
+            removeOldest();
+        }
+        head = (head + turns.length - 1) % turns.length;
+        turns[head] = summary;
+        size++;
+        totalTokens += summary.tokens;
+        rendered = null;
+        return before - totalTokens;
+    }
+
+    /**
+     * Returns the history as text, one {@code [Player]: }, {@code [Ai]: } or {@code [Summary]: } line per turn.
+     * The string is cached until the next change.
+     *
+     * @return The rendered history; empty if there are no turns.
+     */
+    public synchronized String render() {
+        if (rendered == null) {
+            StringBuilder builder = new StringBuilder(totalTokens * 4 + size * 12);
+            forEach(turn -> builder
+                    .append(turn.role.getLabel())
+                    .append(turn.content)
+                    .append('\n'));
+            rendered = builder.toString();
+        }
+        return rendered;
+    }
+
+    /**
+     * Returns the number of kept turns.
+     *
+     * @return The turn count.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the estimated tokens of all kept turns.
+     *
+     * @return Estimated tokens.
+     */
+    public synchronized int getTotalTokens() {
+        return totalTokens;
+    }
+
+    /**
+     * Drops the oldest turn.
+     */
+    private void removeOldest() {
+        totalTokens -= turns[head].tokens;
+        turns[head] = null;
+        head = (head + 1) % turns.length;
+        size--;
+    }
+}
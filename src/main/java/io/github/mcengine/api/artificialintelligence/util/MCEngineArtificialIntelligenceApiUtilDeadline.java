@@ -0,0 +1,265 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * An absolute point in time by which an AI request must be finished.
+ * <p>
+ * A deadline is created once per logical request (for example when {@code runBotTask} is called) and
+ * every later stage – token lookup, limiter and pool queueing, each HTTP attempt and retry backoff – is
+ * bounded by the time that remains. Work still running when the deadline passes is abandoned: queued
+ * requests give up their place and in-flight HTTP exchanges are cancelled so their connections are freed.
+ * A deadline can also be {@link #cancel() cancelled} before it expires, which abandons the work the same way;
+ * hedged requests use this to stop the attempt that lost the race.
+ * <p>
+ * Because the model interfaces do not carry a deadline parameter, the deadline of the current call is
+ * passed down through {@link #callWith(MCEngineArtificialIntelligenceApiUtilDeadline, Supplier)}: the
+ * request pipeline reads {@link #current()} synchronously while the call is being dispatched and keeps it
+ * for the asynchronous stages.
+ * <p>
+ * Per-platform budgets are read from {@code ai.<platform>.timeout}:
+ * <ul>
+ *     <li>{@code total-ms} – end-to-end budget of a bot task, default {@code 90000}</li>
+ *     <li>{@code request-ms} – limit of a single HTTP attempt including the body, default {@code 60000}</li>
+ *     <li>{@code connect-ms} – TCP/TLS connect timeout, default {@code 10000}</li>
+ * </ul>
+ */
+public class MCEngineArtificialIntelligenceApiUtilDeadline {
+
+    /**
+     * Deadline of the call being dispatched on this thread, if any.
+     */
+    private static final ThreadLocal<MCEngineArtificialIntelligenceApiUtilDeadline> current = new ThreadLocal<>();
+
+    /**
+     * Timer cancelling work that outlives its deadline; created on first use and stopped by {@link #shutdown()}.
+     */
+    private static ScheduledThreadPoolExecutor timer;
+
+    /** Budget of a deadline that only ends when cancelled; long enough never to pass, short enough not to overflow. */
+    private static final long UNBOUNDED_NANOS = TimeUnit.DAYS.toNanos(365L * 100);
+
+    /** {@link System#nanoTime()} at which the deadline expires. */
+    private final long expiresAtNanos;
+
+    /** Completed when the deadline is cancelled; shared with the stage deadlines derived by {@link #min(long)}. */
+    private final CompletableFuture<Void> cancelled;
+
+    /**
+     * Creates a deadline expiring at the given {@link System#nanoTime()} value.
+     *
+     * @param expiresAtNanos Expiry in nano time.
+     * @param cancelled      The cancellation signal.
+     */
+    private MCEngineArtificialIntelligenceApiUtilDeadline(long expiresAtNanos, CompletableFuture<Void> cancelled) {
+        this.expiresAtNanos = expiresAtNanos;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Creates a deadline a number of milliseconds from now.
+     *
+     * @param millis The budget in milliseconds.
+     * @return The deadline.
+     */
+    public static MCEngineArtificialIntelligenceApiUtilDeadline after(long millis) {
+        return new MCEngineArtificialIntelligenceApiUtilDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis),
+                new CompletableFuture<>());
+    }
+
+    /**
+     * Creates a deadline that never expires but can be {@link #cancel() cancelled}.
+     *
+     * @return The deadline.
+     */
+    public static MCEngineArtificialIntelligenceApiUtilDeadline unbounded() {
+        return new MCEngineArtificialIntelligenceApiUtilDeadline(System.nanoTime() + UNBOUNDED_NANOS, new CompletableFuture<>());
+    }
+
+    /**
+     * Creates the end-to-end deadline for a platform from {@code ai.<platform>.timeout.total-ms}.
+     *
+     * @param plugin   The Bukkit plugin instance used for configuration.
+     * @param platform The platform key (e.g. {@code openai} or {@code custom.<server>}).
+     * @return The deadline.
+     */
+    public static MCEngineArtificialIntelligenceApiUtilDeadline forPlatform(Plugin plugin, String platform) {
+        return after(plugin.getConfig().getLong("ai." + platform + ".timeout.total-ms", 90_000L));
+    }
+
+    /**
+     * Returns the deadline of the call being dispatched on this thread.
+     *
+     * @return The deadline, or {@code null} if the call has none.
+     */
+    public static MCEngineArtificialIntelligenceApiUtilDeadline current() {
+        return current.get();
+    }
+
+    /**
+     * Runs {@code call} with {@code deadline} as the current deadline, so every AI request it dispatches
+     * is bounded by it.
+     *
+     * @param deadline The deadline, or {@code null} for none.
+     * @param call     Dispatches the request.
+     * @param <T>      The result type.
+     * @return The result of {@code call}.
+     */
+    public static <T> T callWith(MCEngineArtificialIntelligenceApiUtilDeadline deadline, Supplier<T> call) {
+        MCEngineArtificialIntelligenceApiUtilDeadline previous = current.get();
+        current.set(deadline);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Returns the time left.
+     *
+     * @return Remaining milliseconds, {@code 0} once expired.
+     */
+    public long remainingMillis() {
+        return cancelled.isDone() ? 0 : Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+    }
+
+    /**
+     * Checks whether the deadline has passed.
+     *
+     * @return {@code true} once expired or cancelled.
+     */
+    public boolean isExpired() {
+        return cancelled.isDone() || System.nanoTime() - expiresAtNanos >= 0;
+    }
+
+    /**
+     * Ends the deadline now. Work bounded by it is abandoned as if it had expired: waiters give up their
+     * place and exchanges registered with {@link #cancelAtExpiry} are cancelled.
+     */
+    public void cancel() {
+        cancelled.complete(null);
+    }
+
+    /**
+     * Checks whether the deadline was {@link #cancel() cancelled}.
+     *
+     * @return {@code true} once cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled.isDone();
+    }
+
+    /**
+     * Runs {@code action} when the deadline is cancelled, or right away if it already was.
+     * Expiry alone does not run it.
+     *
+     * @param action The action; runs on the cancelling thread and must not block.
+     */
+    public void onCancel(Runnable action) {
+        cancelled.thenRun(action);
+    }
+
+    /**
+     * Returns a deadline expiring at the same time whose cancellation is independent: cancelling either
+     * one leaves the other running.
+     *
+     * @return The new deadline.
+     */
+    public MCEngineArtificialIntelligenceApiUtilDeadline fork() {
+        return new MCEngineArtificialIntelligenceApiUtilDeadline(expiresAtNanos, new CompletableFuture<>());
+    }
+
+    /**
+     * Returns whichever is earlier: this deadline or {@code millis} from now. The result is cancelled
+     * together with this deadline.
+     *
+     * @param millis A stage limit in milliseconds; {@code 0} or less means no stage limit.
+     * @return The earlier deadline.
+     */
+    public MCEngineArtificialIntelligenceApiUtilDeadline min(long millis) {
+        if (millis <= 0) {
+            return this;
+        }
+        long stage = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        return stage - expiresAtNanos < 0 ? new MCEngineArtificialIntelligenceApiUtilDeadline(stage, cancelled) : this;
+    }
+
+    /**
+     * Returns a view of {@code future} that completes exceptionally with a {@link TimeoutException} if the
+     * result is not there by the deadline. The original future is left untouched, since it may be shared
+     * with other callers.
+     *
+     * @param future The work to bound.
+     * @param <T>    The result type.
+     * @return A future completed with the result or the timeout, whichever comes first.
+     */
+    public <T> CompletableFuture<T> bound(CompletableFuture<T> future) {
+        return future.copy().orTimeout(Math.max(1, remainingMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels {@code future} if it is still running at the deadline or when the deadline is cancelled. Unlike
+     * {@link #bound}, cancelling the future returned by the JDK HTTP client also aborts the exchange and
+     * releases its connection.
+     *
+     * @param future The work to cancel.
+     * @param <T>    The result type.
+     * @return The same future.
+     */
+    public <T> CompletableFuture<T> cancelAtExpiry(CompletableFuture<T> future) {
+        if (future.isDone()) {
+            return future;
+        }
+        ScheduledFuture<?> task = timer().schedule(() -> future.cancel(true), Math.max(1, remainingMillis()), TimeUnit.MILLISECONDS);
+        future.whenComplete((result, error) -> task.cancel(false));
+        onCancel(() -> future.cancel(true));
+        return future;
+    }
+
+    /**
+     * Creates the exception reported when the deadline has passed.
+     *
+     * @return A timeout exception.
+     */
+    public TimeoutException exceeded() {
+        return new TimeoutException("AI request deadline exceeded");
+    }
+
+    /**
+     * Stops the timer thread. Pending expiries are dropped; a later deadline starts a new timer.
+     * Typically called when the plugin is disabled.
+     */
+    public static synchronized void shutdown() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    /**
+     * Returns the timer, starting it if needed.
+     */
+    private static synchronized ScheduledThreadPoolExecutor timer() {
+        if (timer == null) {
+            timer = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "MCEngineAI-Deadline");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.setRemoveOnCancelPolicy(true);
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tick-batched delivery of AI results on the main thread.
+ * <p>
+ * Instead of scheduling one sync task per reply, background threads {@link #post} their main-thread work
+ * (sending chat lines, recording turns, releasing sessions) to a lock-free queue. A single repeating sync task
+ * drains it once per tick, in posting order, and stops for the tick once {@code ai.delivery.tick-budget-ms}
+ * (default {@code 5}) has been spent, so AI traffic cannot push a tick over its 50 ms. Leftover work runs on
+ * the next tick; at least one action runs per tick, so delivery always makes progress.
+ * <p>
+ * The drain task is started on first use.
+ */
+public class MCEngineArtificialIntelligenceApiUtilDelivery {
+
+    /** Pending main-thread work, oldest first; many producers, drained by the main thread only. */
+    private static final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+    /** Number of actions in {@link #queue}, kept separately because counting the queue is linear. */
+    private static final AtomicInteger pending = new AtomicInteger();
+
+    /** The repeating drain task; {@code null} until started. */
+    private static volatile BukkitTask task;
+
+    /** Plugin whose logger reports failed actions. */
+    private static volatile Plugin plugin;
+
+    /** Main-thread time one tick may spend on delivery, in nanoseconds. */
+    private static volatile long budgetNanos = TimeUnit.MILLISECONDS.toNanos(5);
+
+    // Statistics; written by the main thread only
+
+    /** Actions run. */
+    private static volatile long delivered;
+
+    /** Actions that threw. */
+    private static volatile long failures;
+
+    /** Ticks that ran at least one action. */
+    private static volatile long ticks;
+
+    /** Ticks that hit the budget with work left over. */
+    private static volatile long deferredTicks;
+
+    /** Drain time of the most recent tick with work, in microseconds. */
+    private static volatile long lastDrainMicros;
+
+    /** Longest drain time of a tick, in microseconds. */
+    private static volatile long maxDrainMicros;
+
+    /** Summed drain time of all ticks with work, in microseconds. */
+    private static volatile long totalDrainMicros;
+
+    /**
+     * Reads the delivery settings and starts the drain task if it is not running yet.
+     *
+     * @param plugin The Bukkit plugin instance.
+     */
+    public static synchronized void start(Plugin plugin) {
+        if (task != null) {
+            return;
+        }
+        MCEngineArtificialIntelligenceApiUtilDelivery.plugin = plugin;
+        budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, plugin.getConfig().getInt("ai.delivery.tick-budget-ms", 5)));
+        task = Bukkit.getScheduler().runTaskTimer(plugin, MCEngineArtificialIntelligenceApiUtilDelivery::drain, 1L, 1L);
+    }
+
+    /**
+     * Stops the drain task. Work still queued is dropped.
+     */
+    public static synchronized void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        queue.clear();
+        pending.set(0);
+    }
+
+    /**
+     * Queues work to run on the main thread during an upcoming tick. Safe to call from any thread.
+     *
+     * @param plugin The Bukkit plugin instance, used to start the drain task on first use.
+     * @param action The work to run.
+     */
+    public static void post(Plugin plugin, Runnable action) {
+        if (task == null) {
+            start(plugin);
+        }
+        queue.add(action);
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Runs queued work until the queue is empty or the tick budget is spent. Called once per tick on the main thread.
+     */
+    private static void drain() {
+        long start = System.nanoTime();
+        long count = 0;
+        Runnable action;
+        while ((action = queue.poll()) != null) {
+            pending.decrementAndGet();
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                failures++;
+                plugin.getLogger().warning("AI delivery failed: " + e.getMessage());
+            }
+            count++;
+            if (System.nanoTime() - start >= budgetNanos) {
+                break;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        delivered += count;
+        ticks++;
+        lastDrainMicros = micros;
+        maxDrainMicros = Math.max(maxDrainMicros, micros);
+        totalDrainMicros += micros;
+        if (!queue.isEmpty()) {
+            deferredTicks++;
+        }
+    }
+
+    /**
+     * Returns delivery statistics.
+     *
+     * @return Map with {@code pending}, {@code delivered}, {@code failures}, {@code ticks} (ticks with work),
+     *         {@code deferredTicks} (ticks that left work for the next one), and the per-tick drain time as
+     *         {@code lastDrainMicros}, {@code avgDrainMicros} and {@code maxDrainMicros}.
+     */
+    public static Map<String, Long> getStats() {
+        long tickCount = ticks;
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("pending", (long) pending.get());
+        stats.put("delivered", delivered);
+        stats.put("failures", failures);
+        stats.put("ticks", tickCount);
+        stats.put("deferredTicks", deferredTicks);
+        stats.put("lastDrainMicros", lastDrainMicros);
+        stats.put("avgDrainMicros", tickCount == 0 ? 0L : totalDrainMicros / tickCount);
+        stats.put("maxDrainMicros", maxDrainMicros);
+        return stats;
+    }
+}
@@ -0,0 +1,377 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import io.github.mcengine.api.artificialintelligence.response.MCEngineArtificialIntelligenceApiResponse;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hedged requests and cross-provider failover on top of the registered models.
+ * <p>
+ * A hedge policy pairs a primary registered model with a backup on another platform or model.
+ * When the primary has not answered within a percentile of its recently observed latency, the same
+ * prompt is sent to the backup and whichever answers first successfully wins. If the primary fails
+ * outright the backup is fired immediately. Latency is measured to the start of each reply, so long
+ * answers do not inflate the hedge delay.
+ * <p>
+ * Once the race is decided the losing request is cancelled through its own
+ * {@link MCEngineArtificialIntelligenceApiUtilDeadline}, which aborts its HTTP exchange (or its wait for a
+ * limiter permit or connection) and frees the capacity. A loser that identical requests have joined through
+ * request coalescing is only detached, since those callers still need its result. The winning response is
+ * tagged with the model that produced it (see {@link MCEngineArtificialIntelligenceApiResponse#getSource()}).
+ * <p>
+ * Policies are read from {@code ai.hedge.policies}, using registered platform and model names:
+ * <pre>
+ * ai:
+ *   hedge:
+ *     policies:
+ *       - primary: openai:gpt-4o-mini
+ *         backup: deepseek:deepseek-chat
+ *         percentile: 95          # default 95
+ *         min-delay-ms: 500       # lower bound of the hedge delay, default 500
+ *         initial-delay-ms: 5000  # delay used until enough latency samples exist, default 5000
+ * </pre>
+ * Only server-token requests are hedged, since a player's token belongs to a single platform.
+ */
+public class MCEngineArtificialIntelligenceApiUtilHedge {
+
+    /**
+     * Samples kept per model for percentile estimation.
+     */
+    private static final int WINDOW_SIZE = 256;
+
+    /**
+     * Samples required before the percentile is trusted over the initial delay.
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    /**
+     * Policies keyed by {@code platform:model} of the primary; {@code null} until initialized.
+     */
+    private static volatile Map<String, Policy> policies;
+
+    /**
+     * Recent successful reply-start latencies keyed by {@code platform:model}.
+     */
+    private static final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * Hedging counters keyed by {@code platform:model}.
+     */
+    private static final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the hedge policies from the plugin config.
+     *
+     * @param plugin The Bukkit plugin instance.
+     */
+    public static void initialize(Plugin plugin) {
+        Map<String, Policy> loaded = new HashMap<>();
+        List<Map<?, ?>> entries = plugin.getConfig().getMapList("ai.hedge.policies");
+        for (Map<?, ?> entry : entries) {
+            Object primary = entry.get("primary");
+            Object backup = entry.get("backup");
+            if (primary == null || backup == null || !primary.toString().contains(":") || !backup.toString().contains(":")) {
+                plugin.getLogger().warning("Ignoring hedge policy without 'primary' and 'backup' in platform:model form: " + entry);
+                continue;
+            }
+            loaded.put(key(primary.toString()), new Policy(
+                    key(backup.toString()),
+                    number(entry.get("percentile"), 95),
+                    number(entry.get("min-delay-ms"), 500),
+                    number(entry.get("initial-delay-ms"), 5000)
+            ));
+        }
+        policies = loaded;
+    }
+
+    /**
+     * Checks whether hedging has been initialized.
+     *
+     * @return {@code true} once {@link #initialize(Plugin)} has run.
+     */
+    public static boolean isInitialized() {
+        return policies != null;
+    }
+
+    /**
+     * Sends a prompt with the server token, hedging to the backup model if a policy exists.
+     *
+     * @param platform     The registered platform name.
+     * @param model        The registered model name.
+     * @param systemPrompt The system prompt.
+     * @param message      The user message.
+     * @return A future completed with the first successful response, or the primary's error if none succeeded.
+     */
+    public static CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(String platform, String model, String systemPrompt, String message) {
+        return getChatResponseAsync(platform, model, systemPrompt, List.of(), message);
+    }
+
+    /**
+     * Sends a conversation with the server token, hedging to the backup model if a policy exists.
+     *
+     * @param platform     The registered platform name.
+     * @param model        The registered model name.
+     * @param systemPrompt The system prompt.
+     * @param history      Earlier turns of the conversation, oldest first.
+     * @param message      The user message.
+     * @return A future completed with the first successful response, or the primary's error if none succeeded.
+     */
+    public static CompletableFuture<MCEngineArtificialIntelligenceApiResponse> getChatResponseAsync(
+            String platform, String model, String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message) {
+        String primaryKey = platform.toLowerCase() + ":" + model;
+        Map<String, Policy> current = policies;
+        Policy policy = current == null ? null : current.get(primaryKey);
+        if (policy == null) {
+            return timed(primaryKey, MCEngineArtificialIntelligenceApiUtilAi.getAi(platform, model).getChatResponseAsync(systemPrompt, history, message));
+        }
+
+        Counters primaryCounters = counters.computeIfAbsent(primaryKey, k -> new Counters());
+        primaryCounters.requests.incrementAndGet();
+
+        CompletableFuture<MCEngineArtificialIntelligenceApiResponse> result = new CompletableFuture<>();
+        AtomicBoolean backupFired = new AtomicBoolean();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<MCEngineArtificialIntelligenceApiResponse> primaryError = new AtomicReference<>();
+        MCEngineArtificialIntelligenceApiUtilDeadline deadline = MCEngineArtificialIntelligenceApiUtilDeadline.current();
+
+        Runnable fireBackup = () -> {
+            if (result.isDone() || !backupFired.compareAndSet(false, true)) {
+                return;
+            }
+            primaryCounters.hedged.incrementAndGet();
+            pending.incrementAndGet();
+            // The backup may fire on a timer thread; it expires with the caller's deadline
+            MCEngineArtificialIntelligenceApiUtilDeadline backupDeadline = contender(deadline);
+            race(policy.backup, backupDeadline, MCEngineArtificialIntelligenceApiUtilDeadline.callWith(backupDeadline,
+                    () -> call(policy.backup, systemPrompt, history, message)), result, pending, primaryError, null);
+        };
+
+        MCEngineArtificialIntelligenceApiUtilDeadline primaryDeadline = contender(deadline);
+        race(primaryKey, primaryDeadline, MCEngineArtificialIntelligenceApiUtilDeadline.callWith(primaryDeadline,
+                () -> call(primaryKey, systemPrompt, history, message)), result, pending, primaryError, fireBackup);
+
+        long delay = latencies.computeIfAbsent(primaryKey, k -> new LatencyWindow())
+                .percentile(policy.percentile, policy.initialDelayMillis);
+        CompletableFuture.delayedExecutor(Math.max(policy.minDelayMillis, delay), TimeUnit.MILLISECONDS).execute(fireBackup);
+        return result;
+    }
+
+    /**
+     * Creates a contender's deadline: the caller's expiry, if any, with a cancellation of its own.
+     */
+    private static MCEngineArtificialIntelligenceApiUtilDeadline contender(MCEngineArtificialIntelligenceApiUtilDeadline deadline) {
+        return deadline != null ? deadline.fork() : MCEngineArtificialIntelligenceApiUtilDeadline.unbounded();
+    }
+
+    /**
+     * Starts a call to a registered model, turning a missing registration into a failed future.
+     */
+    private static CompletableFuture<MCEngineArtificialIntelligenceApiResponse> call(
+            String key, String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message) {
+        String[] parts = key.split(":", 2);
+        try {
+            return MCEngineArtificialIntelligenceApiUtilAi.getAi(parts[0], parts[1]).getChatResponseAsync(systemPrompt, history, message);
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Wires one contender into the race.
+     *
+     * @param key          {@code platform:model} of the contender.
+     * @param own          The contender's deadline, cancelled if it is still running once the race is decided.
+     * @param call         The contender's pending response.
+     * @param result       The race result.
+     * @param pending      Contenders still running.
+     * @param primaryError First error seen, reported if nobody succeeds.
+     * @param onFailure    Run when this contender fails (fires the backup for the primary), or {@code null}.
+     */
+    private static void race(
+            String key,
+            MCEngineArtificialIntelligenceApiUtilDeadline own,
+            CompletableFuture<MCEngineArtificialIntelligenceApiResponse> call,
+            CompletableFuture<MCEngineArtificialIntelligenceApiResponse> result,
+            AtomicInteger pending,
+            AtomicReference<MCEngineArtificialIntelligenceApiResponse> primaryError,
+            Runnable onFailure
+    ) {
+        result.whenComplete((winner, error) -> {
+            if (!call.isDone()) {
+                own.cancel();
+            }
+        });
+        timed(key, call).whenComplete((response, error) -> {
+            MCEngineArtificialIntelligenceApiResponse outcome = response != null ? response.withSource(key) : errorResponse(error);
+            if (!outcome.isError()) {
+                if (!result.isDone()) {
+                    Counters winner = counters.computeIfAbsent(key, k -> new Counters());
+                    winner.wins.incrementAndGet();
+                    if (!result.complete(outcome)) {
+                        winner.wins.decrementAndGet();
+                    }
+                }
+                return;
+            }
+            primaryError.compareAndSet(null, outcome);
+            if (onFailure != null) {
+                onFailure.run();
+            }
+            if (pending.decrementAndGet() == 0) {
+                result.complete(primaryError.get());
+            }
+        });
+    }
+
+    /**
+     * Records the latency of successful responses of a model: the time until its reply started when the
+     * response reports it, otherwise the time until it completed.
+     */
+    private static CompletableFuture<MCEngineArtificialIntelligenceApiResponse> timed(String key, CompletableFuture<MCEngineArtificialIntelligenceApiResponse> call) {
+        long start = System.nanoTime();
+        return call.whenComplete((response, error) -> {
+            if (response != null && !response.isError() && !response.isCached()) {
+                long millis = response.getReplyMillis() >= 0 ? response.getReplyMillis() : (System.nanoTime() - start) / 1_000_000L;
+                latencies.computeIfAbsent(key, k -> new LatencyWindow()).record(millis);
+            }
+        });
+    }
+
+    /**
+     * Wraps an exception as an error response.
+     */
+    private static MCEngineArtificialIntelligenceApiResponse errorResponse(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return MCEngineArtificialIntelligenceApiResponse.error("Exception: " + (cause == null ? "unknown" : cause.getMessage()));
+    }
+
+    /**
+     * Returns hedging counters per model.
+     *
+     * @return Map of {@code platform:model} to {@code requests} (hedged requests as primary), {@code hedged}
+     *         (backups fired), {@code wins} (races won) and {@code p50Millis}/{@code p95Millis} latency.
+     */
+    public static Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+            Map<String, Long> values = new LinkedHashMap<>();
+            values.put("requests", entry.getValue().requests.get());
+            values.put("hedged", entry.getValue().hedged.get());
+            values.put("wins", entry.getValue().wins.get());
+            LatencyWindow window = latencies.get(entry.getKey());
+            values.put("p50Millis", window == null ? -1 : window.percentile(50, -1));
+            values.put("p95Millis", window == null ? -1 : window.percentile(95, -1));
+            stats.put(entry.getKey(), values);
+        }
+        return stats;
+    }
+
+    /**
+     * Normalizes a {@code platform:model} reference (platform names are case-insensitive).
+     */
+    private static String key(String reference) {
+        String[] parts = reference.split(":", 2);
+        return parts[0].toLowerCase() + ":" + parts[1];
+    }
+
+    /**
+     * Reads an optional numeric config value.
+     */
+    private static int number(Object value, int fallback) {
+        return value instanceof Number ? ((Number) value).intValue() : fallback;
+    }
+
+    /**
+     * A hedge policy for one primary model.
+     */
+    private static class Policy {
+
+        /** {@code platform:model} of the backup. */
+        private final String backup;
+
+        /** Latency percentile after which the backup fires. */
+        private final int percentile;
+
+        /** Lower bound of the hedge delay. */
+        private final long minDelayMillis;
+
+        /** Hedge delay used until enough samples exist. */
+        private final long initialDelayMillis;
+
+        Policy(String backup, int percentile, long minDelayMillis, long initialDelayMillis) {
+            this.backup = backup;
+            this.percentile = percentile;
+            this.minDelayMillis = minDelayMillis;
+            this.initialDelayMillis = initialDelayMillis;
+        }
+    }
+
+    /**
+     * Hedging counters for one model.
+     */
+    private static class Counters {
+
+        /** Requests where this model was the hedged primary. */
+        private final AtomicLong requests = new AtomicLong();
+
+        /** Backups fired for this primary. */
+        private final AtomicLong hedged = new AtomicLong();
+
+        /** Races won by this model. */
+        private final AtomicLong wins = new AtomicLong();
+    }
+
+    /**
+     * Ring buffer of recent latencies; guarded by its own monitor.
+     */
+    private static class LatencyWindow {
+
+        /** Samples in milliseconds. */
+        private final long[] samples = new long[WINDOW_SIZE];
+
+        /** Total samples recorded. */
+        private long count;
+
+        /**
+         * Adds a sample, overwriting the oldest once full.
+         *
+         * @param millis Latency in milliseconds.
+         */
+        synchronized void record(long millis) {
+            samples[(int) (count++ % WINDOW_SIZE)] = millis;
+        }
+
+        /**
+         * Estimates a latency percentile.
+         *
+         * @param percentile Percentile in {@code [0, 100]}.
+         * @param fallback   Value returned while fewer than {@link #MIN_SAMPLES} samples exist.
+         * @return The percentile in milliseconds.
+         */
+        long percentile(int percentile, long fallback) {
+            long[] sorted;
+            synchronized (this) {
+                if (count < MIN_SAMPLES) {
+                    return fallback;
+                }
+                sorted = Arrays.copyOf(samples, (int) Math.min(count, WINDOW_SIZE));
+            }
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import org.bukkit.plugin.Plugin;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared HTTP transport for every AI model provider.
+ * <p>
+ * One pooled {@link HttpClient} is kept per platform key (e.g. {@code openai}, {@code deepseek},
+ * {@code openrouter} or {@code custom.<server>}) so TLS sessions and TCP connections are kept alive
+ * and reused between chat calls instead of being re-established for every player message.
+ * HTTPS endpoints negotiate HTTP/2 where the provider supports it, which multiplexes concurrent
+ * requests over a single connection.
+ * <p>
+ * Per-platform settings are read from {@code ai.<platform>.http}:
+ * <ul>
+ *     <li>{@code pool-size} – maximum concurrent requests (and therefore HTTP/1.1 connections), default {@code 16}</li>
+ *     <li>{@code version} – {@code HTTP_2} or {@code HTTP_1_1}; defaults to HTTP/2 for {@code https} endpoints</li>
+ * </ul>
+ * The connect timeout is read from {@code ai.<platform>.timeout.connect-ms} (default {@code 10000}).
+ * <p>
+ * How long idle connections are kept alive is a JVM-wide setting of the JDK client and is not changed by this
+ * plugin, since that would affect every other plugin's clients. Server operators who want a longer window than
+ * the JDK default can start the server with {@code -Djdk.httpclient.keepalive.timeout=<seconds>}.
+ */
+public class MCEngineArtificialIntelligenceApiUtilHttp {
+
+    /**
+     * Pools keyed by platform key.
+     */
+    private static final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the pooled transport for a platform, creating it from config on first use.
+     *
+     * @param plugin   The Bukkit plugin instance used for configuration.
+     * @param platform The platform key (e.g. {@code openai} or {@code custom.<server>}).
+     * @param endpoint The endpoint the platform talks to; used to pick the default protocol version.
+     * @return The shared pool for the platform.
+     */
+    public static Pool getPool(Plugin plugin, String platform, String endpoint) {
+        return pools.computeIfAbsent(platform, key -> createPool(plugin, key, endpoint));
+    }
+
+    /**
+     * Sends a request through the platform's pooled client without blocking the calling thread.
+     * While the platform's pool is saturated the request waits in a FIFO queue for a free slot.
+     * The slot is held until the body handler has consumed the body, so the handler should read the
+     * body fully (e.g. {@code ofString()}).
+     *
+     * @param plugin      The Bukkit plugin instance.
+     * @param platform    The platform key.
+     * @param request     The request to send.
+     * @param bodyHandler The handler that consumes the response body.
+     * @param <T>         The body type.
+     * @return A future completed with the HTTP response, or exceptionally if the request fails.
+     */
+    public static <T> CompletableFuture<HttpResponse<T>> sendAsync(Plugin plugin, String platform, HttpRequest request,
+                                                                   HttpResponse.BodyHandler<T> bodyHandler) {
+        return sendAsync(plugin, platform, request, bodyHandler, null);
+    }
+
+    /**
+     * Sends a request like {@link #sendAsync(Plugin, String, HttpRequest, HttpResponse.BodyHandler)}, bounded by
+     * a deadline: the request stops waiting for a slot once the deadline passes, and an exchange still running
+     * at the deadline is cancelled so its connection and slot are released.
+     *
+     * @param plugin      The Bukkit plugin instance.
+     * @param platform    The platform key.
+     * @param request     The request to send.
+     * @param bodyHandler The handler that consumes the response body.
+     * @param deadline    The deadline, or {@code null} for none.
+     * @param <T>         The body type.
+     * @return A future completed with the HTTP response, or exceptionally if the request fails or times out;
+     *         with a {@link RejectedExecutionException} if no slot became free before the deadline.
+     */
+    public static <T> CompletableFuture<HttpResponse<T>> sendAsync(Plugin plugin, String platform, HttpRequest request,
+                                                                   HttpResponse.BodyHandler<T> bodyHandler,
+                                                                   MCEngineArtificialIntelligenceApiUtilDeadline deadline) {
+        Pool pool = getPool(plugin, platform, request.uri().toString());
+        // Giving up on a pool slot is local saturation, reported like a limiter queue timeout
+        CompletableFuture<Void> slot = pool.acquire(deadline).exceptionallyCompose(error -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            return CompletableFuture.failedFuture(cause instanceof TimeoutException
+                    ? new RejectedExecutionException("HTTP connection pool queue timed out (" + platform + ")")
+                    : cause);
+        });
+        CompletableFuture<HttpResponse<T>> result = slot.thenCompose(ignored -> {
+            CompletableFuture<HttpResponse<T>> exchange;
+            if (deadline == null) {
+                exchange = pool.client.sendAsync(request, bodyHandler);
+            } else if (deadline.isExpired()) {
+                exchange = CompletableFuture.failedFuture(deadline.exceeded());
+            } else {
+                exchange = deadline.cancelAtExpiry(pool.client.sendAsync(request, bodyHandler));
+            }
+            return exchange.whenComplete((response, error) -> pool.release());
+        });
+        if (deadline == null) {
+            return result;
+        }
+        // Report an exchange cancelled at the deadline as a timeout rather than a plain cancellation
+        return result.exceptionallyCompose(error -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            return CompletableFuture.failedFuture(cause instanceof CancellationException ? deadline.exceeded() : cause);
+        });
+    }
+
+    /**
+     * Returns connection statistics for every platform that has sent at least one request.
+     *
+     * @return Map of platform key to its counters ({@code inFlight}, {@code poolSize}, {@code queued}).
+     */
+    public static Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, Pool> entry : pools.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Drops all pooled clients. Idle connections are closed by the JDK once unreferenced.
+     * Typically called when the plugin is disabled or reloaded.
+     */
+    public static void shutdown() {
+        pools.clear();
+    }
+
+    /**
+     * Builds a pool from the platform's config section.
+     */
+    private static Pool createPool(Plugin plugin, String platform, String endpoint) {
+        String configBase = "ai." + platform + ".http.";
+        int poolSize = Math.max(1, plugin.getConfig().getInt(configBase + "pool-size", 16));
+        boolean secure = endpoint != null && URI.create(endpoint).getScheme().equalsIgnoreCase("https");
+        String version = plugin.getConfig().getString(configBase + "version", secure ? "HTTP_2" : "HTTP_1_1");
+
+        long connectTimeout = plugin.getConfig().getLong("ai." + platform + ".timeout.connect-ms", 10_000L);
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.valueOf(version.toUpperCase()))
+                .connectTimeout(Duration.ofMillis(Math.max(1, connectTimeout)))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        return new Pool(client, poolSize);
+    }
+
+    /**
+     * A pooled client for one platform plus its concurrency slots.
+     */
+    public static class Pool {
+
+        /** The shared client. */
+        private final HttpClient client;
+
+        /** Requests waiting for a slot, oldest first; also guards {@link #freeSlots}. */
+        private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+        /** Free concurrency slots bounding simultaneous requests and HTTP/1.1 connections. */
+        private int freeSlots;
+
+        /** Configured pool size. */
+        private final int poolSize;
+
+        /** Requests currently in flight. */
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /**
+         * Creates a pool around a client.
+         *
+         * @param client   The shared HTTP client.
+         * @param poolSize Maximum concurrent requests.
+         */
+        Pool(HttpClient client, int poolSize) {
+            this.client = client;
+            this.poolSize = poolSize;
+            this.freeSlots = poolSize;
+        }
+
+        /**
+         * Returns the underlying shared client.
+         *
+         * @return The HTTP client.
+         */
+        public HttpClient getClient() {
+            return client;
+        }
+
+        /**
+         * Takes a concurrency slot, completing immediately when one is free or once a slot is
+         * released otherwise.
+         *
+         * @param deadline The deadline after which, or once cancelled, a waiting request gives up; {@code null} for none.
+         * @return A future completed when the slot is granted, or exceptionally if the deadline passed first.
+         */
+        CompletableFuture<Void> acquire(MCEngineArtificialIntelligenceApiUtilDeadline deadline) {
+            CompletableFuture<Void> grant;
+            synchronized (waiters) {
+                if (freeSlots > 0) {
+                    freeSlots--;
+                    grant = CompletableFuture.completedFuture(null);
+                } else {
+                    grant = new CompletableFuture<>();
+                    waiters.add(grant);
+                }
+            }
+            if (deadline != null && !grant.isDone()) {
+                // A timed-out waiter stays queued but is skipped by release()
+                grant.orTimeout(Math.max(1, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+                deadline.onCancel(() -> grant.cancel(false));
+            }
+            return grant.thenRun(inFlight::incrementAndGet);
+        }
+
+        /**
+         * Frees the slot taken by {@link #acquire(MCEngineArtificialIntelligenceApiUtilDeadline)}, handing it straight to the oldest waiter if any.
+         */
+        void release() {
+            inFlight.decrementAndGet();
+            while (true) {
+                CompletableFuture<Void> next;
+                synchronized (waiters) {
+                    next = waiters.poll();
+                    if (next == null) {
+                        freeSlots++;
+                        return;
+                    }
+                }
+                if (next.complete(null)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns a snapshot of this pool's counters.
+         *
+         * @return Map of counter name to value.
+         */
+        public Map<String, Long> getStats() {
+            Map<String, Long> stats = new LinkedHashMap<>();
+            stats.put("inFlight", (long) inFlight.get());
+            stats.put("poolSize", (long) poolSize);
+            synchronized (waiters) {
+                stats.put("queued", (long) waiters.size());
+            }
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evicts sessions that have been idle for {@code ai.session.idle-timeout-seconds} (default {@code 1800};
+ * {@code 0} disables eviction).
+ * <p>
+ * Sessions sit in a hashed timing wheel of {@value #SLOTS} one-second slots, filed under the second their idle
+ * timeout runs out. Using a session only updates its {@link MCEngineArtificialIntelligenceApiUtilSession#touch()
+ * last-active time}, so a touch costs O(1) and no session has a timer of its own. Once a second the wheel
+ * visits one slot: sessions that are really idle are evicted, and sessions touched since they were filed
+ * are moved to the slot of their new deadline. Sessions with a request in progress are never evicted, and
+ * sessions already terminated are simply dropped from the wheel.
+ * <p>
+ * Evicted conversations are spilled to disk when {@code ai.session.spill} is enabled, see
+ * {@link MCEngineArtificialIntelligenceApiUtilSessionStore}.
+ */
+public class MCEngineArtificialIntelligenceApiUtilIdleEvictor {
+
+    /** Number of wheel slots; a power of two. */
+    private static final int SLOTS = 512;
+
+    /** Time covered by one slot. */
+    private static final long TICK_MILLIS = 1000L;
+
+    /** The wheel: slot → sessions whose deadline falls in that slot. */
+    private static final Set<MCEngineArtificialIntelligenceApiUtilSession>[] wheel = newWheel();
+
+    /** Thread turning the wheel; {@code null} while eviction is off. */
+    private static ScheduledExecutorService executor;
+
+    /** Idle time after which a session is evicted; {@code 0} when eviction is off. */
+    private static volatile long timeoutMillis;
+
+    /** The repeating wheel task; {@code null} while eviction is off. */
+    private static ScheduledFuture<?> ticker;
+
+    /** Next wheel tick to visit; only used by the wheel thread. */
+    private static long nextTick;
+
+    /** Plugin used to notify evicted players. */
+    private static volatile Plugin plugin;
+
+    /** Sessions evicted. */
+    private static final AtomicLong evicted = new AtomicLong();
+
+    /** Sessions moved to a later slot because they were touched. */
+    private static final AtomicLong rescheduled = new AtomicLong();
+
+    /**
+     * Reads the idle timeout and starts or stops the wheel accordingly. Sessions that already exist are put
+     * on the wheel as if they had just been used.
+     *
+     * @param plugin   The Bukkit plugin instance.
+     * @param sessions The existing sessions.
+     */
+    public static synchronized void initialize(Plugin plugin, Collection<MCEngineArtificialIntelligenceApiUtilSession> sessions) {
+        MCEngineArtificialIntelligenceApiUtilIdleEvictor.plugin = plugin;
+        timeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(0L, plugin.getConfig().getLong("ai.session.idle-timeout-seconds", 1800L)));
+        if (timeoutMillis == 0) {
+            shutdown();
+            return;
+        }
+        if (ticker == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "MCEngineAI-IdleEvictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            nextTick = System.currentTimeMillis() / TICK_MILLIS;
+            ticker = executor.scheduleAtFixedRate(MCEngineArtificialIntelligenceApiUtilIdleEvictor::advance,
+                    TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+            for (MCEngineArtificialIntelligenceApiUtilSession session : sessions) {
+                session.touch();
+                schedule(session);
+            }
+        }
+    }
+
+    /**
+     * Stops the wheel and takes every session off it. Typically called when the plugin is disabled.
+     */
+    public static synchronized void shutdown() {
+        if (ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        for (Set<MCEngineArtificialIntelligenceApiUtilSession> slot : wheel) {
+            slot.clear();
+        }
+    }
+
+    /**
+     * Puts a new session on the wheel. Does nothing while eviction is off.
+     *
+     * @param session The session.
+     */
+    public static void schedule(MCEngineArtificialIntelligenceApiUtilSession session) {
+        long timeout = timeoutMillis;
+        if (timeout > 0) {
+            slot(session.getLastActive() + timeout).add(session);
+        }
+    }
+
+    /**
+     * Returns eviction statistics.
+     *
+     * @return Map with {@code tracked} (sessions on the wheel), {@code evicted} and {@code rescheduled}.
+     */
+    public static Map<String, Long> getStats() {
+        long tracked = 0;
+        for (Set<MCEngineArtificialIntelligenceApiUtilSession> slot : wheel) {
+            tracked += slot.size();
+        }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("tracked", tracked);
+        stats.put("evicted", evicted.get());
+        stats.put("rescheduled", rescheduled.get());
+        return stats;
+    }
+
+    /**
+     * Visits every slot whose second has passed since the last run. Runs on the wheel thread.
+     */
+    private static void advance() {
+        try {
+            long now = System.currentTimeMillis();
+            long target = now / TICK_MILLIS;
+            // After a long stall one full turn visits every slot
+            nextTick = Math.max(nextTick, target - SLOTS + 1);
+            while (nextTick <= target) {
+                expire(nextTick++, now);
+            }
+        } catch (RuntimeException e) {
+            plugin.getLogger().warning("Idle session eviction failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Evicts the idle sessions of one slot and moves the others to the slot of their deadline.
+     *
+     * @param tick The wheel tick to visit.
+     * @param now  The current time in epoch milliseconds.
+     */
+    private static void expire(long tick, long now) {
+        Set<MCEngineArtificialIntelligenceApiUtilSession> slot = wheel[(int) (tick & (SLOTS - 1))];
+        long timeout = timeoutMillis;
+        for (Iterator<MCEngineArtificialIntelligenceApiUtilSession> it = slot.iterator(); it.hasNext(); ) {
+            MCEngineArtificialIntelligenceApiUtilSession session = it.next();
+            if (!MCEngineArtificialIntelligenceApiUtilBotManager.isCurrent(session)) {
+                it.remove();
+                continue;
+            }
+            long deadline = session.isBusy() ? now + timeout : session.getLastActive() + timeout;
+            if (deadline > now) {
+                Set<MCEngineArtificialIntelligenceApiUtilSession> target = slot(deadline);
+                if (target != slot) {
+                    it.remove();
+                    target.add(session);
+                    rescheduled.incrementAndGet();
+                }
+                continue;
+            }
+            it.remove();
+            boolean wasActive = session.isActive();
+            if (MCEngineArtificialIntelligenceApiUtilBotManager.evictIdle(session, timeout, now)) {
+                evicted.incrementAndGet();
+                if (wasActive) {
+                    MCEngineArtificialIntelligenceApiUtilDelivery.post(plugin, () -> {
+                        Player player = Bukkit.getPlayer(session.getPlayerUuid());
+                        if (player != null && player.isOnline()) {
+                            player.sendMessage(ChatColor.GRAY + "Your AI session has ended after being idle.");
+                        }
+                    });
+                }
+            } else if (MCEngineArtificialIntelligenceApiUtilBotManager.isCurrent(session)) {
+                // The session was used meanwhile; check again once its new deadline passes
+                slot(session.isBusy() ? now + timeout : session.getLastActive() + timeout).add(session);
+            }
+        }
+    }
+
+    /**
+     * Returns the slot covering a point in time, never one that has already been visited.
+     *
+     * @param deadline Epoch milliseconds.
+     * @return The slot.
+     */
+    private static Set<MCEngineArtificialIntelligenceApiUtilSession> slot(long deadline) {
+        long tick = Math.max(deadline, System.currentTimeMillis() + TICK_MILLIS) / TICK_MILLIS;
+        return wheel[(int) (tick & (SLOTS - 1))];
+    }
+
+    /**
+     * Creates the empty wheel.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Set<MCEngineArtificialIntelligenceApiUtilSession>[] newWheel() {
+        Set<MCEngineArtificialIntelligenceApiUtilSession>[] slots = new Set[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = ConcurrentHashMap.newKeySet();
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,281 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.github.mcengine.api.artificialintelligence.response.MCEngineArtificialIntelligenceApiResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Streaming parser for chat completion responses.
+ * <p>
+ * Reads the HTTP body with a pull-based {@link JsonReader} straight from the byte buffers the HTTP client
+ * delivered, instead of decoding it into a string and building a full JSON tree. Only the fields held by
+ * {@link MCEngineArtificialIntelligenceApiResponse} are materialized; everything else (ids, logprobs,
+ * further choices, provider extensions) is skipped without allocation of tree nodes.
+ * <p>
+ * The body is parsed once its last buffer has arrived, on the HTTP client's thread that delivered it, so
+ * no thread ever blocks waiting for bytes.
+ */
+public class MCEngineArtificialIntelligenceApiUtilJson {
+
+    /**
+     * Returns a body handler that parses successful ({@code 200}) responses.
+     * Other statuses discard the body and yield {@code null}.
+     * <p>
+     * The response future completes only once the body has been parsed, so the connection slot held by
+     * the HTTP pool covers the whole read.
+     *
+     * @return The body handler.
+     */
+    public static HttpResponse.BodyHandler<MCEngineArtificialIntelligenceApiResponse> bodyHandler() {
+        return info -> info.statusCode() == 200
+                ? new Parsing()
+                : HttpResponse.BodySubscribers.replacing(null);
+    }
+
+    /**
+     * Parses a chat completion response.
+     *
+     * @param reader The JSON source; not closed.
+     * @return The typed response.
+     * @throws IOException If the body cannot be read or is not a JSON object.
+     */
+    public static MCEngineArtificialIntelligenceApiResponse parse(Reader reader) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        String content = null;
+        String finishReason = null;
+        String model = null;
+        String error = null;
+        int[] usage = {-1, -1, -1, -1};
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "model":
+                    model = nextString(json);
+                    break;
+                case "choices":
+                    if (json.peek() != JsonToken.BEGIN_ARRAY) {
+                        json.skipValue();
+                        break;
+                    }
+                    json.beginArray();
+                    if (json.hasNext() && json.peek() == JsonToken.BEGIN_OBJECT) {
+                        // Only the first choice is used; further choices are skipped below
+                        json.beginObject();
+                        while (json.hasNext()) {
+                            String name = json.nextName();
+                            if (name.equals("finish_reason")) {
+                                finishReason = nextString(json);
+                            } else if (name.equals("message") && json.peek() == JsonToken.BEGIN_OBJECT) {
+                                json.beginObject();
+                                while (json.hasNext()) {
+                                    if (json.nextName().equals("content")) {
+                                        content = nextString(json);
+                                    } else {
+                                        json.skipValue();
+                                    }
+                                }
+                                json.endObject();
+                            } else {
+                                json.skipValue();
+                            }
+                        }
+                        json.endObject();
+                    }
+                    while (json.hasNext()) {
+                        json.skipValue();
+                    }
+                    json.endArray();
+                    break;
+                case "usage":
+                    if (json.peek() != JsonToken.BEGIN_OBJECT) {
+                        json.skipValue();
+                        break;
+                    }
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        switch (json.nextName()) {
+                            case "prompt_tokens":
+                                usage[0] = nextInt(json);
+                                break;
+                            case "completion_tokens":
+                                usage[1] = nextInt(json);
+                                break;
+                            case "total_tokens":
+                                usage[2] = nextInt(json);
+                                break;
+                            case "prompt_tokens_details":
+                                // OpenAI reports prompt cache hits here
+                                if (json.peek() != JsonToken.BEGIN_OBJECT) {
+                                    json.skipValue();
+                                    break;
+                                }
+                                json.beginObject();
+                                while (json.hasNext()) {
+                                    if (json.nextName().equals("cached_tokens")) {
+                                        usage[3] = nextInt(json);
+                                    } else {
+                                        json.skipValue();
+                                    }
+                                }
+                                json.endObject();
+                                break;
+                            case "prompt_cache_hit_tokens":
+                                // DeepSeek's name for the same count
+                                usage[3] = nextInt(json);
+                                break;
+                            default:
+                                json.skipValue();
+                        }
+                    }
+                    json.endObject();
+                    break;
+                case "error":
+                    // Some providers report failures with a 200 status; errors are rare so a tree is fine here
+                    if (json.peek() == JsonToken.NULL) {
+                        json.nextNull();
+                    } else {
+                        error = MCEngineArtificialIntelligenceApiResponse.errorMessage(JsonParser.parseReader(json));
+                    }
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+
+        return new MCEngineArtificialIntelligenceApiResponse(
+                error == null ? content : null, finishReason, model, usage[0], usage[1], usage[2], usage[3], error, false);
+    }
+
+    /**
+     * Reads a string value, mapping JSON null to {@code null} and skipping non-primitive values.
+     */
+    private static String nextString(JsonReader json) throws IOException {
+        JsonToken token = json.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER || token == JsonToken.BOOLEAN) {
+            return token == JsonToken.BOOLEAN ? String.valueOf(json.nextBoolean()) : json.nextString();
+        }
+        json.skipValue();
+        return null;
+    }
+
+    /**
+     * Reads an integer value, returning {@code -1} for anything else.
+     */
+    private static int nextInt(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NUMBER) {
+            return (int) json.nextLong();
+        }
+        json.skipValue();
+        return -1;
+    }
+
+    /**
+     * Body subscriber keeping the delivered byte buffers and parsing them when the body is complete.
+     */
+    private static class Parsing implements HttpResponse.BodySubscriber<MCEngineArtificialIntelligenceApiResponse> {
+
+        /** Buffers received so far, in order; only touched by the subscriber's serialized callbacks. */
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+
+        /** Completed with the parsed response. */
+        private final CompletableFuture<MCEngineArtificialIntelligenceApiResponse> body = new CompletableFuture<>();
+
+        @Override
+        public CompletionStage<MCEngineArtificialIntelligenceApiResponse> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            buffers.addAll(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            buffers.clear();
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            try (Reader reader = new InputStreamReader(new BufferStream(buffers), StandardCharsets.UTF_8)) {
+                body.complete(parse(reader));
+            } catch (IOException | RuntimeException e) {
+                body.completeExceptionally(e);
+            } finally {
+                buffers.clear();
+            }
+        }
+    }
+
+    /**
+     * Input stream reading a list of byte buffers one after the other without copying them.
+     */
+    private static class BufferStream extends InputStream {
+
+        /** The buffers. */
+        private final List<ByteBuffer> buffers;
+
+        /** Index of the buffer being read. */
+        private int index;
+
+        BufferStream(List<ByteBuffer> buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public int read() {
+            ByteBuffer buffer = current();
+            return buffer == null ? -1 : buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            ByteBuffer buffer = current();
+            if (buffer == null) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        /**
+         * Returns the first buffer with bytes left, or {@code null} at the end.
+         */
+        private ByteBuffer current() {
+            while (index < buffers.size()) {
+                ByteBuffer buffer = buffers.get(index);
+                if (buffer.hasRemaining()) {
+                    return buffer;
+                }
+                index++;
+            }
+            return null;
+        }
+    }
+}
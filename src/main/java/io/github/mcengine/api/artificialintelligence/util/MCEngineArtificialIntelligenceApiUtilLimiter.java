@@ -0,0 +1,324 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per platform/model request rate and concurrency limiting for outgoing AI calls.
+ * <p>
+ * Each {@code platform:model} pair (custom servers use the platform key {@code custom.<server>}) gets:
+ * <ul>
+ *     <li>A token bucket bounding the request rate</li>
+ *     <li>An adaptive AIMD concurrency limit that halves on {@code 429}/{@code 503} responses and
+ *         grows back by one slot per window of successful responses</li>
+ *     <li>A FIFO wait queue, so requests wait briefly for capacity instead of failing right away</li>
+ * </ul>
+ * Settings are read from {@code ai.<platform>.limit}:
+ * <ul>
+ *     <li>{@code requests-per-second} – bucket refill rate, {@code 0} (default) disables rate limiting</li>
+ *     <li>{@code burst} – bucket capacity, defaults to the rate rounded up</li>
+ *     <li>{@code max-concurrency} – upper bound of the adaptive limit, default {@code 16}</li>
+ *     <li>{@code min-concurrency} – lower bound of the adaptive limit, default {@code 1}</li>
+ *     <li>{@code queue-timeout-ms} – how long a request may wait for capacity, default {@code 10000}</li>
+ * </ul>
+ */
+public class MCEngineArtificialIntelligenceApiUtilLimiter {
+
+    /**
+     * Limiters keyed by {@code platform:model}.
+     */
+    private static final Map<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * Timer used to wake queued requests when tokens refill and to expire requests that waited too long;
+     * created on first use and stopped by {@link #shutdown()}.
+     */
+    private static ScheduledExecutorService timer;
+
+    /**
+     * Returns the limiter of a platform/model pair, creating it from config on first use.
+     *
+     * @param plugin   The Bukkit plugin instance used for configuration.
+     * @param platform The platform key (e.g. {@code openai} or {@code custom.<server>}).
+     * @param model    The model name.
+     * @return The shared limiter.
+     */
+    public static Limiter get(Plugin plugin, String platform, String model) {
+        return limiters.computeIfAbsent(platform + ":" + model, key -> {
+            String configBase = "ai." + platform + ".limit.";
+            double rate = plugin.getConfig().getDouble(configBase + "requests-per-second", 0);
+            int burst = plugin.getConfig().getInt(configBase + "burst", (int) Math.ceil(rate));
+            int max = Math.max(1, plugin.getConfig().getInt(configBase + "max-concurrency", 16));
+            int min = Math.max(1, Math.min(max, plugin.getConfig().getInt(configBase + "min-concurrency", 1)));
+            long queueTimeout = plugin.getConfig().getLong(configBase + "queue-timeout-ms", 10_000L);
+            return new Limiter(key, rate, Math.max(1, burst), min, max, queueTimeout);
+        });
+    }
+
+    /**
+     * Returns the state of every limiter.
+     *
+     * @return Map of {@code platform:model} to its counters.
+     */
+    public static Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, Limiter> entry : limiters.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Drops all limiters so they are rebuilt from config on next use.
+     * Typically called when the plugin is reloaded.
+     */
+    public static void reset() {
+        limiters.clear();
+    }
+
+    /**
+     * Drops all limiters and stops the timer thread. Typically called when the plugin is disabled.
+     */
+    public static synchronized void shutdown() {
+        limiters.clear();
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    /**
+     * Returns the timer, starting it if needed.
+     */
+    private static synchronized ScheduledExecutorService timer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "MCEngineAI-Limiter");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return timer;
+    }
+
+    /**
+     * Token bucket plus AIMD concurrency limit for one platform/model pair.
+     * All state is guarded by the limiter's monitor.
+     */
+    public static class Limiter {
+
+        /** Limiter key, used in rejection messages. */
+        private final String name;
+
+        /** Tokens added per millisecond; {@code 0} disables the bucket. */
+        private final double tokensPerMilli;
+
+        /** Bucket capacity. */
+        private final int burst;
+
+        /** Lower bound of the concurrency limit. */
+        private final int minLimit;
+
+        /** Upper bound of the concurrency limit. */
+        private final int maxLimit;
+
+        /** Maximum time a request may wait in the queue. */
+        private final long queueTimeoutMillis;
+
+        /** Requests waiting for capacity, oldest first. */
+        private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+        /** Current adaptive concurrency limit; fractional so it can grow by {@code 1/limit} per success. */
+        private double limit;
+
+        /** Tokens currently in the bucket. */
+        private double tokens;
+
+        /** Last refill time. */
+        private long lastRefill = System.currentTimeMillis();
+
+        /** Requests currently holding a slot. */
+        private int inFlight;
+
+        /** Whether a refill wake-up is already scheduled. */
+        private boolean wakeScheduled;
+
+        /** Requests that had to wait in the queue. */
+        private final AtomicLong queued = new AtomicLong();
+
+        /** Requests rejected after waiting too long. */
+        private final AtomicLong rejected = new AtomicLong();
+
+        /** Limit decreases caused by throttling responses. */
+        private final AtomicLong throttled = new AtomicLong();
+
+        Limiter(String name, double requestsPerSecond, int burst, int minLimit, int maxLimit, long queueTimeoutMillis) {
+            this.name = name;
+            this.tokensPerMilli = requestsPerSecond / 1000.0;
+            this.burst = burst;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.queueTimeoutMillis = queueTimeoutMillis;
+            this.limit = maxLimit;
+            this.tokens = burst;
+        }
+
+        /**
+         * Requests permission to send one request.
+         *
+         * @return A future completed once the request may be sent, or completed exceptionally with
+         *         {@link RejectedExecutionException} if no capacity became free within the queue timeout.
+         */
+        public CompletableFuture<Void> acquire() {
+            return acquire(null);
+        }
+
+        /**
+         * Requests permission to send one request, waiting no longer than the queue timeout or the
+         * time left until {@code deadline}, whichever is shorter.
+         *
+         * @param deadline The request's deadline, or {@code null} for none.
+         * @return A future completed once the request may be sent, or completed exceptionally with
+         *         {@link RejectedExecutionException} if no capacity became free in time, or with
+         *         {@link CancellationException} if the deadline was cancelled while waiting.
+         */
+        public CompletableFuture<Void> acquire(MCEngineArtificialIntelligenceApiUtilDeadline deadline) {
+            long maxWait = deadline == null ? queueTimeoutMillis : Math.min(queueTimeoutMillis, deadline.remainingMillis());
+            CompletableFuture<Void> grant = new CompletableFuture<>();
+            synchronized (this) {
+                if (waiters.isEmpty() && tryTake()) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                waiters.add(grant);
+                queued.incrementAndGet();
+                scheduleWake();
+            }
+            timer().schedule(() -> {
+                boolean expired;
+                synchronized (this) {
+                    expired = waiters.remove(grant);
+                }
+                if (expired) {
+                    rejected.incrementAndGet();
+                    grant.completeExceptionally(new RejectedExecutionException("AI request queue timed out (" + name + ")"));
+                }
+            }, maxWait, TimeUnit.MILLISECONDS);
+            if (deadline != null) {
+                // A cancelled request leaves the queue at once instead of waiting for its turn or the timeout
+                deadline.onCancel(() -> {
+                    boolean removed;
+                    synchronized (this) {
+                        removed = waiters.remove(grant);
+                    }
+                    if (removed) {
+                        grant.completeExceptionally(new CancellationException("AI request cancelled (" + name + ")"));
+                    }
+                });
+            }
+            return grant;
+        }
+
+        /**
+         * Releases the slot taken by {@link #acquire()} and adapts the concurrency limit to the outcome.
+         *
+         * @param statusCode HTTP status of the response, or {@code -1} if the request failed without one.
+         */
+        public void release(int statusCode) {
+            synchronized (this) {
+                inFlight--;
+                if (statusCode == 429 || statusCode == 503) {
+                    limit = Math.max(minLimit, limit / 2);
+                    throttled.incrementAndGet();
+                } else if (statusCode >= 200 && statusCode < 300) {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+            drain();
+        }
+
+        /**
+         * Hands free capacity to queued requests in arrival order.
+         */
+        private void drain() {
+            while (true) {
+                CompletableFuture<Void> next;
+                synchronized (this) {
+                    if (waiters.isEmpty() || !tryTake()) {
+                        if (!waiters.isEmpty()) {
+                            scheduleWake();
+                        }
+                        return;
+                    }
+                    next = waiters.poll();
+                }
+                next.complete(null);
+            }
+        }
+
+        /**
+         * Takes a concurrency slot and a bucket token if both are available. Caller holds the monitor.
+         */
+        private boolean tryTake() {
+            if (inFlight >= (int) limit) {
+                return false;
+            }
+            if (tokensPerMilli > 0) {
+                long now = System.currentTimeMillis();
+                tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerMilli);
+                lastRefill = now;
+                if (tokens < 1) {
+                    return false;
+                }
+                tokens--;
+            }
+            inFlight++;
+            return true;
+        }
+
+        /**
+         * Schedules a drain for when the next bucket token is due. Caller holds the monitor.
+         * Requests blocked on concurrency are woken by {@link #release(int)} instead.
+         */
+        private void scheduleWake() {
+            if (wakeScheduled || tokensPerMilli <= 0 || inFlight >= (int) limit) {
+                return;
+            }
+            wakeScheduled = true;
+            long delay = Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerMilli));
+            timer().schedule(() -> {
+                synchronized (this) {
+                    wakeScheduled = false;
+                }
+                drain();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Returns a snapshot of this limiter's state.
+         *
+         * @return Map of counter name to value.
+         */
+        public synchronized Map<String, Long> getStats() {
+            Map<String, Long> stats = new LinkedHashMap<>();
+            stats.put("limit", (long) limit);
+            stats.put("inFlight", (long) inFlight);
+            stats.put("waiting", (long) waiters.size());
+            stats.put("queued", queued.get());
+            stats.put("rejected", rejected.get());
+            stats.put("throttled", throttled.get());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import io.github.mcengine.api.artificialintelligence.model.IMCEngineArtificialIntelligenceApiModelProvider;
+import io.github.mcengine.api.artificialintelligence.model.MCEngineArtificialIntelligenceApiModelCustomUrl;
+import io.github.mcengine.api.artificialintelligence.model.MCEngineArtificialIntelligenceApiModelDeepSeek;
+import io.github.mcengine.api.artificialintelligence.model.MCEngineArtificialIntelligenceApiModelOpenAi;
+import io.github.mcengine.api.artificialintelligence.model.MCEngineArtificialIntelligenceApiModelOpenRouter;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of {@link IMCEngineArtificialIntelligenceApiModelProvider}s by platform name.
+ * <p>
+ * The built-in platforms ({@code openai}, {@code deepseek}, {@code openrouter} and {@code customurl}) are
+ * always present. Further providers are added with {@link #register} or discovered through
+ * {@link ServiceLoader} from the class loader of each plugin that registers a model, so a plugin can ship
+ * its own backend in its jar.
+ */
+public class MCEngineArtificialIntelligenceApiUtilProvider {
+
+    /**
+     * Providers keyed by lower-case platform name.
+     */
+    private static final Map<String, IMCEngineArtificialIntelligenceApiModelProvider> providers = new ConcurrentHashMap<>();
+
+    /**
+     * Class loaders already scanned for service-loaded providers.
+     */
+    private static final Set<ClassLoader> scanned = ConcurrentHashMap.newKeySet();
+
+    static {
+        register(IMCEngineArtificialIntelligenceApiModelProvider.of("openai", MCEngineArtificialIntelligenceApiModelOpenAi::new));
+        register(IMCEngineArtificialIntelligenceApiModelProvider.of("deepseek", MCEngineArtificialIntelligenceApiModelDeepSeek::new));
+        register(IMCEngineArtificialIntelligenceApiModelProvider.of("openrouter", MCEngineArtificialIntelligenceApiModelOpenRouter::new));
+        register(IMCEngineArtificialIntelligenceApiModelProvider.of("customurl", (plugin, model) -> {
+            String[] parts = model.split(":", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("CustomURL model must be in format 'server:modelName'. Got: " + model);
+            }
+            return new MCEngineArtificialIntelligenceApiModelCustomUrl(plugin, parts[0], parts[1]);
+        }));
+    }
+
+    /**
+     * Registers a provider, replacing any provider of the same platform.
+     * Models already created by the replaced provider stay registered.
+     *
+     * @param provider The provider.
+     * @return The replaced provider, or {@code null} if the platform was new.
+     */
+    public static IMCEngineArtificialIntelligenceApiModelProvider register(IMCEngineArtificialIntelligenceApiModelProvider provider) {
+        return providers.put(provider.getPlatform().toLowerCase(), provider);
+    }
+
+    /**
+     * Removes the provider of a platform, typically when the extension that registered it is unloaded.
+     *
+     * @param platform The platform name.
+     * @return The removed provider, or {@code null} if none was registered.
+     */
+    public static IMCEngineArtificialIntelligenceApiModelProvider unregister(String platform) {
+        return providers.remove(platform.toLowerCase());
+    }
+
+    /**
+     * Returns the provider of a platform. If none is registered yet, the plugin's class loader is scanned
+     * once for service-loaded providers first.
+     *
+     * @param plugin   The plugin registering a model.
+     * @param platform The platform name.
+     * @return The provider, or {@code null} if the platform is unknown.
+     */
+    public static IMCEngineArtificialIntelligenceApiModelProvider get(Plugin plugin, String platform) {
+        platform = platform.toLowerCase();
+        IMCEngineArtificialIntelligenceApiModelProvider provider = providers.get(platform);
+        if (provider == null && discover(plugin)) {
+            provider = providers.get(platform);
+        }
+        return provider;
+    }
+
+    /**
+     * Registers the service-loaded providers visible to a plugin's class loader.
+     * Each class loader is scanned only once; providers that were already registered explicitly are kept.
+     *
+     * @param plugin The plugin whose jar is scanned.
+     * @return {@code true} if the class loader had not been scanned before.
+     */
+    public static boolean discover(Plugin plugin) {
+        ClassLoader loader = plugin.getClass().getClassLoader();
+        if (!scanned.add(loader)) {
+            return false;
+        }
+        try {
+            for (IMCEngineArtificialIntelligenceApiModelProvider provider
+                    : ServiceLoader.load(IMCEngineArtificialIntelligenceApiModelProvider.class, loader)) {
+                if (providers.putIfAbsent(provider.getPlatform().toLowerCase(), provider) == null) {
+                    plugin.getLogger().info("Discovered AI platform provider: " + provider.getPlatform());
+                }
+            }
+        } catch (ServiceConfigurationError e) {
+            plugin.getLogger().warning("Failed to load AI platform providers: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Returns the names of all registered platforms.
+     *
+     * @return Sorted platform names.
+     */
+    public static Set<String> getPlatforms() {
+        return new TreeSet<>(providers.keySet());
+    }
+}
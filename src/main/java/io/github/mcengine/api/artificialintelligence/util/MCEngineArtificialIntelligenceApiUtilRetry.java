@@ -0,0 +1,264 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import org.bukkit.plugin.Plugin;
+
+import java.net.http.HttpResponse;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Retry policy for AI calls, combined with the endpoint's circuit breaker.
+ * <p>
+ * Transient failures ({@code 429}, {@code 500}, {@code 502}, {@code 503}, {@code 504} and, when allowed,
+ * connection errors) are retried with full-jitter exponential backoff. A {@code Retry-After} header
+ * overrides the computed delay; if it asks for longer than the maximum delay the failure is returned
+ * instead of waiting. Each attempt first asks the endpoint's breaker, so an open breaker fails fast.
+ * Failures on this side of the connection – limiter or pool queue timeouts, the call's deadline passing and
+ * cancellations – are neither retried nor counted by the breaker, since they say nothing about the provider.
+ * Platforms with a backend list have no breaker here: their attempts are routed per backend by
+ * {@link MCEngineArtificialIntelligenceApiUtilBalancer}, whose ejection and health probes act as a breaker
+ * for each backend, so one failing backend cannot cut off the others.
+ * When the call has a deadline, no attempt is started and no backoff is waited out past it.
+ * <p>
+ * Settings are read from {@code ai.<platform>.retry}:
+ * <ul>
+ *     <li>{@code max-attempts} – total attempts including the first, default {@code 3}</li>
+ *     <li>{@code base-delay-ms} – backoff base, default {@code 250}</li>
+ *     <li>{@code max-delay-ms} – backoff cap and longest honored {@code Retry-After}, default {@code 8000}</li>
+ * </ul>
+ */
+public class MCEngineArtificialIntelligenceApiUtilRetry {
+
+    /** Attempts that were retries of an earlier failure. */
+    private static final AtomicLong retries = new AtomicLong();
+
+    /** Calls that succeeded after at least one retry. */
+    private static final AtomicLong recovered = new AtomicLong();
+
+    /** Calls that still failed once attempts were exhausted. */
+    private static final AtomicLong exhausted = new AtomicLong();
+
+    /** Calls rejected by an open circuit breaker. */
+    private static final AtomicLong shortCircuited = new AtomicLong();
+
+    /**
+     * Raised when a request is rejected because the endpoint's circuit breaker is open.
+     */
+    public static class CircuitOpenException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * @param endpoint The endpoint whose breaker is open.
+         */
+        public CircuitOpenException(String endpoint) {
+            super("AI provider temporarily unavailable (circuit open): " + endpoint);
+        }
+    }
+
+    /**
+     * Runs an HTTP call with retries and circuit breaking.
+     *
+     * @param plugin           The Bukkit plugin instance used for configuration.
+     * @param platform         The platform key.
+     * @param endpoint         The endpoint URL, selecting the circuit breaker, or {@code null} for no breaker
+     *                         when a balancer routes the attempts.
+     * @param attempt          Starts one attempt of the call.
+     * @param retryOnException Whether exceptions (as opposed to retryable statuses) may be retried; pass
+     *                         {@code false} when an attempt may already have delivered partial output.
+     * @param deadline         The call's deadline, or {@code null} for none.
+     * @param <T>              The body type.
+     * @return A future completed with the last response, or exceptionally with the last failure.
+     */
+    public static <T> CompletableFuture<HttpResponse<T>> execute(
+            Plugin plugin,
+            String platform,
+            String endpoint,
+            Supplier<CompletableFuture<HttpResponse<T>>> attempt,
+            boolean retryOnException,
+            MCEngineArtificialIntelligenceApiUtilDeadline deadline
+    ) {
+        String configBase = "ai." + platform + ".retry.";
+        int maxAttempts = Math.max(1, plugin.getConfig().getInt(configBase + "max-attempts", 3));
+        long baseDelay = plugin.getConfig().getLong(configBase + "base-delay-ms", 250L);
+        long maxDelay = plugin.getConfig().getLong(configBase + "max-delay-ms", 8000L);
+        MCEngineArtificialIntelligenceApiUtilCircuitBreaker.Breaker breaker = endpoint == null
+                ? null
+                : MCEngineArtificialIntelligenceApiUtilCircuitBreaker.get(plugin, platform, endpoint);
+
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        run(breaker, endpoint, attempt, retryOnException, 1, maxAttempts, baseDelay, maxDelay, deadline, result);
+        return result;
+    }
+
+    /**
+     * Runs attempt number {@code n} and schedules the next one if it failed transiently.
+     */
+    private static <T> void run(
+            MCEngineArtificialIntelligenceApiUtilCircuitBreaker.Breaker breaker,
+            String endpoint,
+            Supplier<CompletableFuture<HttpResponse<T>>> attempt,
+            boolean retryOnException,
+            int n,
+            int maxAttempts,
+            long baseDelay,
+            long maxDelay,
+            MCEngineArtificialIntelligenceApiUtilDeadline deadline,
+            CompletableFuture<HttpResponse<T>> result
+    ) {
+        if (deadline != null && deadline.isExpired()) {
+            exhausted.incrementAndGet();
+            result.completeExceptionally(deadline.exceeded());
+            return;
+        }
+        if (breaker != null && !breaker.tryAcquire()) {
+            shortCircuited.incrementAndGet();
+            result.completeExceptionally(new CircuitOpenException(endpoint));
+            return;
+        }
+
+        attempt.get().whenComplete((response, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            int status = response != null ? response.statusCode() : -1;
+
+            // 429 means the provider is healthy but busy; only outages count against the breaker
+            boolean local = cause != null && isLocalFailure(cause, deadline);
+            if (breaker != null) {
+                if (local) {
+                    breaker.onIgnored();
+                } else if (cause != null || status >= 500) {
+                    breaker.onFailure();
+                } else {
+                    breaker.onSuccess();
+                }
+            }
+
+            // Queue timeouts already waited long enough; retrying them would only double the wait
+            boolean retryable = cause != null
+                    ? retryOnException && !local
+                    : isRetryable(status);
+            if (!retryable || n >= maxAttempts) {
+                if (retryable) {
+                    exhausted.incrementAndGet();
+                } else if (n > 1 && cause == null && status == 200) {
+                    recovered.incrementAndGet();
+                }
+                if (cause != null) {
+                    result.completeExceptionally(cause);
+                } else {
+                    result.complete(response);
+                }
+                return;
+            }
+
+            long delay = backoff(n, baseDelay, maxDelay);
+            if (response != null) {
+                long retryAfter = retryAfterMillis(response);
+                if (retryAfter > maxDelay) {
+                    result.complete(response);
+                    return;
+                }
+                if (retryAfter >= 0) {
+                    delay = retryAfter;
+                }
+            }
+
+            // Waiting past the deadline would only end in a timeout; report the failure we have now
+            if (deadline != null && delay >= deadline.remainingMillis()) {
+                exhausted.incrementAndGet();
+                if (cause != null) {
+                    result.completeExceptionally(deadline.isExpired() ? deadline.exceeded() : cause);
+                } else {
+                    result.complete(response);
+                }
+                return;
+            }
+
+            retries.incrementAndGet();
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() ->
+                    run(breaker, endpoint, attempt, retryOnException, n + 1, maxAttempts, baseDelay, maxDelay, deadline, result));
+        });
+    }
+
+    /**
+     * Checks whether an attempt failed before the provider could answer it: a limiter or connection pool
+     * queue timeout ({@link RejectedExecutionException}), a cancellation, or the call's deadline passing.
+     * A {@link TimeoutException} while the call's deadline is still ahead came from the attempt's own
+     * request limit and is the provider's fault.
+     *
+     * @param cause    The unwrapped failure.
+     * @param deadline The call's deadline, or {@code null} for none.
+     * @return {@code true} if the failure says nothing about the provider's health.
+     */
+    static boolean isLocalFailure(Throwable cause, MCEngineArtificialIntelligenceApiUtilDeadline deadline) {
+        return cause instanceof RejectedExecutionException
+                || cause instanceof CancellationException
+                || cause instanceof TimeoutException && deadline != null && deadline.isExpired();
+    }
+
+    /**
+     * Checks whether a status code is worth retrying.
+     *
+     * @param status HTTP status code.
+     * @return {@code true} for throttling and transient gateway/server errors.
+     */
+    private static boolean isRetryable(int status) {
+        return status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * Full-jitter exponential backoff: a random delay in {@code [0, min(max, base * 2^(n-1))]}.
+     */
+    private static long backoff(int n, long baseDelay, long maxDelay) {
+        long ceiling = Math.min(maxDelay, baseDelay << Math.min(20, n - 1));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Parses a {@code Retry-After} header given either in seconds or as an HTTP date.
+     *
+     * @param response The response.
+     * @return The requested delay in milliseconds, or {@code -1} if absent or unparsable.
+     */
+    private static long retryAfterMillis(HttpResponse<?> response) {
+        String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, (long) (Double.parseDouble(value.trim()) * 1000));
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+        } catch (Exception ignored) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns retry counters.
+     *
+     * @return Map with {@code retries}, {@code recovered}, {@code exhausted} and {@code shortCircuited}.
+     */
+    public static Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("retries", retries.get());
+        stats.put("recovered", recovered.get());
+        stats.put("exhausted", exhausted.get());
+        stats.put("shortCircuited", shortCircuited.get());
+        return stats;
+    }
+}
@@ -0,0 +1,375 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated, bounded scheduler for AI bot tasks.
+ * <p>
+ * Bot tasks run on the scheduler's own threads instead of the shared Bukkit async pool, and at most
+ * {@code ai.scheduler.max-concurrent} of them are in flight at once; a task holds its slot from the moment it
+ * starts until it reports {@link #done()}, which covers the whole AI call. Waiting tasks are ordered by
+ * weighted fair queuing: each player's next task is stamped with a virtual finish time that advances by
+ * {@code 1 / weight} per task, so one chatty player or group cannot starve the rest, and players in
+ * higher lanes get a larger share.
+ * <p>
+ * Lanes, from highest to lowest priority:
+ * <ul>
+ *     <li>{@code staff} – players with {@code mcengine.artificialintelligence.priority.staff}, weight {@code 8}</li>
+ *     <li>{@code vip} – players with {@code mcengine.artificialintelligence.priority.vip}, weight {@code 4}</li>
+ *     <li>{@code player} – requests paid with the player's own token, weight {@code 2}</li>
+ *     <li>{@code server} – requests paid with the server token, weight {@code 1}</li>
+ * </ul>
+ * Weights are set with {@code ai.scheduler.weights.<lane>}. When {@code ai.scheduler.max-queued} tasks are
+ * waiting, the last task of the lowest waiting lane is shed to make room for a task of a higher lane;
+ * otherwise the new task is shed. Shed tasks are told so and never run.
+ * <p>
+ * Other settings: {@code ai.scheduler.max-concurrent} (default {@code 8}), {@code ai.scheduler.max-queued}
+ * (default {@code 64}) and {@code ai.scheduler.threads} (default {@code 2}).
+ */
+public class MCEngineArtificialIntelligenceApiUtilScheduler {
+
+    /**
+     * Priority lanes, highest first.
+     */
+    public enum Lane {
+        /** Staff members. */
+        STAFF(8),
+        /** VIP players. */
+        VIP(4),
+        /** Requests paid with the player's own token. */
+        PLAYER(2),
+        /** Requests paid with the server token. */
+        SERVER(1);
+
+        /** Weight used when the config sets none. */
+        private final int defaultWeight;
+
+        Lane(int defaultWeight) {
+            this.defaultWeight = defaultWeight;
+        }
+    }
+
+    /** Guards all scheduling state. */
+    private static final Object lock = new Object();
+
+    /** Waiting tasks, by virtual finish time, then lane, then arrival. */
+    private static final PriorityQueue<Entry> queue = new PriorityQueue<>((a, b) -> {
+        int byTag = Double.compare(a.finishTag, b.finishTag);
+        if (byTag != 0) {
+            return byTag;
+        }
+        int byLane = Integer.compare(a.lane.ordinal(), b.lane.ordinal());
+        return byLane != 0 ? byLane : Long.compare(a.sequence, b.sequence);
+    });
+
+    /** Virtual finish time of each player's newest task, kept while the player has tasks waiting. */
+    private static final Map<UUID, Double> lastFinish = new HashMap<>();
+
+    /** Number of waiting tasks per player. */
+    private static final Map<UUID, Integer> waitingPerPlayer = new HashMap<>();
+
+    /** Waiting tasks per lane. */
+    private static final Map<Lane, Integer> waitingPerLane = new EnumMap<>(Lane.class);
+
+    /** Lane weights. */
+    private static final Map<Lane, Integer> weights = new EnumMap<>(Lane.class);
+
+    /** Virtual time: the finish time of the most recently started task. */
+    private static double virtualTime;
+
+    /** Tasks currently holding a slot. */
+    private static int running;
+
+    /** Arrival counter, breaking ties in favor of earlier tasks. */
+    private static long sequence;
+
+    /** Maximum tasks in flight. */
+    private static int maxConcurrent = 8;
+
+    /** Maximum waiting tasks. */
+    private static int maxQueued = 64;
+
+    /** Threads running the tasks; {@code null} until initialized. */
+    private static volatile ExecutorService executor;
+
+    /** Plugin whose logger reports failures. */
+    private static Plugin plugin;
+
+    /** Tasks submitted. */
+    private static long submitted;
+
+    /** Tasks that reported {@link #done()}. */
+    private static long completed;
+
+    /** Tasks shed because the queue was full. */
+    private static long shed;
+
+    /** Largest number of waiting tasks seen. */
+    private static long maxDepth;
+
+    /** Sum of queue waits of started tasks in nanoseconds. */
+    private static long waitNanos;
+
+    /** Number of started tasks that waited in the queue. */
+    private static long waited;
+
+    /**
+     * Reads the scheduler settings and starts its threads.
+     *
+     * @param plugin The Bukkit plugin instance.
+     */
+    public static void initialize(Plugin plugin) {
+        synchronized (lock) {
+            MCEngineArtificialIntelligenceApiUtilScheduler.plugin = plugin;
+            maxConcurrent = Math.max(1, plugin.getConfig().getInt("ai.scheduler.max-concurrent", 8));
+            maxQueued = Math.max(0, plugin.getConfig().getInt("ai.scheduler.max-queued", 64));
+            for (Lane lane : Lane.values()) {
+                weights.put(lane, Math.max(1, plugin.getConfig().getInt(
+                        "ai.scheduler.weights." + lane.name().toLowerCase(Locale.ROOT), lane.defaultWeight)));
+            }
+            if (executor == null) {
+                int threads = Math.max(1, plugin.getConfig().getInt("ai.scheduler.threads", 2));
+                executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "MCEngineAI-Scheduler-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Checks whether the scheduler has been initialized.
+     *
+     * @return {@code true} once {@link #initialize(Plugin)} has run.
+     */
+    public static boolean isInitialized() {
+        return executor != null;
+    }
+
+    /**
+     * Stops the scheduler threads. Waiting tasks are dropped without being told, and running tasks are
+     * interrupted; the next {@link #initialize(Plugin)} starts new threads. Typically called when the plugin
+     * is disabled.
+     */
+    public static void shutdown() {
+        synchronized (lock) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+            queue.clear();
+            lastFinish.clear();
+            waitingPerPlayer.clear();
+            waitingPerLane.clear();
+            running = 0;
+            virtualTime = 0;
+        }
+    }
+
+    /**
+     * Returns the lane of a player's request.
+     *
+     * @param player    The player.
+     * @param tokenType {@code server} or {@code player}.
+     * @return The lane.
+     */
+    public static Lane laneOf(Player player, String tokenType) {
+        if (player.hasPermission("mcengine.artificialintelligence.priority.staff")) {
+            return Lane.STAFF;
+        }
+        if (player.hasPermission("mcengine.artificialintelligence.priority.vip")) {
+            return Lane.VIP;
+        }
+        return "player".equalsIgnoreCase(tokenType) ? Lane.PLAYER : Lane.SERVER;
+    }
+
+    /**
+     * Submits a task. It runs as soon as a slot is free and it is the fairest waiting task, and must call
+     * {@link #done()} exactly once when it has finished, including the AI call it started.
+     *
+     * @param playerUuid The player the task belongs to.
+     * @param lane       The task's lane.
+     * @param task       The task.
+     * @param onShed     Runs instead of the task if it is shed because the scheduler is saturated.
+     */
+    public static void submit(UUID playerUuid, Lane lane, Runnable task, Runnable onShed) {
+        Entry rejected = null;
+        Entry start = null;
+        ExecutorService threads;
+        synchronized (lock) {
+            submitted++;
+            threads = executor;
+            Entry entry = new Entry(playerUuid, lane, task, onShed);
+            if (threads == null) {
+                // Shut down
+                rejected = entry;
+                shed++;
+            } else if (running < maxConcurrent && queue.isEmpty()) {
+                running++;
+                start = entry;
+            } else if (queue.size() >= maxQueued) {
+                Entry victim = victim();
+                if (victim != null && victim.lane.ordinal() > lane.ordinal()) {
+                    queue.remove(victim);
+                    unqueued(victim);
+                    enqueue(entry);
+                    rejected = victim;
+                } else {
+                    rejected = entry;
+                }
+                shed++;
+            } else {
+                enqueue(entry);
+            }
+        }
+        if (start != null) {
+            threads.execute(start.task);
+        }
+        if (rejected != null) {
+            rejected.onShed.run();
+        }
+    }
+
+    /**
+     * Releases the slot of a finished task and starts the next waiting one.
+     */
+    public static void done() {
+        Entry next;
+        ExecutorService threads;
+        synchronized (lock) {
+            completed++;
+            threads = executor;
+            next = threads == null ? null : queue.poll();
+            if (next == null) {
+                running = Math.max(0, running - 1);
+                return;
+            }
+            unqueued(next);
+            virtualTime = next.finishTag;
+            waitNanos += System.nanoTime() - next.queuedAt;
+            waited++;
+        }
+        try {
+            threads.execute(next.task);
+        } catch (RuntimeException e) {
+            plugin.getLogger().warning("AI scheduler could not start a task: " + e.getMessage());
+            done();
+        }
+    }
+
+    /**
+     * Returns scheduler statistics.
+     *
+     * @return Map with {@code running}, {@code queued}, {@code queued.<lane>} for every lane, {@code maxQueued}
+     *         (largest depth seen), {@code submitted}, {@code completed}, {@code shed} and {@code avgWaitMillis}.
+     */
+    public static Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            stats.put("running", (long) running);
+            stats.put("queued", (long) queue.size());
+            for (Lane lane : Lane.values()) {
+                stats.put("queued." + lane.name().toLowerCase(Locale.ROOT), (long) waitingPerLane.getOrDefault(lane, 0));
+            }
+            stats.put("maxQueued", maxDepth);
+            stats.put("submitted", submitted);
+            stats.put("completed", completed);
+            stats.put("shed", shed);
+            stats.put("avgWaitMillis", waited == 0 ? 0L : waitNanos / waited / 1_000_000L);
+        }
+        return stats;
+    }
+
+    /**
+     * Stamps a task with its virtual finish time and queues it. Caller holds {@link #lock}.
+     */
+    private static void enqueue(Entry entry) {
+        double start = Math.max(virtualTime, lastFinish.getOrDefault(entry.playerUuid, 0.0));
+        entry.finishTag = start + 1.0 / weights.getOrDefault(entry.lane, entry.lane.defaultWeight);
+        entry.sequence = sequence++;
+        lastFinish.put(entry.playerUuid, entry.finishTag);
+        waitingPerPlayer.merge(entry.playerUuid, 1, Integer::sum);
+        waitingPerLane.merge(entry.lane, 1, Integer::sum);
+        queue.add(entry);
+        maxDepth = Math.max(maxDepth, queue.size());
+    }
+
+    /**
+     * Updates the counters of a task leaving the queue. Caller holds {@link #lock}.
+     */
+    private static void unqueued(Entry entry) {
+        if (waitingPerPlayer.merge(entry.playerUuid, -1, Integer::sum) <= 0) {
+            waitingPerPlayer.remove(entry.playerUuid);
+            lastFinish.remove(entry.playerUuid);
+        }
+        waitingPerLane.merge(entry.lane, -1, Integer::sum);
+    }
+
+    /**
+     * Picks the task to shed: of the lowest waiting lane, the task that would run last, which belongs to the
+     * player with the most work queued. Caller holds {@link #lock}.
+     */
+    private static Entry victim() {
+        Entry victim = null;
+        for (Entry entry : queue) {
+            if (victim == null || entry.lane.ordinal() > victim.lane.ordinal()
+                    || (entry.lane == victim.lane && entry.finishTag > victim.finishTag)) {
+                victim = entry;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * A submitted task.
+     */
+    private static class Entry {
+
+        /** The player the task belongs to. */
+        private final UUID playerUuid;
+
+        /** The task's lane. */
+        private final Lane lane;
+
+        /** The task. */
+        private final Runnable task;
+
+        /** Runs if the task is shed. */
+        private final Runnable onShed;
+
+        /** {@link System#nanoTime()} at submission. */
+        private final long queuedAt = System.nanoTime();
+
+        /** Virtual finish time. */
+        private double finishTag;
+
+        /** Arrival order. */
+        private long sequence;
+
+        Entry(UUID playerUuid, Lane lane, Runnable task, Runnable onShed) {
+            this.playerUuid = playerUuid;
+            this.lane = lane;
+            this.task = task;
+            this.onShed = onShed;
+        }
+    }
+}
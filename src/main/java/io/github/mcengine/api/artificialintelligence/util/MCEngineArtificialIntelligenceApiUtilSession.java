@@ -0,0 +1,346 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import java.util.ArrayDeque;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * All AI chat state of one player: conversation, active flag, selected platform and model, and where the
+ * player's current request stands.
+ * <p>
+ * The request state moves through {@code IDLE → WAITING → DELIVERING → IDLE} with compare-and-set
+ * transitions, so of two messages arriving at once exactly one claims the session. Messages arriving while
+ * a request is in progress wait in a small bounded queue (see {@link #offer}) and are sent together once the
+ * request finishes (see {@link #finishOrContinue()} and {@link #drain(long)}). Sessions are created
+ * when the player joins (or on first use) and dropped when they quit or have been idle too long; see
+ * {@link MCEngineArtificialIntelligenceApiUtilBotManager} and {@link MCEngineArtificialIntelligenceApiUtilIdleEvictor}.
+ */
+public class MCEngineArtificialIntelligenceApiUtilSession {
+
+    /**
+     * Where the player's current request stands.
+     */
+    public enum State {
+        /** No request in progress. */
+        IDLE,
+        /** A request has been accepted and the AI has not answered yet. */
+        WAITING,
+        /** The answer has arrived and is being delivered to the player. */
+        DELIVERING
+    }
+
+    /**
+     * Outcome of offering a message to the session.
+     */
+    public enum Offer {
+        /** The session was idle and the caller now owns it. */
+        STARTED,
+        /** The message was queued. */
+        QUEUED,
+        /** The message was queued after dropping the oldest queued message. */
+        DROPPED_OLDEST,
+        /** The queue was full and the message was dropped. */
+        REJECTED,
+        /** The session has been evicted or terminated; the caller should offer the message to a fresh session. */
+        DETACHED
+    }
+
+    /** The player's UUID. */
+    private final UUID playerUuid;
+
+    /** Request state; only changed through the transition methods. */
+    private final AtomicReference<State> state = new AtomicReference<>(State.IDLE);
+
+    /** The player's conversation; replaced when a new conversation is started. */
+    private volatile MCEngineArtificialIntelligenceApiUtilConversation conversation;
+
+    /** Whether the player has an active AI session. */
+    private volatile boolean active;
+
+    /** The AI platform in use, or {@code null} for the default. */
+    private volatile String platform;
+
+    /** The AI model in use, or {@code null} for the default. */
+    private volatile String model;
+
+    /** Messages waiting for the current request to finish, oldest first; guarded by this session. */
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+
+    /** When the newest message was queued, in epoch milliseconds; guarded by this session. */
+    private long lastQueuedAt;
+
+    /** Whether the session has been dropped by the bot manager; guarded by this session. */
+    private boolean detached;
+
+    /** When the session was last used, in epoch milliseconds. */
+    private volatile long lastActive = System.currentTimeMillis();
+
+    /**
+     * Creates an idle session.
+     *
+     * @param playerUuid   The player's UUID.
+     * @param conversation The player's conversation.
+     */
+    public MCEngineArtificialIntelligenceApiUtilSession(UUID playerUuid, MCEngineArtificialIntelligenceApiUtilConversation conversation) {
+        this.playerUuid = playerUuid;
+        this.conversation = conversation;
+    }
+
+    /**
+     * Returns the player's UUID.
+     *
+     * @return The UUID.
+     */
+    public UUID getPlayerUuid() {
+        return playerUuid;
+    }
+
+    /**
+     * Claims the session for a new request ({@code IDLE → WAITING}).
+     *
+     * @return {@code true} if the caller now owns the session; {@code false} if a request is already in progress.
+     */
+    public boolean tryBegin() {
+        return state.compareAndSet(State.IDLE, State.WAITING);
+    }
+
+    /**
+     * Marks the answer as being delivered ({@code WAITING → DELIVERING}).
+     *
+     * @return {@code false} if the session was not waiting, e.g. because it was reset meanwhile.
+     */
+    public boolean beginDelivery() {
+        return state.compareAndSet(State.WAITING, State.DELIVERING);
+    }
+
+    /**
+     * Ends the current request and drops any queued messages, returning the session to {@code IDLE}.
+     */
+    public synchronized void finish() {
+        queue.clear();
+        state.set(State.IDLE);
+    }
+
+    /**
+     * Offers a new message. An idle session is claimed for it like {@link #tryBegin()}; otherwise the message
+     * is queued behind the request in progress. A session that has been {@link #detach() detached} accepts
+     * nothing, so a message racing with eviction is never left on a session nobody will look at again.
+     *
+     * @param message    The message.
+     * @param capacity   Maximum queued messages; {@code 0} to never queue.
+     * @param dropOldest Whether a full queue drops its oldest message instead of rejecting the new one.
+     * @return What happened to the message.
+     */
+    public synchronized Offer offer(String message, int capacity, boolean dropOldest) {
+        if (detached) {
+            return Offer.DETACHED;
+        }
+        if (state.compareAndSet(State.IDLE, State.WAITING)) {
+            return Offer.STARTED;
+        }
+        if (capacity <= 0) {
+            return Offer.REJECTED;
+        }
+        Offer result = Offer.QUEUED;
+        if (queue.size() >= capacity) {
+            if (!dropOldest) {
+                return Offer.REJECTED;
+            }
+            queue.pollFirst();
+            result = Offer.DROPPED_OLDEST;
+        }
+        lastQueuedAt = System.currentTimeMillis();
+        queue.addLast(new Pending(message, lastQueuedAt));
+        return result;
+    }
+
+    /**
+     * Ends the current request. If messages are queued, the session stays claimed ({@code WAITING}) for the
+     * caller to send them; otherwise it returns to {@code IDLE}.
+     *
+     * @return {@code true} if the caller still owns the session and should send the queued messages.
+     */
+    public synchronized boolean finishOrContinue() {
+        if (queue.isEmpty()) {
+            state.set(State.IDLE);
+            return false;
+        }
+        state.set(State.WAITING);
+        return true;
+    }
+
+    /**
+     * Takes the oldest queued message together with every following message that arrived within
+     * {@code windowMillis} of the one before it, joined by line breaks. Later messages stay queued.
+     *
+     * @param windowMillis Maximum gap between coalesced messages.
+     * @return The coalesced message, or {@code null} if the queue is empty.
+     */
+    public synchronized String drain(long windowMillis) {
+        Pending first = queue.pollFirst();
+        if (first == null) {
+            return null;
+        }
+        StringBuilder message = new StringBuilder(first.message);
+        long previous = first.queuedAt;
+        while (!queue.isEmpty() && queue.peekFirst().queuedAt - previous <= windowMillis) {
+            Pending next = queue.pollFirst();
+            message.append('\n').append(next.message);
+            previous = next.queuedAt;
+        }
+        return message.toString();
+    }
+
+    /**
+     * Marks the session as dropped by the bot manager, so later {@link #offer offers} fail with
+     * {@link Offer#DETACHED}. Callers hold this session's lock while removing it from the bot manager,
+     * so no message can be accepted in between.
+     */
+    synchronized void detach() {
+        detached = true;
+    }
+
+    /**
+     * Returns the number of queued messages.
+     *
+     * @return The queue length.
+     */
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Returns when the newest message was queued.
+     *
+     * @return Epoch milliseconds, or {@code 0} if nothing was ever queued.
+     */
+    public synchronized long getLastQueuedAt() {
+        return lastQueuedAt;
+    }
+
+    /**
+     * Records that the session was used just now, postponing its idle eviction.
+     */
+    public void touch() {
+        lastActive = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns when the session was last used.
+     *
+     * @return Epoch milliseconds.
+     */
+    public long getLastActive() {
+        return lastActive;
+    }
+
+    /**
+     * Forces the request state, bypassing the transitions. Only kept for
+     * {@link MCEngineArtificialIntelligenceApiUtilBotManager#setWaiting}; everything else goes through the transitions.
+     *
+     * @param state The new state.
+     */
+    void setState(State state) {
+        this.state.set(state);
+    }
+
+    /**
+     * Returns where the player's current request stands.
+     *
+     * @return The state.
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Checks whether a request is in progress.
+     *
+     * @return {@code true} unless the session is {@code IDLE}.
+     */
+    public boolean isBusy() {
+        return state.get() != State.IDLE;
+    }
+
+    /**
+     * Returns the player's conversation.
+     *
+     * @return The conversation.
+     */
+    public MCEngineArtificialIntelligenceApiUtilConversation getConversation() {
+        return conversation;
+    }
+
+    /**
+     * Replaces the player's conversation.
+     *
+     * @param conversation The new conversation.
+     */
+    public void setConversation(MCEngineArtificialIntelligenceApiUtilConversation conversation) {
+        this.conversation = conversation;
+    }
+
+    /**
+     * Checks whether the player has an active AI session.
+     *
+     * @return {@code true} if active.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Activates or deactivates the player's AI session.
+     *
+     * @param active {@code true} to activate.
+     */
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    /**
+     * Returns the AI platform in use.
+     *
+     * @return The platform, or {@code null} if none was chosen.
+     */
+    public String getPlatform() {
+        return platform;
+    }
+
+    /**
+     * Returns the AI model in use.
+     *
+     * @return The model, or {@code null} if none was chosen.
+     */
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * Sets the AI platform and model in use.
+     *
+     * @param platform The platform, or {@code null} for the default.
+     * @param model    The model, or {@code null} for the default.
+     */
+    public void setModel(String platform, String model) {
+        this.platform = platform;
+        this.model = model;
+    }
+
+    /**
+     * A queued message and when it arrived.
+     */
+    private static class Pending {
+
+        /** The message text. */
+        private final String message;
+
+        /** Arrival time in epoch milliseconds. */
+        private final long queuedAt;
+
+        Pending(String message, long queuedAt) {
+            this.message = message;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
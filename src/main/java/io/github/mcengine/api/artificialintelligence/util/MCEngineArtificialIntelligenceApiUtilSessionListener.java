@@ -0,0 +1,84 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import io.github.mcengine.api.artificialintelligence.database.IMCEngineArtificialIntelligenceDB;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Ties player sessions to joining and quitting.
+ * <p>
+ * On join the player's session is created and, when a token database is given, their tokens are loaded
+ * in the background. On quit the session, its cached tokens and its compaction totals are dropped.
+ * When the owning plugin is disabled, all background work is stopped, see
+ * {@link MCEngineArtificialIntelligenceApiUtilShutdown}.
+ */
+public class MCEngineArtificialIntelligenceApiUtilSessionListener implements Listener {
+
+    /** Plugin whose disabling stops the API, or {@code null} for none. */
+    private final Plugin plugin;
+
+    /** Token database to preload from on join, or {@code null} for none. */
+    private final IMCEngineArtificialIntelligenceDB db;
+
+    /**
+     * Creates the listener without a disable hook.
+     *
+     * @param db Token database to preload player tokens from on join, or {@code null} for none.
+     */
+    public MCEngineArtificialIntelligenceApiUtilSessionListener(IMCEngineArtificialIntelligenceDB db) {
+        this(null, db);
+    }
+
+    /**
+     * Creates the listener.
+     *
+     * @param plugin Plugin whose disabling stops the API, or {@code null} for none.
+     * @param db     Token database to preload player tokens from on join, or {@code null} for none.
+     */
+    public MCEngineArtificialIntelligenceApiUtilSessionListener(Plugin plugin, IMCEngineArtificialIntelligenceDB db) {
+        this.plugin = plugin;
+        this.db = db;
+    }
+
+    /**
+     * Creates the joining player's session.
+     *
+     * @param event The join event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        MCEngineArtificialIntelligenceApiUtilBotManager.join(event.getPlayer());
+        if (db != null) {
+            MCEngineArtificialIntelligenceApiUtilTokenCache.preload(db, event.getPlayer().getUniqueId().toString());
+        }
+    }
+
+    /**
+     * Drops the quitting player's session.
+     *
+     * @param event The quit event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        MCEngineArtificialIntelligenceApiUtilBotManager.quit(event.getPlayer());
+        MCEngineArtificialIntelligenceApiUtilTokenCache.evict(event.getPlayer().getUniqueId().toString());
+    }
+
+    /**
+     * Stops all background work when the owning plugin is disabled. The event fires before the plugin's
+     * own {@code onDisable}, so usage is flushed while its database is still open.
+     *
+     * @param event The disable event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDisable(PluginDisableEvent event) {
+        if (plugin != null && event.getPlugin() == plugin) {
+            MCEngineArtificialIntelligenceApiUtilShutdown.shutdown();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the conversations of evicted sessions on disk so a returning player can continue where they left off.
+ * <p>
+ * When {@code ai.session.spill} is enabled (default {@code false}), the conversation, platform and model of a
+ * session evicted for idleness or dropped on quit are written to {@code sessions/<uuid>.json} in the plugin's
+ * data folder. When the player's next session is created, the file is read back into it and deleted.
+ * Files of players who do not return are deleted once they are older than
+ * {@code ai.session.spill-max-age-hours} (default {@code 168}; {@code 0} keeps them). All file access runs
+ * on a background thread.
+ */
+public class MCEngineArtificialIntelligenceApiUtilSessionStore {
+
+    /** Thread doing the file access, keeping it off the main thread; created on first use. */
+    private static ExecutorService executor;
+
+    /** Folder holding the spilled sessions; {@code null} while spilling is off. */
+    private static volatile File folder;
+
+    /** Plugin whose logger reports failures. */
+    private static volatile Plugin plugin;
+
+    /** Sessions written to disk. */
+    private static final AtomicLong spilled = new AtomicLong();
+
+    /** Sessions read back from disk. */
+    private static final AtomicLong restored = new AtomicLong();
+
+    /** Spilled sessions deleted unread because they got too old. */
+    private static final AtomicLong expired = new AtomicLong();
+
+    /** Reads or writes that failed. */
+    private static final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Reads the spill settings from the plugin config and, when spilling is enabled, deletes in the background
+     * the spilled sessions older than the configured maximum age.
+     *
+     * @param plugin The Bukkit plugin instance.
+     */
+    public static void initialize(Plugin plugin) {
+        MCEngineArtificialIntelligenceApiUtilSessionStore.plugin = plugin;
+        File dir = plugin.getConfig().getBoolean("ai.session.spill", false) ? new File(plugin.getDataFolder(), "sessions") : null;
+        folder = dir;
+        long maxAgeMillis = TimeUnit.HOURS.toMillis(Math.max(0L, plugin.getConfig().getLong("ai.session.spill-max-age-hours", 168L)));
+        if (dir != null && maxAgeMillis > 0) {
+            executor().execute(() -> deleteExpired(dir, System.currentTimeMillis() - maxAgeMillis));
+        }
+    }
+
+    /**
+     * Checks whether spilling is enabled.
+     *
+     * @return {@code true} if evicted sessions are written to disk.
+     */
+    public static boolean isEnabled() {
+        return folder != null;
+    }
+
+    /**
+     * Writes a session's conversation to disk in the background. Empty conversations are not written.
+     *
+     * @param session The evicted session.
+     */
+    public static void spill(MCEngineArtificialIntelligenceApiUtilSession session) {
+        File dir = folder;
+        if (dir == null) {
+            return;
+        }
+        List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> turns = session.getConversation().getTurns();
+        if (turns.isEmpty()) {
+            return;
+        }
+
+        JsonObject json = new JsonObject();
+        if (session.getPlatform() != null) {
+            json.addProperty("platform", session.getPlatform());
+            json.addProperty("model", session.getModel());
+        }
+        JsonArray array = new JsonArray();
+        for (MCEngineArtificialIntelligenceApiUtilConversation.Turn turn : turns) {
+            JsonObject item = new JsonObject();
+            item.addProperty("role", turn.getRole().name());
+            item.addProperty("content", turn.getContent());
+            array.add(item);
+        }
+        json.add("turns", array);
+
+        executor().execute(() -> {
+            File file = new File(dir, session.getPlayerUuid() + ".json");
+            File temp = new File(dir, session.getPlayerUuid() + ".json.tmp");
+            try {
+                Files.createDirectories(dir.toPath());
+                try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                    writer.write(json.toString());
+                }
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                spilled.incrementAndGet();
+            } catch (IOException e) {
+                failures.incrementAndGet();
+                plugin.getLogger().warning("Could not save AI session of " + session.getPlayerUuid() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Reads a player's spilled conversation into their new session in the background and deletes the file
+     * once the turns are in place. Turns the session gained meanwhile are kept after the restored ones.
+     *
+     * @param session The new session.
+     */
+    public static void restore(MCEngineArtificialIntelligenceApiUtilSession session) {
+        File dir = folder;
+        if (dir == null) {
+            return;
+        }
+        executor().execute(() -> {
+            File file = new File(dir, session.getPlayerUuid() + ".json");
+            if (!file.isFile()) {
+                return;
+            }
+            try {
+                JsonObject json;
+                try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    json = JsonParser.parseReader(reader).getAsJsonObject();
+                }
+                List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> turns = new ArrayList<>();
+                for (JsonElement element : json.getAsJsonArray("turns")) {
+                    JsonObject item = element.getAsJsonObject();
+                    String content = item.get("content").getAsString();
+                    turns.add(new MCEngineArtificialIntelligenceApiUtilConversation.Turn(
+                            MCEngineArtificialIntelligenceApiUtilConversation.Role.valueOf(item.get("role").getAsString()),
+                            content, MCEngineArtificialIntelligenceApiUtilConversation.estimateTokens(content)));
+                }
+                session.getConversation().restore(turns);
+                Files.deleteIfExists(file.toPath());
+                if (session.getPlatform() == null && json.has("platform")) {
+                    session.setModel(json.get("platform").getAsString(), json.get("model").getAsString());
+                }
+                restored.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                failures.incrementAndGet();
+                plugin.getLogger().warning("Could not restore AI session of " + session.getPlayerUuid() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Deletes the spilled sessions, and temporary files left by interrupted writes, last written before
+     * {@code cutoff}. Runs on the file thread.
+     *
+     * @param dir    The folder holding the spilled sessions.
+     * @param cutoff Epoch milliseconds; older files are deleted.
+     */
+    private static void deleteExpired(File dir, long cutoff) {
+        File[] files = dir.listFiles((parent, name) -> name.endsWith(".json") || name.endsWith(".json.tmp"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.lastModified() >= cutoff) {
+                continue;
+            }
+            try {
+                if (Files.deleteIfExists(file.toPath())) {
+                    expired.incrementAndGet();
+                }
+            } catch (IOException e) {
+                failures.incrementAndGet();
+                plugin.getLogger().warning("Could not delete expired AI session " + file.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Finishes the writes already queued, waiting up to five seconds, and stops the file thread.
+     * Typically called when the plugin is disabled, after the sessions have been spilled.
+     */
+    public static synchronized void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Gave up waiting for AI sessions to be saved.");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    /**
+     * Returns the file thread, starting it if needed.
+     */
+    private static synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "MCEngineAI-SessionStore");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Returns spill statistics.
+     *
+     * @return Map with {@code spilled}, {@code restored}, {@code expired} and {@code failures}.
+     */
+    public static Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("spilled", spilled.get());
+        stats.put("restored", restored.get());
+        stats.put("expired", expired.get());
+        stats.put("failures", failures.get());
+        return stats;
+    }
+}
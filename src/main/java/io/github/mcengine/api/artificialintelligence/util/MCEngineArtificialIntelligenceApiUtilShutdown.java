@@ -0,0 +1,30 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+/**
+ * Stops everything the API runs in the background, in one call.
+ * <p>
+ * New bot tasks are refused first, then sessions end, spilled sessions and token usage are written out,
+ * and finally every background thread is stopped and every pooled HTTP client dropped. Each part starts
+ * again on its next use, so a plugin that is disabled and enabled again keeps working.
+ */
+public class MCEngineArtificialIntelligenceApiUtilShutdown {
+
+    /**
+     * Stops all background work. Call it on the main thread when the plugin is disabled, before the
+     * token database is closed.
+     */
+    public static void shutdown() {
+        MCEngineArtificialIntelligenceApiUtilScheduler.shutdown();
+        MCEngineArtificialIntelligenceApiUtilIdleEvictor.shutdown();
+        MCEngineArtificialIntelligenceApiUtilBotManager.terminateAll();
+        MCEngineArtificialIntelligenceApiUtilSessionStore.shutdown();
+        MCEngineArtificialIntelligenceApiUtilCompactor.shutdown();
+        MCEngineArtificialIntelligenceApiUtilUsage.stop();
+        MCEngineArtificialIntelligenceApiUtilTokenCache.shutdown();
+        MCEngineArtificialIntelligenceApiUtilDelivery.stop();
+        MCEngineArtificialIntelligenceApiUtilBalancer.shutdown();
+        MCEngineArtificialIntelligenceApiUtilLimiter.shutdown();
+        MCEngineArtificialIntelligenceApiUtilDeadline.shutdown();
+        MCEngineArtificialIntelligenceApiUtilHttp.shutdown();
+    }
+}
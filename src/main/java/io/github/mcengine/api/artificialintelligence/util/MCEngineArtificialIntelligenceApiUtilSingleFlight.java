@@ -0,0 +1,141 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical concurrent AI requests into a single upstream call.
+ * <p>
+ * The first request for a key becomes the leader and performs the call; any identical request that
+ * arrives while the leader is still in flight joins it and receives the same result. Keys cover the
+ * platform, model, token scope and full prompt, so requests billed to different tokens never share a call.
+ * A leader whose caller gives up may {@link #abandon} the call, but only while nobody has joined it.
+ */
+public class MCEngineArtificialIntelligenceApiUtilSingleFlight {
+
+    /**
+     * The requests currently in flight; entries are only changed through atomic map operations.
+     */
+    private static final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Requests that joined an in-flight call instead of going upstream.
+     */
+    private static final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Builds the coalescing key for a request.
+     *
+     * @param platform     The platform key.
+     * @param model        The model name.
+     * @param token        The token the request is billed to.
+     * @param systemPrompt The system prompt.
+     * @param message      The user message.
+     * @return The key.
+     */
+    public static String key(String platform, String model, String token, String systemPrompt, String message) {
+        return platform + '\u0000' + model + '\u0000' + token + '\u0000'
+                + (systemPrompt == null ? "" : systemPrompt) + '\u0000' + message;
+    }
+
+    /**
+     * Registers {@code leader} as the in-flight call for {@code key}, unless one is already running.
+     *
+     * @param key    The coalescing key.
+     * @param leader The caller's own, not yet completed, future.
+     * @param <T>    The result type.
+     * @return The already running call to join, or {@code null} if the caller is now the leader
+     *         and must perform the call and then {@link #complete} it.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CompletableFuture<T> join(String key, CompletableFuture<T> leader) {
+        Flight[] joined = new Flight[1];
+        inFlight.compute(key, (k, flight) -> {
+            if (flight == null) {
+                return new Flight(leader);
+            }
+            flight.followers++;
+            joined[0] = flight;
+            return flight;
+        });
+        if (joined[0] == null) {
+            return null;
+        }
+        coalesced.incrementAndGet();
+        return (CompletableFuture<T>) joined[0].leader;
+    }
+
+    /**
+     * Releases the key of a call whose caller no longer wants the result, so the call may be aborted.
+     * Fails once another request has joined the call, since that request still needs it.
+     *
+     * @param key    The coalescing key.
+     * @param leader The leader future registered with {@link #join}.
+     * @return {@code true} if nobody else waits for the call and it may be aborted.
+     */
+    public static boolean abandon(String key, CompletableFuture<?> leader) {
+        boolean[] abandoned = new boolean[1];
+        inFlight.computeIfPresent(key, (k, flight) -> {
+            if (flight.leader != leader || flight.followers > 0) {
+                return flight;
+            }
+            abandoned[0] = true;
+            return null;
+        });
+        return abandoned[0];
+    }
+
+    /**
+     * Completes a leader's call and releases the key so later requests go upstream again.
+     *
+     * @param key    The coalescing key.
+     * @param leader The leader future registered with {@link #join}.
+     * @param result The result, or {@code null} on failure.
+     * @param error  The failure, or {@code null} on success.
+     * @param <T>    The result type.
+     */
+    public static <T> void complete(String key, CompletableFuture<T> leader, T result, Throwable error) {
+        inFlight.computeIfPresent(key, (k, flight) -> flight.leader == leader ? null : flight);
+        if (error != null) {
+            leader.completeExceptionally(error);
+        } else {
+            leader.complete(result);
+        }
+    }
+
+    /**
+     * Returns the number of requests served by joining an in-flight call.
+     *
+     * @return Coalesced request count.
+     */
+    public static long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Returns the number of distinct calls currently in flight.
+     *
+     * @return In-flight call count.
+     */
+    public static int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * A call in flight and how many requests have joined it.
+     */
+    private static class Flight {
+
+        /** The leader's future. */
+        private final CompletableFuture<?> leader;
+
+        /** Requests that joined the call; only changed inside map operations on the flight's key. */
+        private int followers;
+
+        Flight(CompletableFuture<?> leader) {
+            this.leader = leader;
+        }
+    }
+}
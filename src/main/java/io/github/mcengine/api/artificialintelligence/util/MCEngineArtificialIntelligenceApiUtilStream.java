@@ -0,0 +1,270 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.github.mcengine.api.artificialintelligence.response.MCEngineArtificialIntelligenceApiResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Incremental parser for streamed ({@code "stream": true}) chat completions.
+ * <p>
+ * Consumes the server-sent event lines of an OpenAI-compatible response as they arrive:
+ * <ul>
+ *     <li>Each {@code data:} event's {@code choices[0].delta.content} is appended to the reply</li>
+ *     <li>Text is forwarded to a consumer in sentence-sized chunks instead of per token</li>
+ *     <li>The final {@code usage} block (sent when {@code stream_options.include_usage} is set) is kept</li>
+ *     <li>Time-to-first-token is recorded per platform</li>
+ * </ul>
+ * Once the stream completes, {@link #toResponse()} returns the same typed response as a
+ * non-streamed completion.
+ */
+public class MCEngineArtificialIntelligenceApiUtilStream implements Flow.Subscriber<String> {
+
+    /**
+     * Chunks longer than this are emitted at the last space even without a sentence boundary.
+     */
+    private static final int MAX_CHUNK_LENGTH = 200;
+
+    /**
+     * Time-to-first-token counters per platform key.
+     */
+    private static final Map<String, Counters> firstTokenStats = new ConcurrentHashMap<>();
+
+    /** Platform key the metric is recorded under. */
+    private final String platform;
+
+    /** Receives sentence-sized chunks of the reply. */
+    private final Consumer<String> onChunk;
+
+    /** Request start, used for time-to-first-token. */
+    private final long startNanos;
+
+    /** Full reply text received so far. */
+    private final StringBuilder content = new StringBuilder();
+
+    /** Text received but not yet forwarded as a chunk. */
+    private final StringBuilder pending = new StringBuilder();
+
+    /** Prompt, completion, total and cached prompt tokens from the usage event, {@code -1} until reported. */
+    private final int[] usage = {-1, -1, -1, -1};
+
+    /** Finish reason from the last choice, if any. */
+    private String finishReason;
+
+    /** Model name reported by the provider. */
+    private String model;
+
+    /** Whether the first content token has been seen. */
+    private boolean firstTokenSeen;
+
+    /**
+     * Creates a parser for one streamed response.
+     *
+     * @param platform   Platform key used for the time-to-first-token metric.
+     * @param startNanos {@link System#nanoTime()} when the request was sent.
+     * @param onChunk    Receives sentence-sized chunks of the reply; invoked on the HTTP client thread.
+     */
+    public MCEngineArtificialIntelligenceApiUtilStream(String platform, long startNanos, Consumer<String> onChunk) {
+        this.platform = platform;
+        this.startNanos = startNanos;
+        this.onChunk = onChunk;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(String line) {
+        // Comments (": keep-alive") and other SSE fields carry no content
+        if (!line.startsWith("data:")) {
+            return;
+        }
+        String data = line.substring(5).trim();
+        if (data.isEmpty() || data.equals("[DONE]")) {
+            return;
+        }
+
+        JsonObject event;
+        try {
+            event = JsonParser.parseString(data).getAsJsonObject();
+        } catch (Exception e) {
+            return;
+        }
+
+        if (event.has("model") && !event.get("model").isJsonNull()) {
+            model = event.get("model").getAsString();
+        }
+        if (event.has("usage") && event.get("usage").isJsonObject()) {
+            JsonObject tokens = event.getAsJsonObject("usage");
+            usage[0] = count(tokens, "prompt_tokens");
+            usage[1] = count(tokens, "completion_tokens");
+            usage[2] = count(tokens, "total_tokens");
+            usage[3] = MCEngineArtificialIntelligenceApiResponse.cachedTokens(tokens);
+        }
+
+        JsonArray choices = event.has("choices") && event.get("choices").isJsonArray() ? event.getAsJsonArray("choices") : null;
+        if (choices == null || choices.size() == 0) {
+            return;
+        }
+        JsonObject choice = choices.get(0).getAsJsonObject();
+        JsonElement reason = choice.get("finish_reason");
+        if (reason != null && !reason.isJsonNull()) {
+            finishReason = reason.getAsString();
+        }
+        JsonObject delta = choice.has("delta") && choice.get("delta").isJsonObject() ? choice.getAsJsonObject("delta") : null;
+        JsonElement text = delta == null ? null : delta.get("content");
+        if (text == null || text.isJsonNull()) {
+            return;
+        }
+
+        String piece = text.getAsString();
+        if (piece.isEmpty()) {
+            return;
+        }
+        if (!firstTokenSeen) {
+            firstTokenSeen = true;
+            firstTokenStats.computeIfAbsent(platform, k -> new Counters())
+                    .record((System.nanoTime() - startNanos) / 1_000_000L);
+        }
+        content.append(piece);
+        pending.append(piece);
+        emitSentences();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        flush();
+    }
+
+    @Override
+    public void onComplete() {
+        flush();
+    }
+
+    /**
+     * Returns the reply assembled from the received events.
+     *
+     * @return The typed response with content, finish reason and usage when known.
+     */
+    public MCEngineArtificialIntelligenceApiResponse toResponse() {
+        return new MCEngineArtificialIntelligenceApiResponse(
+                content.toString(), finishReason, model, usage[0], usage[1], usage[2], usage[3], null, false);
+    }
+
+    /**
+     * Reads a token count from a usage block.
+     *
+     * @return The count, or {@code -1} if absent or not a number.
+     */
+    private static int count(JsonObject usage, String name) {
+        JsonElement value = usage.get(name);
+        return value != null && value.isJsonPrimitive() && value.getAsJsonPrimitive().isNumber() ? value.getAsInt() : -1;
+    }
+
+    /**
+     * Forwards every complete sentence in the pending buffer, keeping the unfinished tail.
+     */
+    private void emitSentences() {
+        int cut = -1;
+        for (int i = pending.length() - 1; i >= 0; i--) {
+            char c = pending.charAt(i);
+            if (c == '\n' || ((c == '.' || c == '!' || c == '?') && i + 1 < pending.length()
+                    && Character.isWhitespace(pending.charAt(i + 1)))) {
+                cut = i + 1;
+                break;
+            }
+        }
+        if (cut < 0 && pending.length() > MAX_CHUNK_LENGTH) {
+            cut = pending.lastIndexOf(" ") + 1;
+            if (cut <= 0) {
+                cut = pending.length();
+            }
+        }
+        if (cut > 0) {
+            String chunk = pending.substring(0, cut).trim();
+            pending.delete(0, cut);
+            if (!chunk.isEmpty()) {
+                onChunk.accept(chunk);
+            }
+        }
+    }
+
+    /**
+     * Forwards whatever text is left once the stream ends.
+     */
+    private void flush() {
+        String chunk = pending.toString().trim();
+        pending.setLength(0);
+        if (!chunk.isEmpty()) {
+            onChunk.accept(chunk);
+        }
+    }
+
+    /**
+     * Returns time-to-first-token statistics for every platform that has streamed a reply.
+     *
+     * @return Map of platform key to {@code count}, {@code lastMillis}, {@code avgMillis} and {@code maxMillis}.
+     */
+    public static Map<String, Map<String, Long>> getTimeToFirstTokenStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, Counters> entry : firstTokenStats.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return stats;
+    }
+
+    /**
+     * Lock-free latency counters for one platform.
+     */
+    private static class Counters {
+
+        /** Number of samples. */
+        private final AtomicLong count = new AtomicLong();
+
+        /** Sum of all samples in milliseconds. */
+        private final AtomicLong totalMillis = new AtomicLong();
+
+        /** Largest sample in milliseconds. */
+        private final AtomicLong maxMillis = new AtomicLong();
+
+        /** Most recent sample in milliseconds. */
+        private volatile long lastMillis;
+
+        /**
+         * Records one sample.
+         *
+         * @param millis Time to first token in milliseconds.
+         */
+        void record(long millis) {
+            count.incrementAndGet();
+            totalMillis.addAndGet(millis);
+            maxMillis.accumulateAndGet(millis, Math::max);
+            lastMillis = millis;
+        }
+
+        /**
+         * Returns a snapshot of the counters.
+         *
+         * @return Map of counter name to value.
+         */
+        Map<String, Long> snapshot() {
+            long n = count.get();
+            Map<String, Long> stats = new LinkedHashMap<>();
+            stats.put("count", n);
+            stats.put("lastMillis", lastMillis);
+            stats.put("avgMillis", n == 0 ? 0 : totalMillis.get() / n);
+            stats.put("maxMillis", maxMillis.get());
+            return stats;
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package io.github.mcengine.api.artificialintelligence.util;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -11,9 +19,29 @@ import org.bukkit.plugin.Plugin;
 
 /**
  * Utility class for handling player tokens in MCEngineArtificialIntelligence.
+ * <p>
+ * Two ciphertext formats are understood:
+ * <ul>
+ *     <li>legacy – Base64 of a 16-byte IV followed by AES/CBC/PKCS5Padding output</li>
+ *     <li>{@code v2:} – the prefix followed by Base64 of a 12-byte nonce and AES/GCM output with its
+ *         128-bit tag, so tampered tokens are rejected</li>
+ * </ul>
+ * New tokens are written in the format chosen by {@code token.cipher} ({@code cbc}, the default, or
+ * {@code gcm}); both formats always decrypt, so switching to {@code gcm} migrates tokens as players set them.
+ * <p>
+ * Decrypted tokens are kept in a small in-memory cache keyed by ciphertext, so a player's requests do not
+ * decrypt the same token again. Entries expire after {@code token.cache.ttl-seconds} (default {@code 300}),
+ * the cache holds at most {@code token.cache.max-entries} (default {@code 1000}) and a player's entries are
+ * dropped when their session is terminated.
  */
 public class MCEngineArtificialIntelligenceApiUtilToken {
 
+    /**
+     * Prefix marking AES/GCM ciphertexts. {@code :} is not part of the Base64 alphabet, so legacy
+     * tokens can never start with it.
+     */
+    private static final String GCM_PREFIX = "v2:";
+
     /**
      * Secret key used for AES encryption/decryption.
      * Must be exactly 16 characters long (128 bits) for AES-128.
@@ -21,12 +49,71 @@ public class MCEngineArtificialIntelligenceApiUtilToken {
      */
     private static String secretKey;
 
+    /**
+     * Key built from {@link #secretKey}; {@code null} until a valid key has been loaded.
+     */
+    private static volatile SecretKeySpec keySpec;
+
+    /**
+     * Whether new tokens are encrypted with AES/GCM instead of AES/CBC.
+     */
+    private static volatile boolean useGcm;
+
+    /**
+     * Shared source of IVs and nonces; {@link SecureRandom} is thread-safe and costly to seed.
+     */
+    private static final SecureRandom random = new SecureRandom();
+
+    /**
+     * Per-thread CBC cipher; {@link Cipher#getInstance} is a provider lookup and ciphers are not thread-safe.
+     */
+    private static final ThreadLocal<Cipher> cbc = ThreadLocal.withInitial(() -> cipher("AES/CBC/PKCS5Padding"));
+
+    /**
+     * Per-thread GCM cipher.
+     */
+    private static final ThreadLocal<Cipher> gcm = ThreadLocal.withInitial(() -> cipher("AES/GCM/NoPadding"));
+
+    /**
+     * Maximum number of cached plaintext tokens.
+     */
+    private static int maxEntries = 1000;
+
+    /**
+     * Lifetime of a cached plaintext token in milliseconds.
+     */
+    private static long ttlMillis = 300_000L;
+
+    /**
+     * Access-ordered ciphertext → plaintext cache; guarded by its own monitor.
+     */
+    private static final LinkedHashMap<String, Entry> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * Ciphertexts looked up for each player, so their plaintexts can be dropped when the player leaves.
+     */
+    private static final Map<UUID, Set<String>> owners = new ConcurrentHashMap<>();
+
+    /** Decryptions answered from the cache. */
+    private static final AtomicLong hits = new AtomicLong();
+
+    /** Decryptions that ran the cipher. */
+    private static final AtomicLong misses = new AtomicLong();
+
     /**
      * Initializes the token encryption utility by loading the secret key from plugin config.
+     * Calling it again (e.g. on reload) re-reads the settings and clears the token cache.
      *
      * @param plugin The Bukkit plugin instance.
      */
     public static void initialize(Plugin plugin) {
+        clearCache();
+        keySpec = null;
         secretKey = plugin.getConfig().getString("token.secretKey", "").trim();
 
         if (secretKey.isEmpty()) {
@@ -38,12 +125,20 @@ public class MCEngineArtificialIntelligenceApiUtilToken {
         if (secretKey.length() != 16) {
             plugin.getLogger().severe("token.secretKey must be exactly 16 characters for AES-128 encryption. Disabling plugin...");
             plugin.getServer().getPluginManager().disablePlugin(plugin);
+            return;
+        }
+
+        keySpec = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "AES");
+        useGcm = "gcm".equalsIgnoreCase(plugin.getConfig().getString("token.cipher", "cbc"));
+        synchronized (cache) {
+            maxEntries = Math.max(1, plugin.getConfig().getInt("token.cache.max-entries", 1000));
+            ttlMillis = plugin.getConfig().getLong("token.cache.ttl-seconds", 300L) * 1000L;
         }
     }
 
     /**
-     * Encrypts the given token using AES encryption in CBC mode with PKCS5 padding.
-     * A random 16-byte Initialization Vector (IV) is generated for each encryption,
+     * Encrypts the given token with AES in the format selected by {@code token.cipher}.
+     * A random IV (CBC) or nonce (GCM) is generated for each encryption,
      * ensuring that encrypting the same input multiple times will result in different outputs.
      * The IV is prepended to the encrypted data before Base64 encoding.
      *
@@ -52,14 +147,19 @@ public class MCEngineArtificialIntelligenceApiUtilToken {
      */
     public static String encryptToken(String token) {
         try {
-            SecretKeySpec keySpec = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "AES");
+            SecretKeySpec key = requireKey();
+            boolean gcmMode = useGcm;
+            byte[] iv = new byte[gcmMode ? 12 : 16];
+            random.nextBytes(iv);
 
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            byte[] iv = new byte[16];
-            new java.security.SecureRandom().nextBytes(iv); // generate random IV
-            IvParameterSpec ivSpec = new IvParameterSpec(iv);
-
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, ivSpec);
+            Cipher cipher;
+            if (gcmMode) {
+                cipher = gcm.get();
+                cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+            } else {
+                cipher = cbc.get();
+                cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(iv));
+            }
             byte[] encrypted = cipher.doFinal(token.getBytes(StandardCharsets.UTF_8));
 
             // prepend IV to encrypted data
@@ -67,7 +167,8 @@ public class MCEngineArtificialIntelligenceApiUtilToken {
             System.arraycopy(iv, 0, combined, 0, iv.length);
             System.arraycopy(encrypted, 0, combined, iv.length, encrypted.length);
 
-            return Base64.getEncoder().encodeToString(combined);
+            String encoded = Base64.getEncoder().encodeToString(combined);
+            return gcmMode ? GCM_PREFIX + encoded : encoded;
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -75,27 +176,155 @@ public class MCEngineArtificialIntelligenceApiUtilToken {
     }
 
     /**
-     * Decrypts a Base64-encoded token that was encrypted using AES in CBC mode with PKCS5 padding.
-     * The method expects the IV to be prepended to the encrypted payload.
+     * Decrypts a token produced by {@link #encryptToken(String)} in either format.
+     * Recently decrypted tokens are answered from the cache.
      *
      * @param encryptedToken The encrypted token as a Base64-encoded string.
      * @return The decrypted plain text token, or null if decryption fails.
      */
     public static String decryptToken(String encryptedToken) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            Entry entry = cache.get(encryptedToken);
+            if (entry != null) {
+                if (entry.expiresAt >= now) {
+                    hits.incrementAndGet();
+                    return entry.token;
+                }
+                cache.remove(encryptedToken);
+            }
+        }
+        misses.incrementAndGet();
+
+        String token = decrypt(encryptedToken);
+        if (token != null) {
+            synchronized (cache) {
+                cache.put(encryptedToken, new Entry(token, now + ttlMillis));
+            }
+        }
+        return token;
+    }
+
+    /**
+     * Records that a player's requests use {@code encryptedToken}, so its cached plaintext is dropped by
+     * {@link #evict(UUID)} when the player's session ends.
+     *
+     * @param playerUuid     The player.
+     * @param encryptedToken The player's encrypted token.
+     */
+    public static void bind(UUID playerUuid, String encryptedToken) {
+        owners.computeIfAbsent(playerUuid, key -> ConcurrentHashMap.newKeySet()).add(encryptedToken);
+    }
+
+    /**
+     * Drops the cached plaintexts of a player's tokens. Typically called when the player quits.
+     *
+     * @param playerUuid The player.
+     */
+    public static void evict(UUID playerUuid) {
+        Set<String> tokens = owners.remove(playerUuid);
+        if (tokens == null) {
+            return;
+        }
+        synchronized (cache) {
+            for (String token : tokens) {
+                cache.remove(token);
+            }
+        }
+    }
+
+    /**
+     * Drops every cached plaintext token.
+     * Typically called when the plugin is disabled or reloaded.
+     */
+    public static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+        owners.clear();
+    }
+
+    /**
+     * Returns token cache statistics.
+     *
+     * @return Map with {@code hits}, {@code misses} and {@code size}.
+     */
+    public static Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        synchronized (cache) {
+            stats.put("size", (long) cache.size());
+        }
+        return stats;
+    }
+
+    /**
+     * Runs the cipher for either ciphertext format.
+     */
+    private static String decrypt(String encryptedToken) {
         try {
-            byte[] combined = Base64.getDecoder().decode(encryptedToken);
-            byte[] iv = Arrays.copyOfRange(combined, 0, 16);
-            byte[] encrypted = Arrays.copyOfRange(combined, 16, combined.length);
+            SecretKeySpec key = requireKey();
+            boolean gcmMode = encryptedToken.startsWith(GCM_PREFIX);
+            byte[] combined = Base64.getDecoder().decode(gcmMode ? encryptedToken.substring(GCM_PREFIX.length()) : encryptedToken);
+            int ivLength = gcmMode ? 12 : 16;
+            if (combined.length <= ivLength) {
+                throw new GeneralSecurityException("Encrypted token is too short");
+            }
 
-            SecretKeySpec keySpec = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "AES");
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, new IvParameterSpec(iv));
+            Cipher cipher;
+            if (gcmMode) {
+                cipher = gcm.get();
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, combined, 0, ivLength));
+            } else {
+                cipher = cbc.get();
+                cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(combined, 0, ivLength));
+            }
 
-            byte[] decrypted = cipher.doFinal(encrypted);
+            byte[] decrypted = cipher.doFinal(combined, ivLength, combined.length - ivLength);
             return new String(decrypted, StandardCharsets.UTF_8);
         } catch (Exception e) {
             e.printStackTrace();
             return null;
         }
     }
+
+    /**
+     * Returns the loaded key.
+     */
+    private static SecretKeySpec requireKey() {
+        SecretKeySpec key = keySpec;
+        if (key == null) {
+            throw new IllegalStateException("Token encryption is not initialized");
+        }
+        return key;
+    }
+
+    /**
+     * Creates a cipher for a transformation the JDK is required to support.
+     */
+    private static Cipher cipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A cached plaintext token and its expiry time.
+     */
+    private static class Entry {
+
+        /** The decrypted token. */
+        private final String token;
+
+        /** Expiry timestamp in epoch milliseconds. */
+        private final long expiresAt;
+
+        Entry(String token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
@@ -0,0 +1,201 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import io.github.mcengine.api.artificialintelligence.database.IMCEngineArtificialIntelligenceDB;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-through cache of player tokens as stored in the token database.
+ * <p>
+ * A player's tokens are loaded once (ideally in the background when they join, see {@link #preload}) and
+ * then served from memory, so chat messages do not each cost a database round trip. Writes update the
+ * cache and are then persisted. Entries live until the player's tokens are evicted (typically on quit)
+ * or the cache is cleared. Concurrent lookups of the same token share one database load, and tokens
+ * that do not exist are cached as absent until they are set.
+ * <p>
+ * The cache assumes one token database per server; the first database passed in for a player and platform
+ * answers later lookups too.
+ */
+public class MCEngineArtificialIntelligenceApiUtilTokenCache {
+
+    /**
+     * Threads running the blocking database calls behind the asynchronous token methods.
+     * Created on first use and stopped by {@link #shutdown()}.
+     */
+    private static ExecutorService executor;
+
+    /**
+     * Player UUID → platform → token (completed with {@code null} when the player has none).
+     */
+    private static final Map<String, Map<String, CompletableFuture<String>>> tokens = new ConcurrentHashMap<>();
+
+    /** Lookups answered from memory, including ones joining a load in progress. */
+    private static final AtomicLong hits = new AtomicLong();
+
+    /** Lookups that had to load from the database. */
+    private static final AtomicLong misses = new AtomicLong();
+
+    /** Database loads that failed. */
+    private static final AtomicLong loadFailures = new AtomicLong();
+
+    /** Tokens written through to the database. */
+    private static final AtomicLong writes = new AtomicLong();
+
+    /** Sum of database load times in nanoseconds. */
+    private static final AtomicLong loadNanos = new AtomicLong();
+
+    /** Slowest database load in nanoseconds. */
+    private static final AtomicLong maxLoadNanos = new AtomicLong();
+
+    /**
+     * Returns the executor used for blocking database calls.
+     *
+     * @return The shared database executor.
+     */
+    public static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(4, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "MCEngineAI-Database-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Looks up a player's token, loading it from the database on first use.
+     *
+     * @param db         The token database.
+     * @param playerUuid The UUID of the player.
+     * @param platform   The platform name.
+     * @return A future completed with the token, or with {@code null} if the player has none.
+     */
+    public static CompletableFuture<String> get(IMCEngineArtificialIntelligenceDB db, String playerUuid, String platform) {
+        Map<String, CompletableFuture<String>> playerTokens = tokens.computeIfAbsent(playerUuid, key -> new ConcurrentHashMap<>());
+        CompletableFuture<String> cached = playerTokens.get(platform);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        CompletableFuture<String> loading = new CompletableFuture<>();
+        cached = playerTokens.putIfAbsent(platform, loading);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        long start = System.nanoTime();
+        db.getPlayerTokenAsync(playerUuid, platform).whenComplete((token, error) -> {
+            long elapsed = System.nanoTime() - start;
+            loadNanos.addAndGet(elapsed);
+            maxLoadNanos.accumulateAndGet(elapsed, Math::max);
+            if (error != null) {
+                // Failed loads are not cached, so the next lookup tries again
+                loadFailures.incrementAndGet();
+                playerTokens.remove(platform, loading);
+                loading.completeExceptionally(error);
+            } else {
+                loading.complete(token);
+            }
+        });
+        return loading;
+    }
+
+    /**
+     * Stores a player's token in the cache and writes it through to the database.
+     * If the write fails, the cached entry is dropped so the next lookup reloads the stored value.
+     *
+     * @param db         The token database.
+     * @param playerUuid The UUID of the player.
+     * @param platform   The platform name.
+     * @param token      The encrypted token.
+     * @return A future completed once the token has been persisted.
+     */
+    public static CompletableFuture<Void> set(IMCEngineArtificialIntelligenceDB db, String playerUuid, String platform, String token) {
+        CompletableFuture<String> entry = CompletableFuture.completedFuture(token);
+        Map<String, CompletableFuture<String>> playerTokens = tokens.computeIfAbsent(playerUuid, key -> new ConcurrentHashMap<>());
+        playerTokens.put(platform, entry);
+        writes.incrementAndGet();
+        return db.setPlayerTokenAsync(playerUuid, platform, token).whenComplete((result, error) -> {
+            if (error != null) {
+                playerTokens.remove(platform, entry);
+            }
+        });
+    }
+
+    /**
+     * Loads a player's tokens for every registered platform in the background, typically when they join.
+     *
+     * @param db         The token database.
+     * @param playerUuid The UUID of the player.
+     */
+    public static void preload(IMCEngineArtificialIntelligenceDB db, String playerUuid) {
+        for (String platform : MCEngineArtificialIntelligenceApiUtilAi.getAllModels().keySet()) {
+            get(db, playerUuid, platform);
+        }
+    }
+
+    /**
+     * Drops a player's cached tokens, typically when they quit.
+     *
+     * @param playerUuid The UUID of the player.
+     */
+    public static void evict(String playerUuid) {
+        tokens.remove(playerUuid);
+    }
+
+    /**
+     * Drops every cached token.
+     * Typically called when the plugin is disabled or reloaded.
+     */
+    public static void clear() {
+        tokens.clear();
+    }
+
+    /**
+     * Drops every cached token and stops the database threads. A later lookup starts new threads.
+     * Typically called when the plugin is disabled.
+     */
+    public static synchronized void shutdown() {
+        clear();
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Returns cache and database statistics.
+     *
+     * @return Map with {@code hits}, {@code misses}, {@code loadFailures}, {@code writes},
+     *         {@code avgLoadMillis}, {@code maxLoadMillis} and {@code players}.
+     */
+    public static Map<String, Long> getStats() {
+        long loads = misses.get();
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", loads);
+        stats.put("loadFailures", loadFailures.get());
+        stats.put("writes", writes.get());
+        stats.put("avgLoadMillis", loads == 0 ? 0L : loadNanos.get() / loads / 1_000_000L);
+        stats.put("maxLoadMillis", maxLoadNanos.get() / 1_000_000L);
+        stats.put("players", (long) tokens.size());
+        return stats;
+    }
+}
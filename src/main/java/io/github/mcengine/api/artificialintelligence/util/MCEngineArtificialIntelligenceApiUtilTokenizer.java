@@ -0,0 +1,337 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline prompt size estimation and context window trimming.
+ * <p>
+ * Text is split the way the byte-pair encoders of the OpenAI model family pre-tokenize it (runs of letters
+ * with their leading space, digit groups of up to three, punctuation runs and whitespace), and each piece is
+ * costed from its length and script. This tracks the real token count closely for chat text without shipping
+ * a vocabulary. Every successful call compares the estimate with the {@code prompt_tokens} the provider
+ * reports and keeps a per-model correction factor, so the estimate converges on each model's tokenizer.
+ * <p>
+ * Before a request is sent, the history is trimmed oldest first until the prompt fits the model's context
+ * window minus room for the reply. A prompt that cannot fit even without history is refused locally
+ * instead of failing after a round trip.
+ * <p>
+ * Configuration, where {@code <platform>} is the platform key (e.g. {@code openai} or {@code custom.myserver}):
+ * <ul>
+ *     <li>{@code ai.<platform>.context.max-tokens} – context window of the platform's models, default {@code 8192};
+ *         {@code 0} disables trimming</li>
+ *     <li>{@code ai.<platform>.context.models.<model>} – context window of one model, overriding the platform value</li>
+ *     <li>{@code ai.<platform>.context.reserve-tokens} – tokens kept free for the reply, default {@code 1024}</li>
+ * </ul>
+ */
+public class MCEngineArtificialIntelligenceApiUtilTokenizer {
+
+    /**
+     * Tokens added per chat message for the role and separators.
+     */
+    private static final int TOKENS_PER_MESSAGE = 3;
+
+    /**
+     * Tokens priming the assistant's reply.
+     */
+    private static final int TOKENS_PER_REPLY = 3;
+
+    /**
+     * Weight of a new sample in the correction factor.
+     */
+    private static final double CALIBRATION_WEIGHT = 0.2;
+
+    /**
+     * {@code platform:model} → calibration and trimming counters.
+     */
+    private static final Map<String, Calibration> calibrations = new ConcurrentHashMap<>();
+
+    /**
+     * Result of fitting a prompt into a context window.
+     */
+    public static class Fit {
+
+        /** The history to send, oldest first; a suffix of the original history. */
+        private final List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history;
+
+        /** Uncalibrated estimate of the prompt that will be sent. */
+        private final int estimatedTokens;
+
+        /** Number of turns dropped from the front of the history. */
+        private final int droppedTurns;
+
+        /** Whether the prompt fits the context window. */
+        private final boolean fits;
+
+        /**
+         * Creates a fit result.
+         *
+         * @param history         The history to send.
+         * @param estimatedTokens Uncalibrated estimate of the prompt.
+         * @param droppedTurns    Number of turns dropped.
+         * @param fits            Whether the prompt fits.
+         */
+        public Fit(List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, int estimatedTokens, int droppedTurns, boolean fits) {
+            this.history = history;
+            this.estimatedTokens = estimatedTokens;
+            this.droppedTurns = droppedTurns;
+            this.fits = fits;
+        }
+
+        /**
+         * Returns the history to send.
+         *
+         * @return The kept turns, oldest first.
+         */
+        public List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> getHistory() {
+            return history;
+        }
+
+        /**
+         * Returns the uncalibrated token estimate of the prompt that will be sent.
+         *
+         * @return Estimated prompt tokens.
+         */
+        public int getEstimatedTokens() {
+            return estimatedTokens;
+        }
+
+        /**
+         * Returns how many turns were dropped from the front of the history.
+         *
+         * @return Dropped turns.
+         */
+        public int getDroppedTurns() {
+            return droppedTurns;
+        }
+
+        /**
+         * Returns whether the prompt fits the context window.
+         *
+         * @return {@code false} if the prompt is too long even without history.
+         */
+        public boolean fits() {
+            return fits;
+        }
+    }
+
+    /**
+     * Estimates the token count of a text.
+     *
+     * @param text The text.
+     * @return Estimated tokens; {@code 0} for {@code null} or empty text.
+     */
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+
+        int tokens = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                int start = i;
+                while (i < length && Character.isWhitespace(text.charAt(i))) {
+                    i++;
+                }
+                // A single space joins the following piece; longer runs and line breaks are tokens of their own
+                if (i - start > 1 || c == '\n' || i == length) {
+                    tokens++;
+                }
+            } else if (Character.isDigit(c)) {
+                int start = i;
+                while (i < length && Character.isDigit(text.charAt(i))) {
+                    i++;
+                }
+                tokens += (i - start + 2) / 3;
+            } else if (Character.isLetter(c)) {
+                int ascii = 0;
+                int other = 0;
+                while (i < length && Character.isLetter(text.charAt(i))) {
+                    char letter = text.charAt(i);
+                    if (letter < 0x80) {
+                        ascii++;
+                    } else if (letter >= 0x2E80) {
+                        // CJK and other ideographic scripts cost about one token per character
+                        tokens++;
+                    } else {
+                        other++;
+                    }
+                    i++;
+                }
+                // Common words are single tokens; longer or rarer ones split into pieces of about six letters
+                if (ascii > 0) {
+                    tokens += 1 + (ascii - 1) / 6;
+                }
+                tokens += (other + 1) / 2;
+            } else {
+                int start = i;
+                while (i < length && !Character.isLetterOrDigit(text.charAt(i)) && !Character.isWhitespace(text.charAt(i))) {
+                    i++;
+                }
+                tokens += (i - start + 1) / 2;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Estimates the prompt tokens of a chat request.
+     *
+     * @param systemPrompt The system prompt, may be {@code null} or empty.
+     * @param history      Earlier turns of the conversation.
+     * @param message      The new message.
+     * @return Estimated prompt tokens before calibration.
+     */
+    public static int estimate(String systemPrompt, List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history, String message) {
+        int tokens = TOKENS_PER_REPLY + TOKENS_PER_MESSAGE + estimate(message);
+        if (systemPrompt != null && !systemPrompt.isEmpty()) {
+            tokens += TOKENS_PER_MESSAGE + estimate(systemPrompt);
+        }
+        for (MCEngineArtificialIntelligenceApiUtilConversation.Turn turn : history) {
+            tokens += TOKENS_PER_MESSAGE + turn.getTokens();
+        }
+        return tokens;
+    }
+
+    /**
+     * Trims the history, oldest turns first, until the calibrated prompt estimate fits the model's
+     * context window minus the reply reserve. The kept history never starts with an assistant turn.
+     *
+     * @param plugin       The Bukkit plugin instance.
+     * @param platform     The platform key.
+     * @param model        The model name.
+     * @param systemPrompt The system prompt, may be {@code null} or empty.
+     * @param history      Earlier turns of the conversation, oldest first.
+     * @param message      The new message.
+     * @return The history to send and whether the prompt fits.
+     */
+    public static Fit fit(
+            Plugin plugin,
+            String platform,
+            String model,
+            String systemPrompt,
+            List<MCEngineArtificialIntelligenceApiUtilConversation.Turn> history,
+            String message
+    ) {
+        int estimated = estimate(systemPrompt, history, message);
+        int window = plugin.getConfig().getInt("ai." + platform + ".context.models." + model,
+                plugin.getConfig().getInt("ai." + platform + ".context.max-tokens", 8192));
+        if (window <= 0) {
+            return new Fit(history, estimated, 0, true);
+        }
+
+        Calibration calibration = calibrations.computeIfAbsent(platform + ":" + model, key -> new Calibration());
+        double ratio = calibration.ratio;
+        int budget = window - Math.max(0, plugin.getConfig().getInt("ai." + platform + ".context.reserve-tokens", 1024));
+        if (Math.ceil(estimated * ratio) <= budget) {
+            return new Fit(history, estimated, 0, true);
+        }
+
+        int dropped = 0;
+        while (dropped < history.size() && (Math.ceil(estimated * ratio) > budget
+                || history.get(dropped).getRole() == MCEngineArtificialIntelligenceApiUtilConversation.Role.ASSISTANT)) {
+            estimated -= TOKENS_PER_MESSAGE + history.get(dropped).getTokens();
+            dropped++;
+        }
+        boolean fits = Math.ceil(estimated * ratio) <= budget;
+        if (fits) {
+            calibration.trimmed.incrementAndGet();
+            calibration.droppedTurns.addAndGet(dropped);
+        } else {
+            calibration.rejected.incrementAndGet();
+        }
+        return new Fit(history.subList(dropped, history.size()), estimated, dropped, fits);
+    }
+
+    /**
+     * Updates a model's correction factor from the prompt tokens the provider reported.
+     *
+     * @param platform        The platform key.
+     * @param model           The model name.
+     * @param estimatedTokens The uncalibrated estimate of the prompt, see {@link Fit#getEstimatedTokens()}.
+     * @param promptTokens    The {@code prompt_tokens} reported by the provider; ignored unless positive.
+     */
+    public static void calibrate(String platform, String model, int estimatedTokens, int promptTokens) {
+        if (estimatedTokens <= 0 || promptTokens <= 0) {
+            return;
+        }
+        calibrations.computeIfAbsent(platform + ":" + model, key -> new Calibration()).record(estimatedTokens, promptTokens);
+    }
+
+    /**
+     * Returns estimation and trimming statistics.
+     *
+     * @return A map of {@code platform:model} → counter name ({@code samples}, {@code ratioPermille} – actual
+     *         tokens per thousand estimated, {@code avgErrorPercent} – mean error of the calibrated estimate,
+     *         {@code trimmed}, {@code droppedTurns}, {@code rejected}) → value.
+     */
+    public static Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, Calibration> entry : calibrations.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return stats;
+    }
+
+    /**
+     * Correction factor and counters of one model.
+     */
+    private static class Calibration {
+
+        /** Actual prompt tokens per estimated token; starts at {@code 1}. */
+        private volatile double ratio = 1.0;
+
+        /** Number of calibration samples. */
+        private long samples;
+
+        /** Sum of the calibrated estimate's relative errors in percent. */
+        private long errorPercent;
+
+        /** Requests whose history was trimmed to fit. */
+        private final AtomicLong trimmed = new AtomicLong();
+
+        /** Turns dropped by trimming. */
+        private final AtomicLong droppedTurns = new AtomicLong();
+
+        /** Requests refused because they could not fit. */
+        private final AtomicLong rejected = new AtomicLong();
+
+        /**
+         * Folds one sample into the correction factor.
+         *
+         * @param estimated The uncalibrated estimate.
+         * @param actual    The reported prompt tokens.
+         */
+        synchronized void record(int estimated, int actual) {
+            errorPercent += Math.round(Math.abs(estimated * ratio - actual) * 100.0 / actual);
+            double sample = (double) actual / estimated;
+            ratio = samples == 0 ? sample : ratio + CALIBRATION_WEIGHT * (sample - ratio);
+            samples++;
+        }
+
+        /**
+         * Returns the counters as a map.
+         *
+         * @return The statistics of this model.
+         */
+        synchronized Map<String, Long> snapshot() {
+            Map<String, Long> stats = new LinkedHashMap<>();
+            stats.put("samples", samples);
+            stats.put("ratioPermille", Math.round(ratio * 1000));
+            stats.put("avgErrorPercent", samples == 0 ? 0L : errorPercent / samples);
+            stats.put("trimmed", trimmed.get());
+            stats.put("droppedTurns", droppedTurns.get());
+            stats.put("rejected", rejected.get());
+            return stats;
+        }
+    }
+}
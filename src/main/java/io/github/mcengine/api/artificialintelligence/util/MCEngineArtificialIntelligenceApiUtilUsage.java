@@ -0,0 +1,519 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import io.github.mcengine.api.artificialintelligence.database.IMCEngineArtificialIntelligenceDB;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token usage ledger with per-player and per-group daily budgets.
+ * <p>
+ * Every completion delivered to a player is recorded with its platform, model, prompt and completion
+ * tokens and latency. Recording only bumps {@link LongAdder} counters, so concurrent replies never contend;
+ * the counters are written behind to {@link IMCEngineArtificialIntelligenceDB#saveTokenUsage(List)} in one
+ * batch every {@code ai.usage.flush-seconds} (default {@code 30}) and on {@link #flush()}.
+ * <p>
+ * Usage is kept per day and subject, where the subject is a player UUID, {@code group:<name>} for the
+ * total of a group, or {@code server:<purpose>} for calls the plugin makes on its own behalf (see
+ * {@link MCEngineArtificialIntelligenceApiUtilCompactor#USAGE_SUBJECT}). Budgets are read from {@code ai.budget}:
+ * <pre>
+ * ai:
+ *   budget:
+ *     daily-tokens: 20000          # per player, 0 (default) for no limit
+ *     server-token-only: true      # only cap calls paid with the server token, default true
+ *     groups:
+ *       vip:
+ *         daily-tokens: 500000     # shared by everyone with mcengine.artificialintelligence.group.vip
+ * </pre>
+ * A player belongs to every configured group whose permission they have. A request is refused once the
+ * player or any of their groups has used up its budget for the day; the request that crosses the limit
+ * still completes. Today's totals are read back from the database the first time a subject is checked,
+ * so budgets survive restarts. The flush and these reads run on the ledger's own thread, so they never take
+ * a database thread from token lookups.
+ * <p>
+ * Databases whose {@link IMCEngineArtificialIntelligenceDB#supportsTokenUsage()} is {@code false} are never
+ * asked to store or read usage; budgets then work from the in-memory totals only.
+ */
+public class MCEngineArtificialIntelligenceApiUtilUsage {
+
+    /**
+     * Permission prefix granting membership of a budget group.
+     */
+    public static final String GROUP_PERMISSION = "mcengine.artificialintelligence.group.";
+
+    /**
+     * Thread running the periodic flush and the reads of stored totals; {@code null} while the ledger is stopped.
+     */
+    private static volatile ScheduledExecutorService flusher;
+
+    /**
+     * Unflushed counters keyed by day, subject, platform and model.
+     */
+    private static final Map<String, Counters> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Today's token totals keyed by day and subject, seeded from the database.
+     */
+    private static final Map<String, DailyTotal> totals = new ConcurrentHashMap<>();
+
+    /** Requests refused because a budget was exhausted. */
+    private static final AtomicLong refused = new AtomicLong();
+
+    /** Records written to the database. */
+    private static final AtomicLong flushed = new AtomicLong();
+
+    /** Flushes that failed; their records are merged back and retried. */
+    private static final AtomicLong flushFailures = new AtomicLong();
+
+    /** The database usage is written to; {@code null} until started. */
+    private static volatile IMCEngineArtificialIntelligenceDB database;
+
+    /** The plugin whose config and logger are used. */
+    private static volatile Plugin owner;
+
+    /** Handle of the periodic flush. */
+    private static ScheduledFuture<?> flushTask;
+
+    /**
+     * Starts the ledger for a database if it is not running yet.
+     *
+     * @param plugin The Bukkit plugin instance used for configuration and logging.
+     * @param db     The database usage is written to.
+     */
+    public static synchronized void start(Plugin plugin, IMCEngineArtificialIntelligenceDB db) {
+        if (database != null) {
+            return;
+        }
+        owner = plugin;
+        database = db;
+        if (!db.supportsTokenUsage()) {
+            plugin.getLogger().warning("The AI database does not store token usage; usage is kept in memory only.");
+        }
+        long interval = Math.max(1, plugin.getConfig().getLong("ai.usage.flush-seconds", 30L));
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "MCEngineAI-UsageFlush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushTask = flusher.scheduleWithFixedDelay(MCEngineArtificialIntelligenceApiUtilUsage::flush, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Checks whether the ledger has been started.
+     *
+     * @return {@code true} once {@link #start} has run.
+     */
+    public static boolean isStarted() {
+        return database != null;
+    }
+
+    /**
+     * Flushes outstanding usage and stops the periodic flush. Typically called when the plugin is disabled.
+     */
+    public static synchronized void stop() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher = null;
+        }
+        flush();
+        database = null;
+        totals.clear();
+    }
+
+    /**
+     * Returns the budget groups a player belongs to.
+     *
+     * @param plugin The Bukkit plugin instance used for configuration.
+     * @param player The player.
+     * @return Names of the configured groups whose permission the player has.
+     */
+    public static List<String> getGroups(Plugin plugin, Player player) {
+        List<String> groups = new ArrayList<>();
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("ai.budget.groups");
+        if (section != null) {
+            for (String group : section.getKeys(false)) {
+                if (player.hasPermission(GROUP_PERMISSION + group)) {
+                    groups.add(group);
+                }
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Checks a player's budgets for today.
+     *
+     * @param plugin      The Bukkit plugin instance used for configuration.
+     * @param player      The player about to make a call.
+     * @param groups      The player's budget groups, see {@link #getGroups(Plugin, Player)}.
+     * @param serverToken Whether the call is paid with the server token.
+     * @return A future completed with {@code null} if the call may proceed, otherwise with the reason it may not.
+     */
+    public static CompletableFuture<String> checkBudget(Plugin plugin, Player player, Collection<String> groups, boolean serverToken) {
+        if (!serverToken && plugin.getConfig().getBoolean("ai.budget.server-token-only", true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String day = LocalDate.now().toString();
+
+        long playerLimit = plugin.getConfig().getLong("ai.budget.daily-tokens", 0L);
+        CompletableFuture<String> check = playerLimit > 0
+                ? exceeds(day, player.getUniqueId().toString(), playerLimit, "You have used your daily AI token budget.")
+                : CompletableFuture.completedFuture(null);
+
+        for (String group : groups) {
+            long groupLimit = plugin.getConfig().getLong("ai.budget.groups." + group + ".daily-tokens", 0L);
+            if (groupLimit > 0) {
+                CompletableFuture<String> groupCheck = exceeds(day, "group:" + group, groupLimit,
+                        "Your group '" + group + "' has used its daily AI token budget.");
+                check = check.thenCombine(groupCheck, (first, second) -> first != null ? first : second);
+            }
+        }
+        return check.whenComplete((reason, error) -> {
+            if (reason != null) {
+                refused.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Records one completion for a player and their groups.
+     *
+     * @param subject          The player UUID, or a {@code server:<purpose>} subject for the plugin's own calls.
+     * @param groups           The player's budget groups.
+     * @param platform         The platform name.
+     * @param model            The model name.
+     * @param promptTokens     Prompt tokens, or {@code -1} if not reported.
+     * @param completionTokens Completion tokens, or {@code -1} if not reported.
+     * @param latencyMillis    Time from dispatch to reply.
+     */
+    public static void record(String subject, Collection<String> groups, String platform, String model,
+                              int promptTokens, int completionTokens, long latencyMillis) {
+        String day = LocalDate.now().toString();
+        long prompt = Math.max(0, promptTokens);
+        long completion = Math.max(0, completionTokens);
+
+        add(day, subject, platform, model, prompt, completion, latencyMillis);
+        for (String group : groups) {
+            add(day, "group:" + group, platform, model, prompt, completion, latencyMillis);
+        }
+    }
+
+    /**
+     * Writes all outstanding usage to the database in one batch.
+     * Records that cannot be written are merged back and retried on the next flush.
+     */
+    public static void flush() {
+        IMCEngineArtificialIntelligenceDB db = database;
+        if (db == null) {
+            return;
+        }
+        String today = LocalDate.now().toString();
+        List<Record> records = new ArrayList<>();
+        Iterator<Map.Entry<String, Counters>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Counters counters = iterator.next().getValue();
+            long requests = counters.requests.sumThenReset();
+            if (requests == 0) {
+                if (!counters.day.equals(today)) {
+                    iterator.remove();
+                }
+                continue;
+            }
+            records.add(new Record(counters.day, counters.subject, counters.platform, counters.model, requests,
+                    counters.promptTokens.sumThenReset(), counters.completionTokens.sumThenReset(),
+                    counters.latencyMillis.sumThenReset()));
+        }
+        totals.keySet().removeIf(key -> !key.startsWith(today));
+        // Without usage storage the drained records are dropped; budgets still work from the in-memory totals
+        if (records.isEmpty() || !db.supportsTokenUsage()) {
+            return;
+        }
+
+        try {
+            db.saveTokenUsage(records);
+            flushed.addAndGet(records.size());
+        } catch (RuntimeException e) {
+            flushFailures.incrementAndGet();
+            for (Record record : records) {
+                Counters counters = counters(record.day, record.subject, record.platform, record.model);
+                counters.requests.add(record.requests);
+                counters.promptTokens.add(record.promptTokens);
+                counters.completionTokens.add(record.completionTokens);
+                counters.latencyMillis.add(record.latencyMillis);
+            }
+            Plugin plugin = owner;
+            if (plugin != null) {
+                plugin.getLogger().warning("Failed to save AI token usage, will retry: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns ledger statistics.
+     *
+     * @return Map with {@code pending} (unflushed counter sets), {@code flushed}, {@code flushFailures} and {@code refused}.
+     */
+    public static Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("pending", (long) pending.size());
+        stats.put("flushed", flushed.get());
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("refused", refused.get());
+        return stats;
+    }
+
+    /**
+     * Returns the tokens a subject has used today, as far as known to this server.
+     *
+     * @param subject A player UUID or {@code group:<name>}.
+     * @return Tokens used today, or {@code 0} if not loaded yet.
+     */
+    public static long getUsedToday(String subject) {
+        DailyTotal total = totals.get(LocalDate.now() + "\u0000" + subject);
+        return total == null ? 0L : total.used();
+    }
+
+    /**
+     * Adds one completion to the pending counters and today's total of a subject.
+     */
+    private static void add(String day, String subject, String platform, String model,
+                            long prompt, long completion, long latencyMillis) {
+        Counters counters = counters(day, subject, platform, model);
+        counters.requests.increment();
+        counters.promptTokens.add(prompt);
+        counters.completionTokens.add(completion);
+        counters.latencyMillis.add(latencyMillis);
+        total(day, subject).tokens.add(prompt + completion);
+    }
+
+    /**
+     * Returns the pending counters of a day, subject, platform and model.
+     */
+    private static Counters counters(String day, String subject, String platform, String model) {
+        return pending.computeIfAbsent(day + '\u0000' + subject + '\u0000' + platform + '\u0000' + model,
+                key -> new Counters(day, subject, platform, model));
+    }
+
+    /**
+     * Returns a subject's total for a day, loading what the database already holds on first use.
+     */
+    private static DailyTotal total(String day, String subject) {
+        return totals.computeIfAbsent(day + '\u0000' + subject, key -> {
+            IMCEngineArtificialIntelligenceDB db = database;
+            ScheduledExecutorService thread = flusher;
+            if (db == null || thread == null || !db.supportsTokenUsage()) {
+                return new DailyTotal(CompletableFuture.completedFuture(0L));
+            }
+            try {
+                return new DailyTotal(CompletableFuture.supplyAsync(() -> db.getTokenUsage(subject, day), thread)
+                        .exceptionally(e -> 0L));
+            } catch (RejectedExecutionException e) {
+                // The ledger was stopped meanwhile
+                return new DailyTotal(CompletableFuture.completedFuture(0L));
+            }
+        });
+    }
+
+    /**
+     * Completes with {@code reason} if a subject has reached its limit today.
+     */
+    private static CompletableFuture<String> exceeds(String day, String subject, long limit, String reason) {
+        DailyTotal total = total(day, subject);
+        return total.stored.thenApply(stored -> total.used() >= limit ? reason : null);
+    }
+
+    /**
+     * One row of the usage ledger: totals for a day, subject, platform and model.
+     */
+    public static class Record {
+
+        /** ISO date ({@code yyyy-MM-dd}) in the server's time zone. */
+        private final String day;
+
+        /** Player UUID or {@code group:<name>}. */
+        private final String subject;
+
+        /** The platform name. */
+        private final String platform;
+
+        /** The model name. */
+        private final String model;
+
+        /** Completions recorded. */
+        private final long requests;
+
+        /** Prompt tokens used. */
+        private final long promptTokens;
+
+        /** Completion tokens used. */
+        private final long completionTokens;
+
+        /** Sum of completion latencies in milliseconds. */
+        private final long latencyMillis;
+
+        Record(String day, String subject, String platform, String model,
+               long requests, long promptTokens, long completionTokens, long latencyMillis) {
+            this.day = day;
+            this.subject = subject;
+            this.platform = platform;
+            this.model = model;
+            this.requests = requests;
+            this.promptTokens = promptTokens;
+            this.completionTokens = completionTokens;
+            this.latencyMillis = latencyMillis;
+        }
+
+        /**
+         * Returns the ISO date of the usage.
+         *
+         * @return ISO date of the usage.
+         */
+        public String getDay() {
+            return day;
+        }
+
+        /**
+         * Returns the player UUID or {@code group:<name>}.
+         *
+         * @return Player UUID or {@code group:<name>}.
+         */
+        public String getSubject() {
+            return subject;
+        }
+
+        /**
+         * Returns the platform name.
+         *
+         * @return The platform name.
+         */
+        public String getPlatform() {
+            return platform;
+        }
+
+        /**
+         * Returns the model name.
+         *
+         * @return The model name.
+         */
+        public String getModel() {
+            return model;
+        }
+
+        /**
+         * Returns the number of completions recorded.
+         *
+         * @return Completions recorded.
+         */
+        public long getRequests() {
+            return requests;
+        }
+
+        /**
+         * Returns the prompt tokens used.
+         *
+         * @return Prompt tokens used.
+         */
+        public long getPromptTokens() {
+            return promptTokens;
+        }
+
+        /**
+         * Returns the completion tokens used.
+         *
+         * @return Completion tokens used.
+         */
+        public long getCompletionTokens() {
+            return completionTokens;
+        }
+
+        /**
+         * Returns the sum of completion latencies in milliseconds.
+         *
+         * @return Sum of completion latencies in milliseconds.
+         */
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+    }
+
+    /**
+     * Unflushed usage of one day, subject, platform and model.
+     */
+    private static class Counters {
+
+        /** ISO date of the usage. */
+        private final String day;
+
+        /** Player UUID or {@code group:<name>}. */
+        private final String subject;
+
+        /** The platform name. */
+        private final String platform;
+
+        /** The model name. */
+        private final String model;
+
+        /** Completions since the last flush. */
+        private final LongAdder requests = new LongAdder();
+
+        /** Prompt tokens since the last flush. */
+        private final LongAdder promptTokens = new LongAdder();
+
+        /** Completion tokens since the last flush. */
+        private final LongAdder completionTokens = new LongAdder();
+
+        /** Latency sum since the last flush, in milliseconds. */
+        private final LongAdder latencyMillis = new LongAdder();
+
+        Counters(String day, String subject, String platform, String model) {
+            this.day = day;
+            this.subject = subject;
+            this.platform = platform;
+            this.model = model;
+        }
+    }
+
+    /**
+     * A subject's tokens for one day: what the database held when first checked plus what was used since.
+     */
+    private static class DailyTotal {
+
+        /** Tokens already stored when the total was first loaded. */
+        private final CompletableFuture<Long> stored;
+
+        /** Tokens recorded on this server since. */
+        private final LongAdder tokens = new LongAdder();
+
+        DailyTotal(CompletableFuture<Long> stored) {
+            this.stored = stored;
+        }
+
+        /**
+         * Returns the tokens used, counting the stored part as zero until it has loaded.
+         */
+        long used() {
+            return stored.getNow(0L) + tokens.sum();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package io.github.mcengine.api.artificialintelligence.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link MCEngineArtificialIntelligenceApiUtilBalancer} against stub backends served by
+ * {@link HttpServer} on the loopback interface.
+ */
+class MCEngineArtificialIntelligenceApiUtilBalancerTest {
+
+    /** Client sending the routed requests. */
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    /** Stub backends started by the test. */
+    private final List<Stub> stubs = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        MCEngineArtificialIntelligenceApiUtilBalancer.shutdown();
+        MCEngineArtificialIntelligenceApiUtilHttp.shutdown();
+        for (Stub stub : stubs) {
+            stub.server.stop(0);
+        }
+    }
+
+    @Test
+    void powerOfTwoSplitsTrafficByWeight() throws Exception {
+        Stub heavy = stub(200);
+        Stub light = stub(200);
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("ai.custom.weighted.backends", List.of(backend(heavy, 3), backend(light, 1)));
+        MCEngineArtificialIntelligenceApiUtilBalancer.Balancer balancer =
+                MCEngineArtificialIntelligenceApiUtilBalancer.get(plugin(config), "custom.weighted");
+        assertNotNull(balancer);
+
+        int total = 400;
+        for (int i = 0; i < total; i++) {
+            send(balancer);
+        }
+
+        assertEquals(total, heavy.hits.get() + light.hits.get());
+        double heavyShare = heavy.hits.get() / (double) total;
+        assertTrue(heavyShare > 0.65 && heavyShare < 0.85, "heavy backend share was " + heavyShare);
+    }
+
+    @Test
+    void backendIsEjectedAfterConsecutiveFailures() throws Exception {
+        Stub failing = stub(500);
+        Stub healthy = stub(200);
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("ai.custom.ejecting.backends", List.of(backend(failing, 1), backend(healthy, 1)));
+        config.set("ai.custom.ejecting.balancer.eject-after", 2);
+        config.set("ai.custom.ejecting.balancer.health-interval-seconds", 3600);
+        MCEngineArtificialIntelligenceApiUtilBalancer.Balancer balancer =
+                MCEngineArtificialIntelligenceApiUtilBalancer.get(plugin(config), "custom.ejecting");
+
+        for (int i = 0; i < 200 && failing.hits.get() < 2; i++) {
+            send(balancer);
+        }
+        assertEquals(2, failing.hits.get());
+        assertEquals(1L, balancer.getStats().get(failing.url).get("ejected"));
+
+        int before = healthy.hits.get();
+        for (int i = 0; i < 20; i++) {
+            send(balancer);
+        }
+        assertEquals(2, failing.hits.get());
+        assertEquals(before + 20, healthy.hits.get());
+        assertEquals(1L, balancer.getStats().get(failing.url).get("ejections"));
+    }
+
+    @Test
+    void abandonedAttemptsDoNotEjectBackend() throws Exception {
+        Stub only = stub(200);
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("ai.custom.abandoning.backends", List.of(backend(only, 1)));
+        config.set("ai.custom.abandoning.balancer.eject-after", 1);
+        config.set("ai.custom.abandoning.balancer.health-interval-seconds", 3600);
+        MCEngineArtificialIntelligenceApiUtilBalancer.Balancer balancer =
+                MCEngineArtificialIntelligenceApiUtilBalancer.get(plugin(config), "custom.abandoning");
+
+        for (int i = 0; i < 5; i++) {
+            balancer.abandon(balancer.pick());
+        }
+
+        Map<String, Long> stats = balancer.getStats().get(only.url);
+        assertEquals(0L, stats.get("ejected"));
+        assertEquals(0L, stats.get("failures"));
+        assertEquals(0L, stats.get("outstanding"));
+    }
+
+    @Test
+    void ejectedBackendReturnsAfterSuccessfulProbe() throws Exception {
+        Stub recovering = stub(500);
+        Stub healthy = stub(200);
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("ai.custom.probing.backends", List.of(backend(recovering, 1), backend(healthy, 1)));
+        config.set("ai.custom.probing.balancer.eject-after", 1);
+        config.set("ai.custom.probing.balancer.health-interval-seconds", 1);
+        MCEngineArtificialIntelligenceApiUtilBalancer.Balancer balancer =
+                MCEngineArtificialIntelligenceApiUtilBalancer.get(plugin(config), "custom.probing");
+
+        for (int i = 0; i < 200 && recovering.hits.get() < 1; i++) {
+            send(balancer);
+        }
+        assertEquals(1L, balancer.getStats().get(recovering.url).get("ejected"));
+
+        recovering.status.set(200);
+        long giveUp = System.currentTimeMillis() + 10_000L;
+        while (balancer.getStats().get(recovering.url).get("ejected") == 1L && System.currentTimeMillis() < giveUp) {
+            Thread.sleep(100L);
+        }
+        assertEquals(0L, balancer.getStats().get(recovering.url).get("ejected"));
+        assertTrue(recovering.probes.get() > 0);
+
+        int before = recovering.hits.get();
+        for (int i = 0; i < 200 && recovering.hits.get() == before; i++) {
+            send(balancer);
+        }
+        assertTrue(recovering.hits.get() > before);
+    }
+
+    /**
+     * Routes one request through the balancer to a stub and reports the outcome.
+     */
+    private void send(MCEngineArtificialIntelligenceApiUtilBalancer.Balancer balancer) throws IOException, InterruptedException {
+        MCEngineArtificialIntelligenceApiUtilBalancer.Backend backend = balancer.pick();
+        int status = -1;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(backend.getUrl()))
+                    .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                    .build();
+            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } finally {
+            balancer.release(backend, status < 0 || status >= 500);
+        }
+    }
+
+    /**
+     * Starts a stub backend answering chat completions with {@code status} and health probes likewise.
+     */
+    private Stub stub(int status) throws IOException {
+        Stub stub = new Stub(status);
+        stubs.add(stub);
+        return stub;
+    }
+
+    /**
+     * Builds one entry of a {@code backends} list.
+     */
+    private static Map<String, Object> backend(Stub stub, int weight) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("url", stub.url);
+        entry.put("weight", weight);
+        return entry;
+    }
+
+    /**
+     * Creates a plugin exposing only a config and a logger.
+     */
+    private static Plugin plugin(YamlConfiguration config) {
+        Logger logger = Logger.getLogger("MCEngineArtificialIntelligenceApiUtilBalancerTest");
+        return (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[]{Plugin.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getConfig":
+                    return config;
+                case "getLogger":
+                    return logger;
+                case "getName":
+                    return "BalancerTest";
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * A stub OpenAI-compatible backend.
+     */
+    private static class Stub {
+
+        /** The server. */
+        private final HttpServer server;
+
+        /** Chat completion URL. */
+        private final String url;
+
+        /** Status returned to every request. */
+        private final AtomicInteger status;
+
+        /** Chat completion requests received. */
+        private final AtomicInteger hits = new AtomicInteger();
+
+        /** Health probes received. */
+        private final AtomicInteger probes = new AtomicInteger();
+
+        Stub(int status) throws IOException {
+            this.status = new AtomicInteger(status);
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/v1/chat/completions", exchange -> {
+                hits.incrementAndGet();
+                respond(exchange, this.status.get());
+            });
+            server.createContext("/v1/models", exchange -> {
+                probes.incrementAndGet();
+                respond(exchange, this.status.get());
+            });
+            server.start();
+            url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+        }
+
+        private static void respond(HttpExchange exchange, int status) throws IOException {
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}